@@ -81,6 +81,8 @@ public interface PropertyCollection {
     }
   };
 
+  BooleanProperties MSTAGE_CONVERTER_REUSE_RECORDS = new BooleanProperties("ms.converter.reuse.records", Boolean.FALSE);
+
   BooleanProperties MSTAGE_CSV_COLUMN_HEADER = new BooleanProperties("ms.csv.column.header", Boolean.FALSE) {
     @Override
     public boolean isValid(State state) {
@@ -192,6 +194,8 @@ public interface PropertyCollection {
   StringProperties MSTAGE_EXTRACTOR_CLASS = new StringProperties("ms.extractor.class");
   StringProperties MSTAGE_EXTRACTOR_TARGET_FILE_NAME = new StringProperties("ms.extractor.target.file.name");
   StringProperties MSTAGE_EXTRACTOR_TARGET_FILE_PERMISSION = new StringProperties("ms.extractor.target.file.permission", "755");
+  // default: 0, minimum: 0, maximum: 256, 0 = disabled
+  IntegerProperties MSTAGE_EXTRACT_PIPELINE_BUFFERS = new IntegerProperties("ms.extract.pipeline.buffers", 0, 256, 0);
   StringProperties MSTAGE_EXTRACT_PREPROCESSORS = new StringProperties("ms.extract.preprocessors");
   JsonObjectProperties MSTAGE_EXTRACT_PREPROCESSORS_PARAMETERS = new JsonObjectProperties("ms.extract.preprocessor.parameters");
 
@@ -284,6 +288,8 @@ public interface PropertyCollection {
 
   JsonObjectProperties MSTAGE_SCHEMA_CLEANSING = new JsonObjectProperties("ms.schema.cleansing");
   JsonArrayProperties MSTAGE_SECONDARY_INPUT = new JsonArrayProperties("ms.secondary.input");
+  IntegerProperties MSTAGE_SECONDARY_INPUT_PARALLELISM =
+      new IntegerProperties("ms.secondary.input.parallelism", 4, 100, 1);
   JsonObjectProperties MSTAGE_SESSION_KEY_FIELD = new JsonObjectProperties("ms.session.key.field");
 
   // default: 60 seconds, minimum: 0, maximum: -
@@ -293,8 +299,10 @@ public interface PropertyCollection {
       StandardCharsets.UTF_8.toString());
 
   StringProperties MSTAGE_SOURCE_FILES_PATTERN = new StringProperties("ms.source.files.pattern", REGEXP_DEFAULT_PATTERN);
+  JsonObjectProperties MSTAGE_SOURCE_HDFS_PARAMETERS = new JsonObjectProperties("ms.source.hdfs.parameters");
   JsonObjectProperties MSTAGE_SOURCE_S3_PARAMETERS = new JsonObjectProperties("ms.source.s3.parameters");
   StringProperties MSTAGE_SOURCE_SCHEMA_URN = new StringProperties("ms.source.schema.urn");
+  JsonObjectProperties MSTAGE_SOURCE_SFTP_PARAMETERS = new JsonObjectProperties("ms.source.sftp.parameters");
   StringProperties MSTAGE_SOURCE_URI = new StringProperties("ms.source.uri");
 
   SslProperties MSTAGE_SSL = new SslProperties("ms.ssl");
@@ -312,6 +320,20 @@ public interface PropertyCollection {
         }
       };
 
+  // accepted values: none, exponential, fibonacci
+  StringProperties MSTAGE_WAIT_BACKOFF = new StringProperties("ms.wait.backoff", "none") {
+    @Override
+    public boolean isValid(State state) {
+      if (super.isValid(state) && !isBlank(state)) {
+        String value = state.getProp(getConfig());
+        return value.equalsIgnoreCase("none")
+            || value.equalsIgnoreCase("exponential")
+            || value.equalsIgnoreCase("fibonacci");
+      }
+      return super.isValid(state);
+    }
+  };
+
   // default: 600 second, minimum: 0 second, maximum: 24 hours
   LongProperties MSTAGE_WAIT_TIMEOUT_SECONDS = new LongProperties("ms.wait.timeout.seconds", 600L, 24 * 3600L, 0L) {
     @Override
@@ -326,6 +348,12 @@ public interface PropertyCollection {
   // default: 0, minimum: 0, maximum: -
   LongProperties MSTAGE_WORK_UNIT_SCHEDULING_STARTTIME = new LongProperties("ms.work.unit.scheduling.starttime");
 
+  // default: 0, minimum: 0, maximum: -, 0 = disabled
+  IntegerProperties MSTAGE_WORK_UNIT_CHECKPOINT_PAGES = new IntegerProperties("ms.work.unit.checkpoint.pages");
+
+  // default: 0, minimum: 0, maximum: -, 0 = no limit
+  IntegerProperties MSTAGE_WORK_UNIT_CONCURRENCY_MAX = new IntegerProperties("ms.work.unit.concurrency.max");
+
   // default: 0, minimum: 0, maximum: -
   LongProperties MSTAGE_WORK_UNIT_MIN_RECORDS = new LongProperties("ms.work.unit.min.records");
 
@@ -352,6 +380,23 @@ public interface PropertyCollection {
   BooleanProperties MSTAGE_WORK_UNIT_PARTIAL_PARTITION =
       new BooleanProperties("ms.work.unit.partial.partition", Boolean.TRUE);
   StringProperties MSTAGE_WORK_UNIT_PARTITION = new StringProperties("ms.work.unit.partition", "none");
+
+  // default: 0, minimum: 0, maximum: -, 0 = disabled
+  LongProperties MSTAGE_WORK_UNIT_TARGET_ROWS = new LongProperties("ms.work.unit.target.rows");
+
+  // default: 0, minimum: 0, maximum: -, 0 = disabled
+  IntegerProperties MSTAGE_WORK_UNIT_TARGET_SECONDS = new IntegerProperties("ms.work.unit.target.seconds") {
+    @Override
+    public Long getMillis(State state) {
+      return 1000L * this.get(state);
+    }
+  };
+
+  StringProperties CONVERTER_AVRO_DATE_FORMAT = new StringProperties("converter.avro.date.format");
+  StringProperties CONVERTER_AVRO_DATE_TIMEZONE = new StringProperties("converter.avro.date.timezone",
+      "America/Los_Angeles");
+  StringProperties CONVERTER_AVRO_TIME_FORMAT = new StringProperties("converter.avro.time.format");
+  StringProperties CONVERTER_AVRO_TIMESTAMP_FORMAT = new StringProperties("converter.avro.timestamp.format");
   StringProperties CONVERTER_CLASSES = new StringProperties("converter.classes");
   StringProperties DATA_PUBLISHER_FINAL_DIR = new StringProperties("data.publisher.final.dir");
   StringProperties DATASET_URN = new StringProperties("dataset.urn");
@@ -394,6 +439,7 @@ public interface PropertyCollection {
       MSTAGE_CONNECTION_CLIENT_FACTORY,
       MSTAGE_CONVERTER_CSV_MAX_FAILURES,
       MSTAGE_CONVERTER_KEEP_NULL_STRINGS,
+      MSTAGE_CONVERTER_REUSE_RECORDS,
       MSTAGE_CSV_COLUMN_HEADER,
       MSTAGE_CSV_COLUMN_HEADER_INDEX,
       MSTAGE_CSV_COLUMN_PROJECTION,
@@ -413,6 +459,7 @@ public interface PropertyCollection {
       MSTAGE_EXTRACTOR_CLASS,
       MSTAGE_EXTRACTOR_TARGET_FILE_NAME,
       MSTAGE_EXTRACTOR_TARGET_FILE_PERMISSION,
+      MSTAGE_EXTRACT_PIPELINE_BUFFERS,
       MSTAGE_EXTRACT_PREPROCESSORS,
       MSTAGE_EXTRACT_PREPROCESSORS_PARAMETERS,
       MSTAGE_GRACE_PERIOD_DAYS,
@@ -439,28 +486,40 @@ public interface PropertyCollection {
       MSTAGE_S3_LIST_MAX_KEYS,
       MSTAGE_SCHEMA_CLEANSING,
       MSTAGE_SECONDARY_INPUT,
+      MSTAGE_SECONDARY_INPUT_PARALLELISM,
       MSTAGE_SESSION_KEY_FIELD,
       MSTAGE_SFTP_CONN_TIMEOUT_MILLIS,
       MSTAGE_SOURCE_DATA_CHARACTER_SET,
       MSTAGE_SOURCE_FILES_PATTERN,
+      MSTAGE_SOURCE_HDFS_PARAMETERS,
       MSTAGE_SOURCE_S3_PARAMETERS,
       MSTAGE_SOURCE_SCHEMA_URN,
+      MSTAGE_SOURCE_SFTP_PARAMETERS,
       MSTAGE_SOURCE_URI,
       MSTAGE_SSL,
       MSTAGE_TARGET_SCHEMA,
       MSTAGE_TARGET_SCHEMA_URN,
       MSTAGE_TOTAL_COUNT_FIELD,
       MSTAGE_VALIDATION_ATTRIBUTES,
+      MSTAGE_WAIT_BACKOFF,
       MSTAGE_WAIT_TIMEOUT_SECONDS,
       MSTAGE_WATERMARK,
       MSTAGE_WATERMARK_GROUPS,
       MSTAGE_WORK_UNIT_SCHEDULING_STARTTIME,
+      MSTAGE_WORK_UNIT_CHECKPOINT_PAGES,
+      MSTAGE_WORK_UNIT_CONCURRENCY_MAX,
       MSTAGE_WORK_UNIT_MIN_RECORDS,
       MSTAGE_WORK_UNIT_MIN_UNITS,
       MSTAGE_WORK_UNIT_PACING_SECONDS,
       MSTAGE_WORK_UNIT_PARALLELISM_MAX,
       MSTAGE_WORK_UNIT_PARTIAL_PARTITION,
       MSTAGE_WORK_UNIT_PARTITION,
+      MSTAGE_WORK_UNIT_TARGET_ROWS,
+      MSTAGE_WORK_UNIT_TARGET_SECONDS,
+      CONVERTER_AVRO_DATE_FORMAT,
+      CONVERTER_AVRO_DATE_TIMEZONE,
+      CONVERTER_AVRO_TIME_FORMAT,
+      CONVERTER_AVRO_TIMESTAMP_FORMAT,
       CONVERTER_CLASSES,
       CSV_MAX_FAILURES,
       DATA_PUBLISHER_FINAL_DIR,
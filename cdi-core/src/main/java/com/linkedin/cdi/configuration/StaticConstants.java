@@ -69,6 +69,19 @@ public interface StaticConstants {
   String KEY_WORD_JSON = "json";
   String KEY_WORD_CSV = "csv";
   String KEY_WORD_AVRO = "avro";
+  String KEY_WORD_S3_KEY = "s3.key";
+  String KEY_WORD_S3_ETAG = "s3.etag";
+  String KEY_WORD_S3_SIZE = "s3.size";
+  String KEY_WORD_S3_MODIFIED = "s3.modified";
+  String KEY_WORD_S3_LISTING = "s3.listing";
+  String KEY_WORD_SFTP_FILE = "sftp.file";
+  String KEY_WORD_HDFS_FILE = "hdfs.file";
+  String KEY_WORD_HDFS_SPLIT_START = "hdfs.split.start";
+  String KEY_WORD_HDFS_SPLIT_END = "hdfs.split.end";
+  String KEY_WORD_WORK_UNIT_ROWS = "work.unit.rows";
+  String KEY_WORD_WORK_UNIT_DURATION = "work.unit.duration";
+  String KEY_WORD_WORK_UNIT_CHECKPOINT = "work.unit.checkpoint";
+  String KEY_WORD_CHECKPOINT_RECORDS = "records";
 
   String PROPERTY_DELIMINATOR = ".";
   String REGEXP_DEFAULT_PATTERN = ".*";
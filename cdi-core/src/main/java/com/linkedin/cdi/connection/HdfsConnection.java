@@ -7,23 +7,43 @@ package com.linkedin.cdi.connection;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.linkedin.cdi.exception.RetriableAuthenticationException;
 import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.HdfsKeys;
 import com.linkedin.cdi.keys.JobKeys;
 import com.linkedin.cdi.util.InputStreamUtils;
 import com.linkedin.cdi.util.WorkUnitStatus;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.source.extractor.filebased.FileBasedHelperException;
 import org.apache.gobblin.source.extractor.filebased.TimestampAwareFileBasedHelper;
 import org.apache.gobblin.source.extractor.hadoop.HadoopFsHelper;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
 
 /**
  * HdfsConnection creates transmission channel with HDFS data provider or HDFS data receiver,
@@ -49,6 +69,11 @@ public class HdfsConnection extends MultistageConnection {
   private final static String URI_REGEXP_PATTERN = "RE=";
   final private HdfsKeys hdfsKeys;
   private TimestampAwareFileBasedHelper fsHelper;
+  // the files not yet returned in multiple files mode, and the streams being opened ahead
+  private Deque<String> remainingFiles = null;
+  private final Deque<Future<InputStream>> openingFiles = new ArrayDeque<>();
+  private ExecutorService openExecutor = null;
+  private InputStream currentStream = null;
 
   public HdfsConnection(State state, JobKeys jobKeys, ExtractorKeys extractorKeys) {
     super(state, jobKeys, extractorKeys);
@@ -71,6 +96,11 @@ public class HdfsConnection extends MultistageConnection {
    *
    * So if the intention is to read a single file, support the full path to ms.source.uri.
    *
+   * When multiple_files is enabled in ms.source.hdfs.parameters, all files matching
+   * ms.source.files.pattern are read in the order of their paths, one file per page.
+   * Each file is a separate stream, so that extractors process each file from its
+   * beginning, including its CSV header.
+   *
    * @param status prior work unit status
    * @return new work unit status
    */
@@ -87,6 +117,19 @@ public class HdfsConnection extends MultistageConnection {
     if (uri.getQuery() != null && uri.getQuery().matches(URI_REGEXP_PATTERN + ".*")) {
       status.setBuffer(InputStreamUtils.convertListToInputStream(
           readFileList(uri.getPath(), uri.getQuery().substring(URI_REGEXP_PATTERN.length()))));
+    } else if (hdfsKeys.isMultipleFiles()) {
+      List<String> files = readFileList(uri.getPath(), hdfsKeys.getFilesPattern());
+      Collections.sort(files);
+      LOG.info("Number of files to be processed: {}", files.size());
+      remainingFiles = new ArrayDeque<>(files);
+      openExecutor = Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hdfs-open-%d").build());
+      try {
+        status.setBuffer(nextFileStream());
+      } catch (IOException e) {
+        LOG.error("Error opening file", e);
+        return null;
+      }
     } else {
       List<String> files = readFileList(uri.getPath(), ".*");
       if (files.size() > 0) {
@@ -103,9 +146,13 @@ public class HdfsConnection extends MultistageConnection {
    */
   @Override
   public boolean closeAll(String message) {
+    closeStream();
+    closePendingFiles();
     try {
-      fsHelper.close();
-      fsHelper = null;
+      if (fsHelper != null) {
+        fsHelper.close();
+        fsHelper = null;
+      }
       return true;
     } catch (Exception e) {
       LOG.error("Error closing file system connection", e);
@@ -122,12 +169,209 @@ public class HdfsConnection extends MultistageConnection {
   @Override
   public WorkUnitStatus executeFirst(final WorkUnitStatus workUnitStatus) throws RetriableAuthenticationException {
     WorkUnitStatus status = super.executeFirst(workUnitStatus);
+    if (remainingFiles != null) {
+      // the previous files had no records, keep reading the listed files
+      return nextFileStatus(status);
+    }
     if (fsHelper == null) {
       fsHelper = getHdfsClient();
     }
+
+    // when the work unit is made for a file or a split of a file, read it directly without listing
+    JsonObject activation = getExtractorKeys().getActivationParameters();
+    if (activation.has(KEY_WORD_HDFS_FILE)) {
+      try {
+        status.setBuffer(readActivationFile(activation));
+      } catch (Exception e) {
+        LOG.error("Error reading work unit file: {}", activation, e);
+        return null;
+      }
+      return status;
+    }
     return execute(status);
   }
 
+  /**
+   * List the files matching ms.source.files.pattern, and divide each file into splits
+   * at its block boundaries, so that each split can be read by a separate work unit.
+   *
+   * Compressed files and files of a single block are not divided. The hosts of each
+   * block are logged as locality hints.
+   *
+   * @param path the directory of files
+   * @return the activation parameters of each file or split
+   * @throws IOException if the file status or block locations cannot be read
+   */
+  public JsonArray getFileSplits(String path) throws IOException {
+    FileSystem fs = getFileSystem();
+    CompressionCodecFactory codecs = new CompressionCodecFactory(fs.getConf());
+    List<String> files = readFileList(path, hdfsKeys.getFilesPattern());
+    Collections.sort(files);
+
+    JsonArray splits = new JsonArray();
+    for (String file : files) {
+      FileStatus fileStatus = fs.getFileStatus(new Path(file));
+      BlockLocation[] blocks = codecs.getCodec(fileStatus.getPath()) == null
+          ? fs.getFileBlockLocations(fileStatus, 0, fileStatus.getLen()) : new BlockLocation[0];
+      if (blocks.length <= 1) {
+        JsonObject activation = new JsonObject();
+        activation.addProperty(KEY_WORD_HDFS_FILE, file);
+        splits.add(activation);
+        continue;
+      }
+      for (BlockLocation block : blocks) {
+        LOG.debug("Split {} of {} at {} has hosts {}", block.getOffset(), file, block.getLength(),
+            block.getHosts());
+        JsonObject activation = new JsonObject();
+        activation.addProperty(KEY_WORD_HDFS_FILE, file);
+        activation.addProperty(KEY_WORD_HDFS_SPLIT_START, block.getOffset());
+        activation.addProperty(KEY_WORD_HDFS_SPLIT_END, block.getOffset() + block.getLength());
+        splits.add(activation);
+      }
+    }
+    return splits;
+  }
+
+  /**
+   * Read the file, or a split of the file, of the work unit activation
+   * @param activation the activation parameters with the file path and optionally the split
+   * @return the input stream of the file or the split
+   * @throws IOException if the file cannot be read
+   */
+  private InputStream readActivationFile(JsonObject activation) throws IOException {
+    String file = activation.get(KEY_WORD_HDFS_FILE).getAsString();
+    if (!activation.has(KEY_WORD_HDFS_SPLIT_START)) {
+      return readSingleFile(file);
+    }
+
+    long start = activation.get(KEY_WORD_HDFS_SPLIT_START).getAsLong();
+    long end = activation.get(KEY_WORD_HDFS_SPLIT_END).getAsLong();
+    LOG.info("Processing file: {}, bytes {} to {}", file, start, end);
+    currentStream = KEY_WORD_AVRO.equals(hdfsKeys.getSplitFormat())
+        ? HdfsFileSplit.openAvro(getFileSystem().open(new Path(file)), start, end)
+        : HdfsFileSplit.openLines(getFileSystem().open(new Path(file)), start, end,
+            MSTAGE_CSV.getLinesToSkip(getState()));
+    return currentStream;
+  }
+
+  private FileSystem getFileSystem() {
+    if (fsHelper == null) {
+      fsHelper = getHdfsClient();
+    }
+    Preconditions.checkState(fsHelper instanceof HadoopFsHelper, "HDFS file system is not available");
+    return ((HadoopFsHelper) fsHelper).getFileSystem();
+  }
+
+  /**
+   * In multiple files mode, return the next file as a new page
+   * @param workUnitStatus prior work unit status
+   * @return the updated work unit status
+   * @throws RetriableAuthenticationException if retry is needed
+   */
+  @Override
+  public WorkUnitStatus executeNext(final WorkUnitStatus workUnitStatus) throws RetriableAuthenticationException {
+    WorkUnitStatus status = super.executeNext(workUnitStatus);
+    return remainingFiles != null ? nextFileStatus(status) : status;
+  }
+
+  /**
+   * Set the stream of the next file to the work unit status
+   * @param status the work unit status
+   * @return the updated work unit status, or null if the next file cannot be opened,
+   * so that the work unit fails instead of skipping the rest of the files
+   */
+  private WorkUnitStatus nextFileStatus(WorkUnitStatus status) {
+    try {
+      status.setBuffer(nextFileStream());
+      return status;
+    } catch (IOException e) {
+      LOG.error("Error opening file", e);
+      return null;
+    }
+  }
+
+  /**
+   * @return true if there are more files to read in multiple files mode
+   */
+  @Override
+  public boolean hasNextStream() {
+    return remainingFiles != null && !(remainingFiles.isEmpty() && openingFiles.isEmpty());
+  }
+
+  /**
+   * Close the stream of the current file
+   * @return true if closed successfully, or false
+   */
+  @Override
+  public boolean closeStream() {
+    if (currentStream != null) {
+      try {
+        currentStream.close();
+      } catch (Exception e) {
+        LOG.warn("Error closing file stream", e);
+        return false;
+      } finally {
+        currentStream = null;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Take the next file from the opened-ahead streams, and start opening more files
+   * in the background, so that the next file is ready when the current file is processed
+   * @return the stream of the next file, or null if there are no more files
+   * @throws IOException if the next file cannot be opened
+   */
+  private InputStream nextFileStream() throws IOException {
+    while (openingFiles.size() <= hdfsKeys.getOpenAheadFiles() && !remainingFiles.isEmpty()) {
+      String file = remainingFiles.poll();
+      openingFiles.add(openExecutor.submit(() -> {
+        InputStream stream = readSingleFile(file);
+        if (stream == null) {
+          throw new IOException("Not able to open file: " + file);
+        }
+        return stream;
+      }));
+    }
+    Future<InputStream> next = openingFiles.poll();
+    if (next == null) {
+      return null;
+    }
+    try {
+      currentStream = next.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while opening file", e);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+    return currentStream;
+  }
+
+  /**
+   * Cancel the files being opened ahead, and close those already opened
+   */
+  private void closePendingFiles() {
+    for (Future<InputStream> future : openingFiles) {
+      if (!future.cancel(true)) {
+        try {
+          InputStream stream = future.get();
+          if (stream != null) {
+            stream.close();
+          }
+        } catch (Exception e) {
+          LOG.debug("Error closing file stream opened ahead", e);
+        }
+      }
+    }
+    openingFiles.clear();
+    if (openExecutor != null) {
+      openExecutor.shutdownNow();
+      openExecutor = null;
+    }
+  }
+
   /**
    * Read a list of files based on the given pattern
    * @param path base path of files
@@ -135,10 +379,11 @@ public class HdfsConnection extends MultistageConnection {
    * @return a list of paths
    */
   private List<String> readFileList(final String path, final String pattern) {
+    Pattern compiled = Pattern.compile(pattern);
     try {
       return this.fsHelper.ls(path)
           .stream()
-          .filter(fileName -> fileName.matches(pattern))
+          .filter(fileName -> compiled.matcher(fileName).matches())
           .collect(Collectors.toList());
     } catch (FileBasedHelperException e) {
       LOG.error("Not able to run ls command due to " + e.getMessage(), e);
@@ -0,0 +1,314 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.io.CountingInputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.hadoop.fs.FSDataInputStream;
+
+
+/**
+ * Opens a split of a large file, so that the file can be read by multiple work units,
+ * each reading one split from its offset.
+ *
+ * A record crossing split boundaries belongs to the split where it starts. A split
+ * skips the partial record at its start, and reads past its end until the last
+ * record is complete. Each split is returned as a complete stream:
+ *
+ * for line based files, like CSV, the header lines of the file are added to the front
+ * of the split, and the split is aligned to line breaks. Line breaks within quoted
+ * values are not supported.
+ * <p>
+ * for Avro container files, the file header is added to the front of the split, and
+ * the split is aligned to sync markers. A block belongs to the split where its preceding
+ * sync marker starts.
+ */
+final class HdfsFileSplit {
+  private static final int NEW_LINE = '\n';
+
+  private HdfsFileSplit() {
+  }
+
+  /**
+   * Open a split of a line based file
+   * @param in the file input stream, which is closed when the split stream is closed
+   * @param start the start offset of the split
+   * @param end the end offset of the split, exclusive
+   * @param headerLines the number of lines at the beginning of the file to be added to
+   *                    the front of the split
+   * @return the split input stream
+   * @throws IOException if the file cannot be read
+   */
+  static InputStream openLines(FSDataInputStream in, long start, long end, int headerLines) throws IOException {
+    if (start == 0) {
+      return new LineSplitInputStream(new BufferedInputStream(in), 0, end);
+    }
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    in.seek(0);
+    InputStream buffered = new BufferedInputStream(in);
+    for (int i = 0; i < headerLines; i++) {
+      int b;
+      while ((b = buffered.read()) != -1) {
+        header.write(b);
+        if (b == NEW_LINE) {
+          break;
+        }
+      }
+    }
+
+    // skip the partial line ahead of the split, a line starting at the split start belongs to this split
+    in.seek(start - 1);
+    buffered = new BufferedInputStream(in);
+    long position = start - 1;
+    int b;
+    while ((b = buffered.read()) != -1) {
+      position++;
+      if (b == NEW_LINE) {
+        break;
+      }
+    }
+    return new SequenceInputStream(new ByteArrayInputStream(header.toByteArray()),
+        new LineSplitInputStream(buffered, b == -1 ? Long.MAX_VALUE : position, end));
+  }
+
+  /**
+   * Open a split of an Avro container file
+   * @param in the file input stream, which is closed when the split stream is closed
+   * @param start the start offset of the split
+   * @param end the end offset of the split, exclusive
+   * @return the split input stream
+   * @throws IOException if the file cannot be read or is not an Avro container file
+   */
+  static InputStream openAvro(FSDataInputStream in, long start, long end) throws IOException {
+    in.seek(0);
+    CountingInputStream counting = new CountingInputStream(in);
+    BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(counting, null);
+    byte[] magic = new byte[DataFileConstants.MAGIC.length];
+    decoder.readFixed(magic);
+    if (!Arrays.equals(magic, DataFileConstants.MAGIC)) {
+      throw new IOException("Not an Avro container file");
+    }
+    for (long entries = decoder.readMapStart(); entries != 0; entries = decoder.mapNext()) {
+      for (long i = 0; i < entries; i++) {
+        decoder.readString(null);
+        decoder.readBytes(null);
+      }
+    }
+    byte[] sync = new byte[DataFileConstants.SYNC_SIZE];
+    decoder.readFixed(sync);
+    byte[] header = new byte[(int) counting.getCount()];
+    in.readFully(0, header);
+
+    InputStream blocks;
+    if (start == 0) {
+      in.seek(header.length);
+      blocks = new AvroSplitInputStream(new BufferedInputStream(in), header.length, end, sync);
+    } else {
+      // the sync marker in the header belongs to the first split
+      long position = Math.max(start, header.length);
+      in.seek(position);
+      InputStream buffered = new BufferedInputStream(in);
+      long blockStart = skipPastSync(buffered, position, sync);
+      // blocks after a sync marker starting at or after the split end belong to the next split
+      if (blockStart < 0 || blockStart - sync.length >= end) {
+        in.close();
+        blocks = new ByteArrayInputStream(new byte[0]);
+      } else {
+        blocks = new AvroSplitInputStream(buffered, blockStart, end, sync);
+      }
+    }
+    return new SequenceInputStream(new ByteArrayInputStream(header), blocks);
+  }
+
+  /**
+   * Read until the next sync marker
+   * @param in the input stream
+   * @param position the offset of the input stream
+   * @param sync the sync marker
+   * @return the offset after the sync marker, or -1 if there is no sync marker
+   * @throws IOException if the stream cannot be read
+   */
+  private static long skipPastSync(InputStream in, long position, byte[] sync) throws IOException {
+    SyncMatcher matcher = new SyncMatcher(sync);
+    int b;
+    while ((b = in.read()) != -1) {
+      position++;
+      if (matcher.matches(b)) {
+        return position;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks if the most recent bytes are the sync marker
+   */
+  private static class SyncMatcher {
+    private final byte[] sync;
+    private final byte[] recent;
+    private long count = 0;
+
+    SyncMatcher(byte[] sync) {
+      this.sync = sync;
+      this.recent = new byte[sync.length];
+    }
+
+    boolean matches(int b) {
+      recent[(int) (count++ % recent.length)] = (byte) b;
+      if (count < recent.length) {
+        return false;
+      }
+      for (int i = 0; i < sync.length; i++) {
+        if (recent[(int) ((count + i) % recent.length)] != sync[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Base of split streams: the bytes before the split end are read in bulk, and the
+   * bytes after the split end are read one by one until the last record is complete.
+   */
+  private abstract static class SplitInputStream extends InputStream {
+    private final InputStream in;
+    private final long end;
+    private long position;
+    private boolean finished = false;
+
+    SplitInputStream(InputStream in, long position, long end) {
+      this.in = in;
+      this.position = position;
+      this.end = end;
+    }
+
+    /**
+     * @param b the byte read
+     * @param pastEnd true if the byte is at or after the split end
+     * @return true if the last record is complete with this byte
+     */
+    protected abstract boolean isLastByte(int b, boolean pastEnd);
+
+    /**
+     * @return true if the last record is complete before reading more bytes after the split end
+     */
+    protected abstract boolean isComplete();
+
+    @Override
+    public int read() throws IOException {
+      if (finished || position >= end && isComplete()) {
+        finished = true;
+        return -1;
+      }
+      int b = in.read();
+      if (b == -1) {
+        finished = true;
+        return -1;
+      }
+      if (isLastByte(b, position++ >= end)) {
+        finished = true;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!finished && position < end) {
+        int count = in.read(b, off, (int) Math.min(len, end - position));
+        if (count == -1) {
+          finished = true;
+        } else {
+          position += count;
+          afterBulkRead(b[off + count - 1]);
+        }
+        return count;
+      }
+      int count = 0;
+      while (count < len && !finished) {
+        int next = read();
+        if (next == -1) {
+          break;
+        }
+        b[off + count++] = (byte) next;
+      }
+      return count == 0 ? -1 : count;
+    }
+
+    /**
+     * @param last the last byte of a bulk read before the split end
+     */
+    protected void afterBulkRead(byte last) {
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * Reads lines starting before the split end
+   */
+  private static class LineSplitInputStream extends SplitInputStream {
+    private boolean lineComplete = true;
+
+    LineSplitInputStream(InputStream in, long position, long end) {
+      super(in, position, end);
+    }
+
+    @Override
+    protected boolean isLastByte(int b, boolean pastEnd) {
+      lineComplete = b == NEW_LINE;
+      return pastEnd && lineComplete;
+    }
+
+    @Override
+    protected boolean isComplete() {
+      return lineComplete;
+    }
+
+    @Override
+    protected void afterBulkRead(byte last) {
+      lineComplete = last == NEW_LINE;
+    }
+  }
+
+  /**
+   * Reads blocks whose preceding sync markers start before the split end, the
+   * stream ends after the first sync marker starting at or after the split end
+   */
+  private static class AvroSplitInputStream extends SplitInputStream {
+    private final SyncMatcher matcher;
+
+    AvroSplitInputStream(InputStream in, long position, long end, byte[] sync) {
+      super(in, position, end);
+      this.matcher = new SyncMatcher(sync);
+    }
+
+    @Override
+    protected boolean isLastByte(int b, boolean pastEnd) {
+      return pastEnd && matcher.matches(b);
+    }
+
+    @Override
+    protected boolean isComplete() {
+      return false;
+    }
+  }
+}
@@ -15,12 +15,14 @@ import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.HttpKeys;
 import com.linkedin.cdi.keys.JobKeys;
 import com.linkedin.cdi.factory.http.HttpRequestMethod;
-import com.linkedin.cdi.util.JsonUtils;
+import com.linkedin.cdi.factory.http.HttpRequestTemplate;
 import com.linkedin.cdi.util.WorkUnitStatus;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.gobblin.configuration.State;
@@ -48,8 +50,11 @@ import static com.linkedin.cdi.configuration.StaticConstants.*;
 public class HttpConnection extends MultistageConnection {
   private static final Logger LOG = LoggerFactory.getLogger(HttpConnection.class);
   final private HttpKeys httpSourceKeys;
+  private final Lock clientLock = new ReentrantLock();
   private HttpClient httpClient;
   private CloseableHttpResponse response;
+  // the URI and headers are compiled once and reused by subsequent pages
+  private HttpRequestTemplate requestTemplate = null;
 
   public HttpKeys getHttpSourceKeys() {
     return httpSourceKeys;
@@ -87,19 +92,27 @@ public class HttpConnection extends MultistageConnection {
    * Thread-safely create HttpClient as needed. This connection object
    * is mostly going to be initialized in separate threads; therefore,
    * this is more of a precaution.
+   *
+   * A lock is used instead of a synchronized method, so that a thread waiting for
+   * the client factory does not pin its carrier thread if it is a virtual thread.
    */
-  synchronized HttpClient getHttpClient(State state) {
-    if (httpClient == null) {
-      try {
-        Class<?> factoryClass = Class.forName(
-            MSTAGE_CONNECTION_CLIENT_FACTORY.get(state));
-        ConnectionClientFactory factory = (ConnectionClientFactory) factoryClass.newInstance();
-        httpClient = factory.getHttpClient(state);
-      } catch (Exception e) {
-        LOG.error("Error creating HttpClient: {}", e.getMessage());
+  HttpClient getHttpClient(State state) {
+    clientLock.lock();
+    try {
+      if (httpClient == null) {
+        try {
+          Class<?> factoryClass = Class.forName(
+              MSTAGE_CONNECTION_CLIENT_FACTORY.get(state));
+          ConnectionClientFactory factory = (ConnectionClientFactory) factoryClass.newInstance();
+          httpClient = factory.getHttpClient(state);
+        } catch (Exception e) {
+          LOG.error("Error creating HttpClient: {}", e.getMessage());
+        }
       }
+      return httpClient;
+    } finally {
+      clientLock.unlock();
     }
-    return httpClient;
   }
 
   @Override
@@ -136,7 +149,7 @@ public class HttpConnection extends MultistageConnection {
     // even no error, no warning, we still need to process potential silent failures
     try {
       status.getMessages().put("contentType", getResponseContentType(response));
-      status.getMessages().put("headers", getResponseHeaders(response).toString());
+      status.setHeaders(getResponseHeaders(response));
       if (response.getEntity() != null) {
         status.setBuffer(response.getEntity().getContent());
       }
@@ -231,12 +244,16 @@ public class HttpConnection extends MultistageConnection {
       JsonObject queryParameters = new JsonObject();
       for (Map.Entry<String, JsonElement> entry: parameters.entrySet()) {
         if (entry.getKey().equalsIgnoreCase(KEY_WORD_PAYLOAD)) {
-          payloads = JsonUtils.deepCopy(entry.getValue()).getAsJsonObject();
+          // payloads are only read when building the request entity, no need to copy
+          payloads = entry.getValue().getAsJsonObject();
         } else {
           queryParameters.add(entry.getKey(), entry.getValue());
         }
       }
-      HttpUriRequest request = command.getHttpRequest(httpUriTemplate, queryParameters, headers, payloads);
+      if (requestTemplate == null || !requestTemplate.isCompiledFrom(httpUriTemplate, headers)) {
+        requestTemplate = new HttpRequestTemplate(httpUriTemplate, headers);
+      }
+      HttpUriRequest request = command.getHttpRequest(requestTemplate, queryParameters, payloads);
       response = (CloseableHttpResponse) httpClient.execute(request, context);
       LOG.debug(context.toString());
     } catch (Exception e) {
@@ -294,11 +311,11 @@ public class HttpConnection extends MultistageConnection {
    * @param response HttpResponse
    * @return the headers in a JsonObject format, otherwise, an empty JsonObject
    */
-  private JsonObject getResponseHeaders(HttpResponse response) {
-    JsonObject headers = new JsonObject();
+  private Map<String, String> getResponseHeaders(HttpResponse response) {
+    Map<String, String> headers = WorkUnitStatus.newHeaderMap();
     if (response.getAllHeaders() != null) {
       for (Header header : response.getAllHeaders()) {
-        headers.addProperty(header.getName(), header.getValue());
+        headers.put(header.getName(), header.getValue());
       }
     }
     return headers;
@@ -26,6 +26,8 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.gobblin.configuration.State;
 import org.slf4j.Logger;
@@ -42,6 +44,7 @@ import static com.linkedin.cdi.configuration.PropertyCollection.*;
  */
 public class JdbcConnection extends MultistageConnection {
   private static final Logger LOG = LoggerFactory.getLogger(JdbcConnection.class);
+  private final Lock connectionLock = new ReentrantLock();
   private JdbcKeys jdbcSourceKeys;
 
   public JdbcKeys getJdbcSourceKeys() {
@@ -110,8 +113,12 @@ public class JdbcConnection extends MultistageConnection {
 
   /**
    * Create jdbcConnection for work unit in thread-safe mode
+   *
+   * A lock is used instead of a synchronized method, so that a thread connecting to
+   * the database does not pin its carrier thread if it is a virtual thread.
    */
-  private synchronized Connection getJdbcConnection(State state) {
+  private Connection getJdbcConnection(State state) {
+    connectionLock.lock();
     try {
       Class<?> factoryClass = Class.forName(MSTAGE_CONNECTION_CLIENT_FACTORY.get(state));
       ConnectionClientFactory factory = (ConnectionClientFactory) factoryClass.newInstance();
@@ -123,6 +130,8 @@ public class JdbcConnection extends MultistageConnection {
           state);
     } catch (Exception e) {
       LOG.error("Error creating Jdbc connection: {}", e.getMessage());
+    } finally {
+      connectionLock.unlock();
     }
     return null;
   }
@@ -8,9 +8,11 @@ import com.google.gson.JsonObject;
 import com.linkedin.cdi.exception.RetriableAuthenticationException;
 import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.JobKeys;
+import com.linkedin.cdi.util.BackoffTypes;
 import com.linkedin.cdi.util.VariableUtils;
 import com.linkedin.cdi.util.WorkUnitStatus;
 import org.apache.gobblin.configuration.State;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +24,8 @@ import org.slf4j.LoggerFactory;
  */
 public class MultistageConnection implements Connection {
   private static final Logger LOG = LoggerFactory.getLogger(MultistageConnection.class);
+  // backoff starts from 1 second when ms.call.interval.millis is not set
+  private static final long DEFAULT_WAIT_BACKOFF_BASE_MILLIS = 1000L;
   private State state = null;
   private JobKeys jobKeys = null;
   private ExtractorKeys extractorKeys = null;
@@ -87,6 +91,16 @@ public class MultistageConnection implements Connection {
     return true;
   }
 
+  /**
+   * Check if the connection has more streams to return without a new request,
+   * like the remaining files when reading multiple files, default implementation
+   * has none.
+   * @return false (default)
+   */
+  public boolean hasNextStream() {
+    return false;
+  }
+
   public JsonObject getWorkUnitParameters() {
     return null;
   }
@@ -102,7 +116,7 @@ public class MultistageConnection implements Connection {
 
   public WorkUnitStatus executeNext(final WorkUnitStatus workUnitStatus) throws RetriableAuthenticationException {
     try {
-      Thread.sleep(jobKeys.getCallInterval());
+      Thread.sleep(getWaitInterval());
     } catch (Exception e) {
       LOG.warn(e.getMessage());
     }
@@ -112,6 +126,30 @@ public class MultistageConnection implements Connection {
     return workUnitStatus;
   }
 
+  /**
+   * Calculate the wait time before the next request.
+   *
+   * Normally, it is the call interval. When the extractor is waiting for the session
+   * stop condition, like an asynchronous export to complete, the wait time grows by the
+   * configured backoff strategy, but it never goes past the session timeout.
+   *
+   * @return the wait time in milliseconds
+   */
+  protected long getWaitInterval() {
+    if (!jobKeys.isSessionStateEnabled()
+        || jobKeys.getWaitBackoff() == BackoffTypes.NONE
+        || extractorKeys.getSessionWaitCount() == 0) {
+      return jobKeys.getCallInterval();
+    }
+    long baseInterval = jobKeys.getCallInterval() > 0 ? jobKeys.getCallInterval() : DEFAULT_WAIT_BACKOFF_BASE_MILLIS;
+    long interval = jobKeys.getWaitBackoff().getInterval(baseInterval, extractorKeys.getSessionWaitCount() - 1);
+    long remaining = extractorKeys.getStartTime() + jobKeys.getSessionTimeout() - DateTime.now().getMillis();
+    interval = Math.max(Math.min(interval, remaining), 0);
+    LOG.info("Waiting for session stop condition, check #{}, next check in {} milliseconds",
+        extractorKeys.getSessionWaitCount(), interval);
+    return interval;
+  }
+
   /**
    * This method applies the work unit parameters to string template, and
    * then return a work unit specific string
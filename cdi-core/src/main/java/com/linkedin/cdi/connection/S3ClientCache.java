@@ -0,0 +1,129 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+
+/**
+ * A reference-counted cache of S3 clients shared by all work units in the same JVM.
+ *
+ * S3 clients are thread-safe and hold their own connection pools; therefore, work units
+ * with the same region, endpoint, credentials, and client settings share one client.
+ * A client is closed when the last work unit using it releases it.
+ *
+ * Cache keys include the credentials as configured, which are normally encrypted, so
+ * they are never logged.
+ */
+class S3ClientCache {
+  private static final Logger LOG = LoggerFactory.getLogger(S3ClientCache.class);
+  private static final Map<String, CachedClient> CLIENTS = new HashMap<>();
+  // guards the cache and the reference counts
+  private static final Lock LOCK = new ReentrantLock();
+  // serializes the creation of clients of the same key
+  private static final ConcurrentHashMap<String, Lock> CREATION_LOCKS = new ConcurrentHashMap<>();
+
+  private static class CachedClient {
+    private final SdkAutoCloseable client;
+    private int references = 0;
+
+    private CachedClient(SdkAutoCloseable client) {
+      this.client = client;
+    }
+  }
+
+  private S3ClientCache() {
+  }
+
+  /**
+   * Get the client of the given key, creating it if it is not cached, and add a reference to it
+   *
+   * A new client is built outside of the cache lock, so that work units of other keys are
+   * not blocked by it. Work units of the same key wait for it, and then share it. Locks are
+   * used instead of monitors, because a virtual thread blocked in a monitor pins its carrier.
+   *
+   * @param key the cache key
+   * @param factory creates the client, it can return null if the client cannot be created
+   * @param <T> S3Client or S3AsyncClient
+   * @return the shared client, or null if it cannot be created
+   */
+  @SuppressWarnings("unchecked")
+  static <T extends SdkAutoCloseable> T acquire(String key, Supplier<T> factory) {
+    Lock creationLock = CREATION_LOCKS.computeIfAbsent(key, x -> new ReentrantLock());
+    creationLock.lock();
+    try {
+      LOCK.lock();
+      try {
+        CachedClient cached = CLIENTS.get(key);
+        if (cached != null) {
+          cached.references++;
+          return (T) cached.client;
+        }
+      } finally {
+        LOCK.unlock();
+      }
+
+      T client = factory.get();
+      if (client == null) {
+        return null;
+      }
+      LOCK.lock();
+      try {
+        CachedClient cached = new CachedClient(client);
+        CLIENTS.put(key, cached);
+        cached.references++;
+        LOG.info("Created shared S3 client, {} clients are cached", CLIENTS.size());
+        return client;
+      } finally {
+        LOCK.unlock();
+      }
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  /**
+   * Remove a reference to the client of the given key, and close the client if it is no longer used
+   * @param key the cache key
+   */
+  static void release(String key) {
+    LOCK.lock();
+    try {
+      CachedClient cached = CLIENTS.get(key);
+      if (cached == null) {
+        return;
+      }
+      if (--cached.references <= 0) {
+        CLIENTS.remove(key);
+        cached.client.close();
+        LOG.info("Closed shared S3 client, {} clients are cached", CLIENTS.size());
+      }
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * @param key the cache key
+   * @return the number of references to the client of the given key, 0 if it is not cached
+   */
+  static int getReferences(String key) {
+    LOCK.lock();
+    try {
+      CachedClient cached = CLIENTS.get(key);
+      return cached == null ? 0 : cached.references;
+    } finally {
+      LOCK.unlock();
+    }
+  }
+}
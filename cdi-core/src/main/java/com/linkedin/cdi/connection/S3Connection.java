@@ -4,18 +4,32 @@
 
 package com.linkedin.cdi.connection;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonObject;
 import com.linkedin.cdi.exception.RetriableAuthenticationException;
 import com.linkedin.cdi.factory.ConnectionClientFactory;
+import com.linkedin.cdi.factory.S3ClientOption;
 import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.JobKeys;
 import com.linkedin.cdi.keys.S3Keys;
 import com.linkedin.cdi.util.EncryptionUtils;
 import com.linkedin.cdi.util.InputStreamUtils;
 import com.linkedin.cdi.util.WorkUnitStatus;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.Duration;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.lang.StringUtils;
 import org.apache.gobblin.configuration.State;
@@ -26,16 +40,20 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.utils.AttributeMap;
 
 import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
 import static software.amazon.awssdk.http.SdkHttpConfigurationOption.*;
 
 /**
@@ -46,8 +64,16 @@ import static software.amazon.awssdk.http.SdkHttpConfigurationOption.*;
  */
 public class S3Connection extends MultistageConnection {
   private static final Logger LOG = LoggerFactory.getLogger(S3Connection.class);
+  private static final String DELIMITER = "/";
+  // async download always downloads by parts, this is the part size when it is not configured
+  private static final long DEFAULT_ASYNC_PART_SIZE = 8L * 1024 * 1024;
   final private S3Keys s3SourceV2Keys;
   private S3Client s3Client = null;
+  private S3AsyncClient s3AsyncClient = null;
+  // cache keys of the shared clients acquired by this connection, null if not acquired
+  private String s3ClientKey = null;
+  private String s3AsyncClientKey = null;
+  private final Lock clientLock = new ReentrantLock();
 
   public S3Keys getS3SourceV2Keys() {
     return s3SourceV2Keys;
@@ -72,9 +98,29 @@ public class S3Connection extends MultistageConnection {
     return null;
   }
 
+  /**
+   * Release the shared S3 clients, they are closed when no other work unit uses them
+   * @param message not used
+   * @return true
+   */
   @Override
   public boolean closeAll(String message) {
-    return true;
+    clientLock.lock();
+    try {
+      if (s3ClientKey != null) {
+        S3ClientCache.release(s3ClientKey);
+        s3ClientKey = null;
+        s3Client = null;
+      }
+      if (s3AsyncClientKey != null) {
+        S3ClientCache.release(s3AsyncClientKey);
+        s3AsyncClientKey = null;
+        s3AsyncClient = null;
+      }
+      return true;
+    } finally {
+      clientLock.unlock();
+    }
   }
 
   /**
@@ -87,11 +133,34 @@ public class S3Connection extends MultistageConnection {
     WorkUnitStatus status = super.executeFirst(workUnitStatus);
     s3Client = getS3HttpClient(getState());
 
+    // when the work unit is made for a single object, download it directly without listing
+    JsonObject activation = getExtractorKeys().getActivationParameters();
+    if (activation.has(KEY_WORD_S3_KEY)) {
+      try {
+        String key = activation.get(KEY_WORD_S3_KEY).getAsString();
+        LOG.debug("Downloading work unit object: {}", key);
+        status.setBuffer(getObjectInputStream(key,
+            activation.has(KEY_WORD_S3_ETAG) ? activation.get(KEY_WORD_S3_ETAG).getAsString() : null,
+            activation.has(KEY_WORD_S3_SIZE) ? activation.get(KEY_WORD_S3_SIZE).getAsLong() : null));
+      } catch (Exception e) {
+        LOG.error("Unexpected Exception", e);
+        return null;
+      }
+      return status;
+    }
+
+    // in work unit per object mode, a work unit without an object, like the only work unit
+    // of a run that listed no objects, has nothing to extract
+    if (s3SourceV2Keys.isWorkUnitPerObject()) {
+      LOG.info("No object is assigned to the work unit");
+      return status;
+    }
+
     String finalPrefix = getWorkUnitSpecificString(s3SourceV2Keys.getPrefix(), getExtractorKeys().getDynamicParameters());
     LOG.debug("Final Prefix to get files list: {}", finalPrefix);
     try {
-      List<String> files = getFilesList(finalPrefix).stream()
-          .filter(objectKey -> objectKey.matches(s3SourceV2Keys.getFilesPattern()))
+      List<String> files = getObjects(finalPrefix).stream()
+          .map(S3Object::key)
           .collect(Collectors.toList());
 
       LOG.debug("Number of files identified: {}", files.size());
@@ -106,11 +175,7 @@ public class S3Connection extends MultistageConnection {
 
         if (StringUtils.isNotBlank(fileToDownload)) {
           LOG.debug("Downloading file: {}", fileToDownload);
-          GetObjectRequest getObjectRequest =
-              GetObjectRequest.builder().bucket(s3SourceV2Keys.getBucket()).key(fileToDownload).build();
-          ResponseInputStream<GetObjectResponse> response =
-              s3Client.getObject(getObjectRequest, ResponseTransformer.toInputStream());
-          status.setBuffer(response);
+          status.setBuffer(getObjectInputStream(fileToDownload, null, null));
         } else {
           LOG.warn("Invalid set of parameters. "
               + "To list down files from a bucket, pattern parameter is needed,"
@@ -125,59 +190,243 @@ public class S3Connection extends MultistageConnection {
   }
 
   /**
-   * Thread-safely create S3Client as needed
+   * Open an object for reading. When ranged download is enabled, and the object is larger than
+   * one part, the object is downloaded by concurrent ranged GET requests; otherwise, it is
+   * downloaded by a single GET request.
+   *
+   * When async download is enabled, the object is always downloaded by parts using the async client,
+   * and the number of in-flight requests is bounded by the download parallelism.
+   *
+   * When the ETag is given, the download fails if the object has been replaced since it was listed.
+   *
+   * @param key the object key
+   * @param eTag the ETag of the object if known, otherwise null
+   * @param size the size of the object if known, otherwise null
+   * @return the InputStream of the object content
    */
-  synchronized S3Client getS3HttpClient(State state) {
-    if (s3Client == null) {
-      try {
-        Class<?> factoryClass = Class.forName(MSTAGE_CONNECTION_CLIENT_FACTORY.get(state));
-        ConnectionClientFactory factory = (ConnectionClientFactory) factoryClass.getDeclaredConstructor().newInstance();
+  private InputStream getObjectInputStream(String key, String eTag, Long size) {
+    if (s3SourceV2Keys.isAsyncDownload() || s3SourceV2Keys.getDownloadPartSize() > 0) {
+      if (size == null) {
+        HeadObjectResponse head = s3Client.headObject(
+            HeadObjectRequest.builder().bucket(s3SourceV2Keys.getBucket()).key(key).ifMatch(eTag).build());
+        eTag = head.eTag();
+        size = head.contentLength();
+      }
+      // without the size, the object is downloaded by a plain GET
+      if (s3SourceV2Keys.isAsyncDownload() && size != null) {
+        long partSize = s3SourceV2Keys.getDownloadPartSize() > 0
+            ? s3SourceV2Keys.getDownloadPartSize() : DEFAULT_ASYNC_PART_SIZE;
+        return new S3RangedInputStream(getS3AsyncHttpClient(getState()), s3SourceV2Keys.getBucket(), key, eTag,
+            size, partSize, s3SourceV2Keys.getDownloadParallelism());
+      }
+      if (size != null && size > s3SourceV2Keys.getDownloadPartSize()) {
+        return new S3RangedInputStream(s3Client, s3SourceV2Keys.getBucket(), key, eTag,
+            size, s3SourceV2Keys.getDownloadPartSize(), s3SourceV2Keys.getDownloadParallelism());
+      }
+    }
+    GetObjectRequest getObjectRequest =
+        GetObjectRequest.builder().bucket(s3SourceV2Keys.getBucket()).key(key).ifMatch(eTag).build();
+    return s3Client.getObject(getObjectRequest, ResponseTransformer.toInputStream());
+  }
 
-        Integer connectionTimeout = s3SourceV2Keys.getConnectionTimeout();
-        AttributeMap config = connectionTimeout == null ? GLOBAL_HTTP_DEFAULTS
-            : GLOBAL_HTTP_DEFAULTS.toBuilder()
-                .put(CONNECTION_TIMEOUT, Duration.ofSeconds(connectionTimeout))
+  /**
+   * Thread-safely get S3Client as needed, the client is shared with other work units
+   * of the same settings, and it is released by closeAll
+   *
+   * The client lock is not a monitor, so that a virtual thread waiting for the shared
+   * client does not pin its carrier thread.
+   */
+  S3Client getS3HttpClient(State state) {
+    clientLock.lock();
+    try {
+      if (s3Client == null) {
+        String key = getClientCacheKey(S3Client.class, state);
+        s3Client = S3ClientCache.acquire(key, () -> {
+          try {
+            return S3Client.builder()
+                .region(this.s3SourceV2Keys.getRegion())
+                .endpointOverride(URI.create(s3SourceV2Keys.getEndpoint()))
+                .httpClient(getConnectionClientFactory(state).getS3Client(state, getS3ClientConfig()))
+                .credentialsProvider(getCredentialsProvider(state))
                 .build();
+          } catch (Exception e) {
+            LOG.error("Error creating S3 Client: {}", e.getMessage());
+            return null;
+          }
+        });
+        s3ClientKey = s3Client == null ? null : key;
+      }
+      return s3Client;
+    } finally {
+      clientLock.unlock();
+    }
+  }
 
-        s3Client = S3Client.builder()
-            .region(this.s3SourceV2Keys.getRegion())
-            .endpointOverride(URI.create(s3SourceV2Keys.getEndpoint()))
-            .httpClient(factory.getS3Client(state, config))
-            .credentialsProvider(getCredentialsProvider(state))
-            .build();
-      } catch (Exception e) {
-        LOG.error("Error creating S3 Client: {}", e.getMessage());
+  /**
+   * Thread-safely get S3AsyncClient as needed, the client is shared with other work units
+   * of the same settings, and it is released by closeAll
+   */
+  S3AsyncClient getS3AsyncHttpClient(State state) {
+    clientLock.lock();
+    try {
+      if (s3AsyncClient == null) {
+        String key = getClientCacheKey(S3AsyncClient.class, state);
+        s3AsyncClient = S3ClientCache.acquire(key, () -> {
+          try {
+            return S3AsyncClient.builder()
+                .region(this.s3SourceV2Keys.getRegion())
+                .endpointOverride(URI.create(s3SourceV2Keys.getEndpoint()))
+                .httpClient(getConnectionClientFactory(state).getS3AsyncClient(state, getS3ClientConfig()))
+                .credentialsProvider(getCredentialsProvider(state))
+                .build();
+          } catch (Exception e) {
+            LOG.error("Error creating S3 Async Client: {}", e.getMessage());
+            return null;
+          }
+        });
+        s3AsyncClientKey = s3AsyncClient == null ? null : key;
       }
+      return s3AsyncClient;
+    } finally {
+      clientLock.unlock();
     }
-    return s3Client;
+  }
+
+  private ConnectionClientFactory getConnectionClientFactory(State state) throws ReflectiveOperationException {
+    Class<?> factoryClass = Class.forName(MSTAGE_CONNECTION_CLIENT_FACTORY.get(state));
+    return (ConnectionClientFactory) factoryClass.getDeclaredConstructor().newInstance();
+  }
+
+  /**
+   * Clients are shared when they have the same type, factory, region, endpoint, credentials,
+   * and client settings. The credentials are used as configured, without decryption.
+   *
+   * @param clientClass S3Client or S3AsyncClient
+   * @param state the state of execution environment
+   * @return the client cache key
+   */
+  String getClientCacheKey(Class<?> clientClass, State state) {
+    return Joiner.on('|').useForNull("").join(Lists.newArrayList(
+        clientClass.getName(),
+        MSTAGE_CONNECTION_CLIENT_FACTORY.get(state),
+        s3SourceV2Keys.getRegion(),
+        s3SourceV2Keys.getEndpoint(),
+        s3SourceV2Keys.getAccessKey(),
+        s3SourceV2Keys.getSecretId(),
+        s3SourceV2Keys.getConnectionTimeout(),
+        s3SourceV2Keys.getMaxConcurrency(),
+        s3SourceV2Keys.getMaxPendingAcquires(),
+        s3SourceV2Keys.getReadBufferSize()));
+  }
+
+  /**
+   * @return the HTTP client settings given in S3 parameters on top of the SDK defaults
+   */
+  AttributeMap getS3ClientConfig() {
+    AttributeMap.Builder builder = GLOBAL_HTTP_DEFAULTS.toBuilder();
+    if (s3SourceV2Keys.getConnectionTimeout() != null) {
+      builder.put(CONNECTION_TIMEOUT, Duration.ofSeconds(s3SourceV2Keys.getConnectionTimeout()));
+    }
+    if (s3SourceV2Keys.getMaxConcurrency() != null) {
+      builder.put(MAX_CONNECTIONS, s3SourceV2Keys.getMaxConcurrency());
+    }
+    if (s3SourceV2Keys.getMaxPendingAcquires() != null) {
+      builder.put(MAX_PENDING_CONNECTION_ACQUIRES, s3SourceV2Keys.getMaxPendingAcquires());
+    }
+    if (s3SourceV2Keys.getReadBufferSize() != null) {
+      builder.put(S3ClientOption.READ_BUFFER_SIZE, s3SourceV2Keys.getReadBufferSize());
+    }
+    return builder.build();
+  }
+
+  /**
+   * retrieve a list of objects given a bucket name and a prefix, and filter them
+   * by the files pattern, and by the last modified time if a listing watermark is set
+   *
+   * When list parallelism is more than 1, the sub-prefixes right under the prefix are
+   * discovered by a delimited listing first, and then they are listed concurrently.
+   *
+   * @param finalPrefix the prefix with all variables substituted
+   * @return list of objects, including their keys, ETags, sizes, and last modified times, ordered by key
+   */
+  public List<S3Object> getObjects(String finalPrefix) {
+    s3Client = getS3HttpClient(getState());
+    Pattern pattern = Pattern.compile(s3SourceV2Keys.getFilesPattern());
+    long modifiedSince = s3SourceV2Keys.getModifiedSince();
+    Predicate<S3Object> filter = object -> pattern.matcher(object.key()).matches()
+        && (modifiedSince <= 0 || object.lastModified() == null
+        || object.lastModified().toEpochMilli() >= modifiedSince);
+
+    if (s3SourceV2Keys.getListParallelism() <= 1) {
+      return listObjects(finalPrefix, null, filter, null);
+    }
+
+    List<String> subPrefixes = Lists.newArrayList();
+    List<S3Object> objects = listObjects(finalPrefix, DELIMITER, filter, subPrefixes);
+    LOG.info("Listing {} sub-prefixes of {} with {} threads", subPrefixes.size(), finalPrefix,
+        s3SourceV2Keys.getListParallelism());
+    ExecutorService executor = Executors.newFixedThreadPool(s3SourceV2Keys.getListParallelism(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("s3-list-%d").build());
+    try {
+      List<Future<List<S3Object>>> futures = Lists.newArrayList();
+      for (String subPrefix : subPrefixes) {
+        futures.add(executor.submit(() -> listObjects(subPrefix, null, filter, null)));
+      }
+      for (Future<List<S3Object>> future : futures) {
+        objects.addAll(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while listing " + finalPrefix, e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Error listing " + finalPrefix, e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    objects.sort(Comparator.comparing(S3Object::key));
+    return objects;
   }
 
   /**
-   * retrieve a list of objects given a bucket name and a prefix
-   * @return list of object keys
+   * page through the objects under a prefix, and keep the ones passing the filter
+   *
+   * @param prefix the prefix to list
+   * @param delimiter the delimiter to group keys by sub-prefixes, or null to list all keys
+   * @param filter the filter applied to each page as it is received
+   * @param subPrefixes collects the sub-prefixes when a delimiter is given
+   * @return the objects passing the filter
    */
-  private List<String> getFilesList(String finalPrefix) {
-    List<String> files = Lists.newArrayList();
+  private List<S3Object> listObjects(String prefix, String delimiter, Predicate<S3Object> filter,
+      List<String> subPrefixes) {
+    List<S3Object> objects = Lists.newArrayList();
     ListObjectsV2Request.Builder builder =
         ListObjectsV2Request.builder().bucket(s3SourceV2Keys.getBucket()).maxKeys(s3SourceV2Keys.getMaxKeys());
 
-    if (!finalPrefix.isEmpty()) {
-      builder.prefix(finalPrefix);
+    if (!prefix.isEmpty()) {
+      builder.prefix(prefix);
+    }
+    if (delimiter != null) {
+      builder.delimiter(delimiter);
     }
     ListObjectsV2Request request = builder.build();
     ListObjectsV2Response listObjectsV2Response = null;
 
-    LOG.debug("Listing object by prefix: {}", finalPrefix);
+    LOG.debug("Listing object by prefix: {}", prefix);
     do {
       if (listObjectsV2Response != null) {
         request = builder.continuationToken(listObjectsV2Response.continuationToken()).build();
       }
       listObjectsV2Response = s3Client.listObjectsV2(request);
-      listObjectsV2Response.contents().forEach(f -> {
-        files.add(f.key());
-      });
+      for (S3Object object : listObjectsV2Response.contents()) {
+        if (filter.test(object)) {
+          objects.add(object);
+        }
+      }
+      if (subPrefixes != null) {
+        listObjectsV2Response.commonPrefixes().forEach(p -> subPrefixes.add(p.prefix()));
+      }
     } while (listObjectsV2Response.isTruncated());
-    return files;
+    return objects;
   }
 
   public AwsCredentialsProvider getCredentialsProvider(State state) {
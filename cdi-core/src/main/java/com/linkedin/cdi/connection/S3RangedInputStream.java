@@ -0,0 +1,127 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.linkedin.cdi.util.RangedInputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.BytesWrapper;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+
+/**
+ * An InputStream that downloads an S3 object in parts using concurrent ranged GET
+ * requests, and returns the bytes in order.
+ *
+ * At most "parallelism" parts are downloaded ahead of the reader, so the memory used
+ * is bounded by (parallelism + 1) * part size. Each ranged GET is conditioned on
+ * the ETag of the object, so that the download fails if the object is replaced in
+ * the middle of it.
+ *
+ * With a synchronous client, the parts are downloaded by a thread pool; with an async
+ * client, the parts are downloaded by the client's event loops without extra threads.
+ */
+class S3RangedInputStream extends RangedInputStream {
+  private static final Logger LOG = LoggerFactory.getLogger(S3RangedInputStream.class);
+  private final S3Client s3Client;
+  private final S3AsyncClient s3AsyncClient;
+  private final String bucket;
+  private final String key;
+  private final String eTag;
+  private final ExecutorService executor;
+
+  /**
+   * @param s3Client the S3 client, which has to be thread-safe
+   * @param bucket the bucket name
+   * @param key the object key
+   * @param eTag the ETag of the object from a HEAD request, can be null
+   * @param objectSize the size of the object in bytes from a HEAD request
+   * @param partSize the number of bytes downloaded by each ranged GET
+   * @param parallelism the number of concurrent ranged GETs
+   */
+  S3RangedInputStream(S3Client s3Client, String bucket, String key, String eTag,
+      long objectSize, long partSize, int parallelism) {
+    this(s3Client, null, Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("s3-download-%d").build()),
+        bucket, key, eTag, objectSize, partSize, parallelism);
+  }
+
+  /**
+   * @param s3AsyncClient the S3 async client
+   * @param bucket the bucket name
+   * @param key the object key
+   * @param eTag the ETag of the object from a HEAD request, can be null
+   * @param objectSize the size of the object in bytes from a HEAD request
+   * @param partSize the number of bytes downloaded by each ranged GET
+   * @param parallelism the number of in-flight ranged GETs
+   */
+  S3RangedInputStream(S3AsyncClient s3AsyncClient, String bucket, String key, String eTag,
+      long objectSize, long partSize, int parallelism) {
+    this(null, s3AsyncClient, null, bucket, key, eTag, objectSize, partSize, parallelism);
+  }
+
+  private S3RangedInputStream(S3Client s3Client, S3AsyncClient s3AsyncClient, ExecutorService executor,
+      String bucket, String key, String eTag, long objectSize, long partSize, int parallelism) {
+    super(key, objectSize, partSize);
+    this.s3Client = s3Client;
+    this.s3AsyncClient = s3AsyncClient;
+    this.executor = executor;
+    this.bucket = bucket;
+    this.key = key;
+    this.eTag = eTag;
+    LOG.info("Downloading {} bytes from {} in parts of {} bytes with {} {}", objectSize, key, partSize,
+        parallelism, executor == null ? "async requests" : "threads");
+    start(parallelism);
+  }
+
+  @Override
+  protected Future<byte[]> requestPart(long start, long end) {
+    if (executor == null) {
+      return s3AsyncClient.getObject(getPartRequest(start, end), AsyncResponseTransformer.toBytes())
+          .thenApply(BytesWrapper::asByteArray);
+    }
+    return executor.submit(() -> downloadPart(start, end));
+  }
+
+  @Override
+  protected void onClose() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private GetObjectRequest getPartRequest(long start, long end) {
+    GetObjectRequest.Builder builder = GetObjectRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .range(String.format("bytes=%d-%d", start, end));
+    if (eTag != null) {
+      builder.ifMatch(eTag);
+    }
+    return builder.build();
+  }
+
+  private byte[] downloadPart(long start, long end) throws IOException {
+    byte[] part = new byte[(int) (end - start + 1)];
+    try (ResponseInputStream<GetObjectResponse> response =
+        s3Client.getObject(getPartRequest(start, end), ResponseTransformer.toInputStream())) {
+      IOUtils.readFully(response, part);
+    }
+    LOG.debug("Downloaded bytes {}-{} of {}", start, end, key);
+    return part;
+  }
+}
@@ -0,0 +1,192 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.linkedin.cdi.factory.sftp.SftpClient;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A JVM-wide registry of SFTP clients, and therefore their sessions, shared by work units.
+ *
+ * Creating an SFTP client resolves the identity, which can read the private key from HDFS,
+ * and performs an SSH handshake. Work units of the same host, port, user, and credentials
+ * share one client instead. A client is health-checked before it is handed out, and a
+ * disconnected client is replaced by a new one.
+ *
+ * A client is closed when the last work unit releases it, or, if an idle time is given,
+ * after it has not been used for that long, so that work units running one after another
+ * can reuse the session.
+ *
+ * Registry keys include the credentials as configured, which are normally encrypted, so
+ * they are never logged.
+ */
+class SftpClientRegistry {
+  private static final Logger LOG = LoggerFactory.getLogger(SftpClientRegistry.class);
+  private static final Map<String, RegisteredClient> CLIENTS = new HashMap<>();
+  private static final Map<SftpClient, RegisteredClient> REGISTERED = new IdentityHashMap<>();
+  // guards the registry, the reference counts, and the evictor
+  private static final Lock LOCK = new ReentrantLock();
+  // serializes the creation of clients of the same key
+  private static final ConcurrentHashMap<String, Lock> CREATION_LOCKS = new ConcurrentHashMap<>();
+  private static ScheduledExecutorService evictor = null;
+
+  private static class RegisteredClient {
+    private final String key;
+    private final SftpClient client;
+    private final long idleMillis;
+    private int references = 0;
+    private long idleSince = 0;
+
+    private RegisteredClient(String key, SftpClient client, long idleMillis) {
+      this.key = key;
+      this.client = client;
+      this.idleMillis = idleMillis;
+    }
+  }
+
+  private SftpClientRegistry() {
+  }
+
+  /**
+   * Get the connected client of the given key, creating it if it is not registered or
+   * disconnected, and add a reference to it
+   *
+   * The SSH handshake of a new client is done outside of the registry lock, so that work
+   * units of other keys are not blocked by it. Work units of the same key wait for the
+   * handshake, and then share the new client. The locks are not monitors, so that waiting
+   * for a handshake doesn't pin the carrier thread of a virtual thread.
+   *
+   * @param key the registry key
+   * @param idleMillis how long the client stays open after its last release, 0 closes it immediately
+   * @param factory creates the client, it can return null if the client cannot be created
+   * @return the shared client, or null if it cannot be created
+   */
+  static SftpClient acquire(String key, long idleMillis, Supplier<SftpClient> factory) {
+    Lock creationLock = CREATION_LOCKS.computeIfAbsent(key, x -> new ReentrantLock());
+    creationLock.lock();
+    try {
+      LOCK.lock();
+      try {
+        RegisteredClient registered = CLIENTS.get(key);
+        if (registered != null && !registered.client.isConnected()) {
+          LOG.info("Shared SFTP session is disconnected, a new session will be created");
+          CLIENTS.remove(key);
+          if (registered.references == 0) {
+            remove(registered);
+          }
+          registered = null;
+        }
+        if (registered != null) {
+          registered.references++;
+          return registered.client;
+        }
+      } finally {
+        LOCK.unlock();
+      }
+
+      SftpClient client = factory.get();
+      if (client == null) {
+        return null;
+      }
+      LOCK.lock();
+      try {
+        RegisteredClient registered = new RegisteredClient(key, client, idleMillis);
+        CLIENTS.put(key, registered);
+        REGISTERED.put(client, registered);
+        registered.references++;
+        LOG.info("Created shared SFTP session, {} sessions are registered", CLIENTS.size());
+        return client;
+      } finally {
+        LOCK.unlock();
+      }
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  /**
+   * Remove a reference to the client, and close the client if it is no longer used and
+   * it doesn't need to stay open
+   * @param client the client returned by {@link #acquire(String, long, Supplier)}
+   */
+  static void release(SftpClient client) {
+    LOCK.lock();
+    try {
+      RegisteredClient registered = REGISTERED.get(client);
+      if (registered == null || --registered.references > 0) {
+        return;
+      }
+      if (registered.idleMillis <= 0 || CLIENTS.get(registered.key) != registered) {
+        remove(registered);
+      } else {
+        registered.idleSince = System.currentTimeMillis();
+        getEvictor().schedule(SftpClientRegistry::evictIdleClients, registered.idleMillis, TimeUnit.MILLISECONDS);
+      }
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * @param key the registry key
+   * @return the number of references to the client of the given key, -1 if it is not registered
+   */
+  static int getReferences(String key) {
+    LOCK.lock();
+    try {
+      RegisteredClient registered = CLIENTS.get(key);
+      return registered == null ? -1 : registered.references;
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * Close the clients that have not been used for their idle time
+   */
+  static void evictIdleClients() {
+    LOCK.lock();
+    try {
+      long now = System.currentTimeMillis();
+      for (RegisteredClient registered : REGISTERED.values().toArray(new RegisteredClient[0])) {
+        if (registered.references == 0 && now - registered.idleSince >= registered.idleMillis) {
+          remove(registered);
+        }
+      }
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  private static void remove(RegisteredClient registered) {
+    if (CLIENTS.get(registered.key) == registered) {
+      CLIENTS.remove(registered.key);
+    }
+    REGISTERED.remove(registered.client);
+    registered.client.close();
+    LOG.info("Closed shared SFTP session, {} sessions are registered", CLIENTS.size());
+  }
+
+  private static ScheduledExecutorService getEvictor() {
+    if (evictor == null) {
+      evictor = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("sftp-session-evictor").build());
+    }
+    return evictor;
+  }
+}
@@ -4,6 +4,9 @@
 
 package com.linkedin.cdi.connection;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
 import com.linkedin.cdi.exception.RetriableAuthenticationException;
 import com.linkedin.cdi.factory.ConnectionClientFactory;
 import com.linkedin.cdi.factory.sftp.SftpClient;
@@ -16,20 +19,27 @@ import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.lang.StringUtils;
+import org.apache.gobblin.configuration.ConfigurationKeys;
 import org.apache.gobblin.configuration.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+import static com.linkedin.cdi.factory.sftp.PooledSftpChannelClient.KEY_MAX_CHANNELS;
 
 
 public class SftpConnection extends MultistageConnection {
   private static final Logger LOG = LoggerFactory.getLogger(SftpConnection.class);
+  private static final String KEY_SESSION_IDLE_SECONDS = "session_idle_seconds";
 
   final private SftpKeys sftpSourceKeys;
   SftpClient fsClient;
+  // whether fsClient is shared with other work units through the client registry
+  private boolean sharedClient = false;
 
   public SftpConnection(State state, JobKeys jobKeys, ExtractorKeys extractorKeys) {
     super(state, jobKeys, extractorKeys);
@@ -42,11 +52,21 @@ public class SftpConnection extends MultistageConnection {
     return null;
   }
 
+  /**
+   * Close the SFTP client, or release it if it is shared, in which case its session is
+   * closed when no other work unit uses it
+   * @param message not used
+   * @return true
+   */
   @Override
   public boolean closeAll(String message) {
     if (this.fsClient != null) {
-      LOG.info("Shutting down FileSystem connection");
-      this.fsClient.close();
+      LOG.info("Closing FileSystem connection");
+      if (sharedClient) {
+        SftpClientRegistry.release(this.fsClient);
+      } else {
+        this.fsClient.close();
+      }
       fsClient = null;
     }
     return true;
@@ -60,9 +80,6 @@ public class SftpConnection extends MultistageConnection {
   @Override
   public WorkUnitStatus executeFirst(WorkUnitStatus workUnitStatus) throws RetriableAuthenticationException {
     WorkUnitStatus status = super.executeFirst(workUnitStatus);
-    String path = getPath();
-    String finalPrefix = getWorkUnitSpecificString(path, getExtractorKeys().getDynamicParameters());
-    LOG.info("File path found is: " + finalPrefix);
     try {
       if (getFsClient() == null) {
         LOG.error("Error initializing SFTP connection");
@@ -73,12 +90,28 @@ public class SftpConnection extends MultistageConnection {
       return null;
     }
 
+    // when the work unit is made for a single file, download it directly without listing
+    JsonObject activation = getExtractorKeys().getActivationParameters();
+    if (activation.has(KEY_WORD_SFTP_FILE)) {
+      String file = activation.get(KEY_WORD_SFTP_FILE).getAsString();
+      LOG.info("Downloading work unit file: {}", file);
+      try {
+        status.setBuffer(this.fsClient.getFileStream(file));
+      } catch (Exception e) {
+        LOG.error("Error downloading file {}", file, e);
+        return null;
+      }
+      return status;
+    }
+
+    String path = getPath();
+    String finalPrefix = getWorkUnitSpecificString(path, getExtractorKeys().getDynamicParameters());
+    LOG.info("File path found is: " + finalPrefix);
+
     //get List of files matching the pattern
     List<String> files;
     try {
-      files = getFiles(finalPrefix).stream()
-          .filter(objectKey -> objectKey.matches(sftpSourceKeys.getFilesPattern()))
-          .collect(Collectors.toList());
+      files = getMatchedFiles(finalPrefix);
     } catch (Exception e) {
       LOG.error("Error reading file list", e);
       return null;
@@ -105,19 +138,76 @@ public class SftpConnection extends MultistageConnection {
     return status;
   }
 
+  /**
+   * List the files under the path, and filter them by the files pattern
+   * @param finalPrefix the path with all variables substituted
+   * @return the absolute paths of matched files
+   */
+  public List<String> getMatchedFiles(String finalPrefix) {
+    if (getFsClient() == null) {
+      throw new RuntimeException("Error initializing SFTP connection");
+    }
+    Pattern pattern = Pattern.compile(sftpSourceKeys.getFilesPattern());
+    return getFiles(finalPrefix).stream()
+        .filter(file -> pattern.matcher(file).matches())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Get the SFTP client.
+   *
+   * When session_idle_seconds or max_channels is set in ms.source.sftp.parameters, the client
+   * is shared with other work units of the same server and credentials. Otherwise, each work
+   * unit has its own client and session, so that concurrent work units are not limited by
+   * the channels a server allows per session.
+   */
   private SftpClient getFsClient() {
     if (this.fsClient == null) {
-      try {
-        Class<?> factoryClass = Class.forName(MSTAGE_CONNECTION_CLIENT_FACTORY.get(this.getState()));
-        ConnectionClientFactory factory = (ConnectionClientFactory) factoryClass.getDeclaredConstructor().newInstance();
-        this.fsClient = factory.getSftpChannelClient(this.getState());
-      } catch (Exception e) {
-        LOG.error("Error initiating SFTP client", e);
+      JsonObject parameters = MSTAGE_SOURCE_SFTP_PARAMETERS.get(this.getState());
+      sharedClient = parameters.has(KEY_SESSION_IDLE_SECONDS) || parameters.has(KEY_MAX_CHANNELS);
+      if (sharedClient) {
+        long idleMillis = parameters.has(KEY_SESSION_IDLE_SECONDS)
+            ? parameters.get(KEY_SESSION_IDLE_SECONDS).getAsLong() * 1000 : 0;
+        this.fsClient = SftpClientRegistry.acquire(getClientRegistryKey(this.getState()), idleMillis,
+            this::createFsClient);
+      } else {
+        this.fsClient = createFsClient();
       }
     }
     return this.fsClient;
   }
 
+  private SftpClient createFsClient() {
+    try {
+      Class<?> factoryClass = Class.forName(MSTAGE_CONNECTION_CLIENT_FACTORY.get(this.getState()));
+      ConnectionClientFactory factory = (ConnectionClientFactory) factoryClass.getDeclaredConstructor().newInstance();
+      return factory.getSftpChannelClient(this.getState());
+    } catch (Exception e) {
+      LOG.error("Error initiating SFTP client", e);
+      return null;
+    }
+  }
+
+  /**
+   * Clients are shared when they have the same factory, server, user, credentials, and
+   * SFTP settings. The credentials are used as configured, without decryption.
+   *
+   * @param state the state of execution environment
+   * @return the client registry key
+   */
+  String getClientRegistryKey(State state) {
+    return Joiner.on('|').useForNull("").join(Lists.newArrayList(
+        MSTAGE_CONNECTION_CLIENT_FACTORY.get(state),
+        state.getProp(ConfigurationKeys.SOURCE_CONN_HOST_NAME),
+        state.getProp(ConfigurationKeys.SOURCE_CONN_PORT),
+        state.getProp(ConfigurationKeys.SOURCE_CONN_USERNAME),
+        state.getProp(ConfigurationKeys.SOURCE_CONN_PASSWORD),
+        state.getProp(ConfigurationKeys.SOURCE_CONN_PRIVATE_KEY),
+        state.getProp(ConfigurationKeys.SOURCE_CONN_KNOWN_HOSTS),
+        MSTAGE_SFTP_CONN_TIMEOUT_MILLIS.get(state),
+        MSTAGE_SOURCE_SFTP_PARAMETERS.get(state)));
+  }
+
   /**
    * //TODO: List files based on pattern on parent nodes as well.
    * The current version supports pattern only on leaf node.
@@ -0,0 +1,354 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.converter;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.util.JsonElementTypes;
+import com.linkedin.cdi.util.JsonIntermediateSchema;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.converter.Converter;
+import org.apache.gobblin.converter.DataConversionException;
+import org.apache.gobblin.converter.SchemaConversionException;
+import org.apache.gobblin.converter.SingleRecordIterable;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+
+
+/**
+ * JsonToAvroConverter converts records in JsonObject format to Avro GenericRecords, using
+ * the Json Intermediate schema of the records. It can replace Gobblin's JsonIntermediateToAvroConverter
+ * for the Json records of JsonExtractor.
+ *
+ * The schema is compiled once into a tree of writers, one for each field, so that converting
+ * a record doesn't look up the schema:
+ * - each field is written to its position in the Avro record
+ * - the non-null type of a nullable field is resolved when the schema is compiled
+ * - date, time, and timestamp values are parsed by formatters created once,
+ *   see converter.avro.date.format, converter.avro.time.format, and converter.avro.timestamp.format,
+ *   with ISO 8601 as the default format, and values in Json numbers are taken as epoch milliseconds
+ *
+ * When ms.converter.reuse.records is true, the output record, and its nested records and arrays,
+ * are reused for the next record. That is only safe when the output record is written before the
+ * next record is converted, and no later converter keeps the output record.
+ */
+public class JsonToAvroConverter extends Converter<JsonArray, Schema, JsonObject, GenericRecord> {
+  private DateTimeZone timezone;
+  private List<DateTimeFormatter> dateFormatters;
+  private List<DateTimeFormatter> timeFormatters;
+  private List<DateTimeFormatter> timestampFormatters;
+  private boolean reuseRecords;
+  private ValueWriter recordWriter;
+  private GenericRecord reusedRecord = null;
+
+  /**
+   * Converts a Json value to an Avro value
+   */
+  @FunctionalInterface
+  private interface Conversion {
+    /**
+     * @param value the non-null Json value
+     * @param reuse the previous Avro value that can be reused, or null
+     * @return the Avro value
+     */
+    Object convert(JsonElement value, Object reuse) throws DataConversionException;
+  }
+
+  /**
+   * A compiled Avro type, and the conversion of Json values to the type
+   */
+  private static class ValueWriter {
+    private final Schema schema;
+    private final Conversion conversion;
+
+    private ValueWriter(Schema schema, Conversion conversion) {
+      this.schema = schema;
+      this.conversion = conversion;
+    }
+  }
+
+  /**
+   * A compiled field of a record
+   */
+  private static class FieldWriter {
+    private final String name;
+    private final int position;
+    private final boolean isNullable;
+    private final ValueWriter writer;
+
+    private FieldWriter(String name, int position, boolean isNullable, ValueWriter writer) {
+      this.name = name;
+      this.position = position;
+      this.isNullable = isNullable;
+      this.writer = writer;
+    }
+  }
+
+  @Override
+  public Converter<JsonArray, Schema, JsonObject, GenericRecord> init(WorkUnitState workUnit) {
+    timezone = DateTimeZone.forID(CONVERTER_AVRO_DATE_TIMEZONE.get(workUnit));
+    dateFormatters = getFormatters(CONVERTER_AVRO_DATE_FORMAT.get(workUnit));
+    timeFormatters = getFormatters(CONVERTER_AVRO_TIME_FORMAT.get(workUnit));
+    timestampFormatters = getFormatters(CONVERTER_AVRO_TIMESTAMP_FORMAT.get(workUnit));
+    reuseRecords = MSTAGE_CONVERTER_REUSE_RECORDS.get(workUnit);
+    return this;
+  }
+
+  @Override
+  public Schema convertSchema(JsonArray inputSchema, WorkUnitState workUnit) throws SchemaConversionException {
+    try {
+      recordWriter = compileRecord(new JsonIntermediateSchema(inputSchema),
+          workUnit.getExtract().getTable(), workUnit.getExtract().getNamespace());
+    } catch (RuntimeException e) {
+      throw new SchemaConversionException("Cannot convert schema: " + inputSchema.toString(), e);
+    }
+    return recordWriter.schema;
+  }
+
+  @Override
+  public Iterable<GenericRecord> convertRecord(Schema outputSchema, JsonObject inputRecord, WorkUnitState workUnit)
+      throws DataConversionException {
+    GenericRecord record = (GenericRecord) recordWriter.conversion.convert(inputRecord,
+        reuseRecords ? reusedRecord : null);
+    reusedRecord = record;
+    return new SingleRecordIterable<>(record);
+  }
+
+  /**
+   * Compile a record schema, the fields are compiled in the order of the schema
+   * @param schema the Json Intermediate schema of the record
+   * @param name the record name
+   * @param namespace the record namespace
+   * @return the record writer
+   */
+  private ValueWriter compileRecord(JsonIntermediateSchema schema, String name, String namespace)
+      throws SchemaConversionException {
+    Schema recordSchema = Schema.createRecord(name, null, StringUtils.defaultIfBlank(namespace, null), false);
+    // nested records are in the namespace of the parent record, so that their names don't collide
+    String childNamespace = recordSchema.getFullName();
+    List<Schema.Field> fields = new ArrayList<>();
+    List<FieldWriter> fieldWriters = new ArrayList<>();
+    for (JsonIntermediateSchema.JisColumn column : schema.getColumns().values()) {
+      ValueWriter writer = compile(column.getDataType(), column.getColumnName(), childNamespace);
+      boolean isNullable = column.getIsNullable() || column.getDataType().getType().isNullable();
+      fields.add(isNullable
+          ? new Schema.Field(column.getColumnName(), nullable(writer.schema), null, JsonProperties.NULL_VALUE)
+          : new Schema.Field(column.getColumnName(), writer.schema, null, (Object) null));
+      fieldWriters.add(new FieldWriter(column.getColumnName(), fieldWriters.size(), isNullable, writer));
+    }
+    recordSchema.setFields(fields);
+    FieldWriter[] writers = fieldWriters.toArray(new FieldWriter[0]);
+
+    return new ValueWriter(recordSchema, (value, reuse) -> {
+      if (!value.isJsonObject()) {
+        throw new DataConversionException("Expecting a Json object for record " + name + ", but got: " + value);
+      }
+      JsonObject object = value.getAsJsonObject();
+      GenericData.Record record = reuse instanceof GenericData.Record
+          ? (GenericData.Record) reuse : new GenericData.Record(recordSchema);
+      for (FieldWriter field : writers) {
+        record.put(field.position, write(field, object.get(field.name), record.get(field.position)));
+      }
+      return record;
+    });
+  }
+
+  /**
+   * Write a field value
+   * @param field the compiled field
+   * @param value the Json value, which can be null if the field is absent
+   * @param reuse the previous Avro value of the field
+   * @return the Avro value
+   */
+  private Object write(FieldWriter field, JsonElement value, Object reuse) throws DataConversionException {
+    if (value == null || value.isJsonNull()) {
+      if (field.isNullable) {
+        return null;
+      }
+      throw new DataConversionException("Field " + field.name + " is not nullable, but the value is null");
+    }
+    try {
+      return field.writer.conversion.convert(value, reuse);
+    } catch (RuntimeException e) {
+      throw new DataConversionException("Cannot convert field " + field.name + " value: " + value, e);
+    }
+  }
+
+  /**
+   * Compile a data type
+   * @param dataType the Json Intermediate data type
+   * @param name the column name, which names records and enums
+   * @param namespace the namespace of records and enums
+   * @return the compiled writer
+   */
+  private ValueWriter compile(JsonIntermediateSchema.JisDataType dataType, String name, String namespace)
+      throws SchemaConversionException {
+    JsonElementTypes type = dataType.getType();
+    switch (type) {
+      case RECORD:
+      case NULLABLERECORD:
+        if (dataType.getChildRecord() == null) {
+          throw new SchemaConversionException("Record " + name + " has no fields");
+        }
+        return compileRecord(dataType.getChildRecord(), name, namespace);
+      case ARRAY:
+      case NULLABLEARRAY:
+        return compileArray(dataType.getItemType(), name, namespace);
+      case ENUM:
+        return compileEnum(dataType.getSymbols(), StringUtils.defaultIfBlank(dataType.getName(), name), namespace);
+      case STRING:
+      case NULLABLESTRING:
+      case PRIMITIVE:
+      case UNKNOWN:
+        return new ValueWriter(Schema.create(Schema.Type.STRING),
+            (value, reuse) -> value.isJsonPrimitive() ? value.getAsString() : value.toString());
+      case INT:
+      case INTEGER:
+      case NULLABLEINT:
+        return new ValueWriter(Schema.create(Schema.Type.INT), (value, reuse) -> value.getAsInt());
+      case LONG:
+      case INT64:
+      case NULLABLELONG:
+        return new ValueWriter(Schema.create(Schema.Type.LONG), (value, reuse) -> value.getAsLong());
+      case DOUBLE:
+      case FLOAT:
+      case NUMBER:
+      case NULLABLEDOUBLE:
+        return new ValueWriter(Schema.create(Schema.Type.DOUBLE), (value, reuse) -> value.getAsDouble());
+      case BOOLEAN:
+      case NULLABLEBOOLEAN:
+        return new ValueWriter(Schema.create(Schema.Type.BOOLEAN), (value, reuse) -> value.getAsBoolean());
+      case DATE:
+        return compileDateTime(dateFormatters);
+      case TIME:
+      case NULLABLETIME:
+        return compileDateTime(timeFormatters);
+      case TIMESTAMP:
+      case NULLABLETIMESTAMP:
+        return compileDateTime(timestampFormatters);
+      case NULL:
+        return new ValueWriter(Schema.create(Schema.Type.NULL), (value, reuse) -> null);
+      default:
+        throw new SchemaConversionException("Unsupported type " + type + " of column " + name);
+    }
+  }
+
+  /**
+   * Compile an array type, the array and its items are reused when the previous array is passed
+   */
+  @SuppressWarnings("unchecked")
+  private ValueWriter compileArray(JsonIntermediateSchema.JisDataType itemType, String name, String namespace)
+      throws SchemaConversionException {
+    ValueWriter itemWriter = compile(itemType, name, namespace);
+    boolean isNullable = itemType.getType().isNullable();
+    FieldWriter item = new FieldWriter(name, 0, isNullable, itemWriter);
+    Schema arraySchema = Schema.createArray(isNullable ? nullable(itemWriter.schema) : itemWriter.schema);
+
+    return new ValueWriter(arraySchema, (value, reuse) -> {
+      JsonArray items = value.getAsJsonArray();
+      GenericData.Array<Object> array;
+      if (reuse instanceof GenericData.Array) {
+        array = (GenericData.Array<Object>) reuse;
+        array.clear();
+      } else {
+        array = new GenericData.Array<>(items.size(), arraySchema);
+      }
+      for (JsonElement element : items) {
+        array.add(write(item, element, array.peek()));
+      }
+      return array;
+    });
+  }
+
+  /**
+   * Compile an enum type, the enum symbols are created once
+   */
+  private ValueWriter compileEnum(JsonArray symbols, String name, String namespace) {
+    List<String> symbolList = new ArrayList<>();
+    for (JsonElement symbol : symbols) {
+      symbolList.add(symbol.getAsString());
+    }
+    Schema enumSchema = Schema.createEnum(name, null, namespace, symbolList);
+    Map<String, GenericData.EnumSymbol> enumSymbols = new HashMap<>();
+    for (String symbol : symbolList) {
+      enumSymbols.put(symbol, new GenericData.EnumSymbol(enumSchema, symbol));
+    }
+
+    return new ValueWriter(enumSchema, (value, reuse) -> {
+      GenericData.EnumSymbol symbol = enumSymbols.get(value.getAsString());
+      if (symbol == null) {
+        throw new DataConversionException("Value " + value + " is not a symbol of enum " + name);
+      }
+      return symbol;
+    });
+  }
+
+  /**
+   * Compile a date, time, or timestamp type into epoch milliseconds. Json numbers are
+   * taken as epoch milliseconds, and strings are parsed by the formatters in order,
+   * starting from the formatter that parsed the previous value
+   */
+  private ValueWriter compileDateTime(List<DateTimeFormatter> formatters) {
+    int[] lastParsed = {0};
+    return new ValueWriter(Schema.create(Schema.Type.LONG), (value, reuse) -> {
+      if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber()) {
+        return value.getAsLong();
+      }
+      String text = value.getAsString();
+      for (int i = 0; i < formatters.size(); i++) {
+        int index = (lastParsed[0] + i) % formatters.size();
+        try {
+          long millis = formatters.get(index).parseMillis(text);
+          lastParsed[0] = index;
+          return millis;
+        } catch (IllegalArgumentException e) {
+          // try the next format
+        }
+      }
+      throw new DataConversionException("Cannot parse date time value " + text);
+    });
+  }
+
+  /**
+   * Create formatters of a comma separated list of formats
+   * @param formats the formats, ISO 8601 is used if blank
+   * @return the formatters in the time zone of the converter
+   */
+  private List<DateTimeFormatter> getFormatters(String formats) {
+    List<DateTimeFormatter> formatters = new ArrayList<>();
+    if (StringUtils.isBlank(formats)) {
+      formatters.add(ISODateTimeFormat.dateTimeParser().withZone(timezone));
+    } else {
+      for (String format : formats.split(",")) {
+        formatters.add(DateTimeFormat.forPattern(format.trim()).withZone(timezone));
+      }
+    }
+    return formatters;
+  }
+
+  private static Schema nullable(Schema schema) {
+    if (schema.getType() == Schema.Type.NULL) {
+      return schema;
+    }
+    List<Schema> types = new ArrayList<>();
+    types.add(Schema.create(Schema.Type.NULL));
+    types.add(schema);
+    return Schema.createUnion(types);
+  }
+}
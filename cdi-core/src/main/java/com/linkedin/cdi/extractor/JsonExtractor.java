@@ -616,6 +616,18 @@ public class JsonExtractor extends MultistageExtractor<JsonArray, JsonObject> {
     return jsonExtractorKeys.getJsonElementIterator() == null;
   }
 
+  /**
+   * Restore the page number as well, because the next page number is derived from it
+   * when the response doesn't have a page number
+   *
+   * @param checkpoint the checkpoint saved by a previous run of the work unit
+   */
+  @Override
+  protected void restoreCheckpoint(JsonObject checkpoint) {
+    super.restoreCheckpoint(checkpoint);
+    jsonExtractorKeys.setCurrentPageNumber(checkpoint.get(CHECKPOINT_PAGES).getAsLong());
+  }
+
   /**
    * Add condition to allow total row count can be used to control pagination.
    *
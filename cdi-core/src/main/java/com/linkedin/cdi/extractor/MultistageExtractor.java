@@ -9,13 +9,16 @@ import com.google.common.collect.ImmutableList;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.linkedin.cdi.connection.MultistageConnection;
 import com.linkedin.cdi.exception.RetriableAuthenticationException;
 import com.linkedin.cdi.filter.JsonSchemaBasedFilter;
 import com.linkedin.cdi.filter.MultistageSchemaBasedFilter;
 import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.JobKeys;
+import com.linkedin.cdi.preprocessor.InputStreamProcessor;
 import com.linkedin.cdi.preprocessor.StreamProcessor;
+import com.linkedin.cdi.util.AdmissionController;
 import com.linkedin.cdi.util.DateTimeUtils;
 import com.linkedin.cdi.util.EncryptionUtils;
 import com.linkedin.cdi.util.HdfsReader;
@@ -24,22 +27,25 @@ import com.linkedin.cdi.util.JsonIntermediateSchema;
 import com.linkedin.cdi.util.JsonParameter;
 import com.linkedin.cdi.util.JsonUtils;
 import com.linkedin.cdi.util.ParameterTypes;
+import com.linkedin.cdi.util.PipelinedInputStream;
 import com.linkedin.cdi.util.SchemaBuilder;
+import com.linkedin.cdi.util.VariableTemplate;
 import com.linkedin.cdi.util.VariableUtils;
 import com.linkedin.cdi.util.WorkUnitStatus;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.validator.routines.LongValidator;
 import org.apache.gobblin.configuration.ConfigurationKeys;
 import org.apache.gobblin.configuration.State;
@@ -76,7 +82,16 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
   protected final static List<String> SUPPORTED_DERIVED_FIELD_TYPES =
       Arrays.asList(KEY_WORD_EPOC, KEY_WORD_STRING, KEY_WORD_REGEXP, KEY_WORD_BOOLEAN, KEY_WORD_INTEGER, KEY_WORD_NUMBER);
   protected static final String COMMA_STR = ",";
+  // the size of each buffer between pipelined stages
+  protected static final int PIPELINE_BUFFER_SIZE = 64 * 1024;
   protected final static String DEFAULT_TIMEZONE = "America/Los_Angeles";
+  // attributes of a work unit checkpoint, besides the "low" and "high" watermarks and
+  // KEY_WORD_CHECKPOINT_RECORDS, which is also read by the source
+  protected static final String CHECKPOINT_PAGES = "pages";
+  protected static final String CHECKPOINT_PAGE_START = "pageStart";
+  protected static final String CHECKPOINT_PAGE_SIZE = "pageSize";
+  protected static final String CHECKPOINT_PAGE_NUMBER = "pageNumber";
+  protected static final String CHECKPOINT_SESSION_KEY = "sessionKey";
 
   protected String timezone = "";
   protected WorkUnitStatus workUnitStatus = WorkUnitStatus.builder().build();
@@ -88,6 +103,13 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
   protected Iterator<JsonElement> payloadIterator = null;
   ExtractorKeys extractorKeys = new ExtractorKeys();
   JsonObject currentParameters = null;
+  // the admission of this work unit when the number of concurrent work units is limited
+  private AdmissionController admission = null;
+  // the number of pages fetched by the work unit, including pages fetched before a checkpoint it resumed from
+  private long pagesFetched = 0;
+  private boolean checkpointChecked = false;
+  // compiled templates of ms.parameters and derived fields, they don't change within a work unit
+  Map<String, VariableTemplate> parameterTemplates = new HashMap<>();
   MultistageConnection connection = null;
   JobKeys jobKeys;
 
@@ -222,6 +244,12 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
     Preconditions.checkNotNull(state.getWorkunit().getLowWatermark(), MSG_LOW_WATER_MARK_ALWAYS);
     if (state.getWorkingState().equals(WorkUnitState.WorkingState.SUCCESSFUL)) {
       state.setActualHighWatermark(state.getWorkunit().getExpectedHighWatermark(LongWatermark.class));
+
+      // record the statistics of the work unit, so that the next run can size work units
+      state.setProp(KEY_WORD_WORK_UNIT_ROWS, extractorKeys.getProcessedCount());
+      state.setProp(KEY_WORD_WORK_UNIT_DURATION, DateTime.now().getMillis()
+          - Math.max(extractorKeys.getStartTime(), extractorKeys.getDelayStartTime()));
+      state.removeProp(KEY_WORD_WORK_UNIT_CHECKPOINT);
     } else if (state.getActualHighWatermark() == null) {
       // Set the actual high watermark to low watermark explicitly,
       // replacing the implicit behavior in state.getActualHighWatermark(LongWatermark.class)
@@ -232,6 +260,11 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
     if (connection != null) {
       connection.closeAll(StringUtils.EMPTY);
     }
+
+    if (admission != null) {
+      admission.release();
+      admission = null;
+    }
   }
 
   /**
@@ -243,20 +276,28 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
    * @return false if no more data to be pulled or an significant error that requires early job termination
    */
   protected boolean processInputStream(long starting) {
-    holdExecutionUnitPresetStartTime();
+    if (!holdExecutionUnitPresetStartTime()) {
+      return false;
+    }
 
     if (isWorkUnitCompleted(starting)) {
       return false;
     }
 
-    currentParameters = isFirst(starting) ? getInitialWorkUnitParameters() : getCurrentWorkUnitParameters();
+    // a work unit resuming from a checkpoint starts with the page after the checkpoint
+    boolean first = isFirst(starting) && !resumeFromCheckpoint();
+    if (!first) {
+      saveCheckpoint();
+    }
+
+    currentParameters = first ? getInitialWorkUnitParameters() : getCurrentWorkUnitParameters();
     extractorKeys.setDynamicParameters(currentParameters);
 
     WorkUnitStatus updatedStatus = null;
     long retryies = Math.max(jobKeys.getRetryCount(), 1);
     while (retryies > 0) {
       try {
-        updatedStatus = connection == null ? null : isFirst(starting) ? connection.executeFirst(this.workUnitStatus)
+        updatedStatus = connection == null ? null : first ? connection.executeFirst(this.workUnitStatus)
             : connection.executeNext(this.workUnitStatus);
         retryies = 0;
       } catch (RetriableAuthenticationException e) {
@@ -269,9 +310,12 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
       this.failWorkUnit("Received a NULL WorkUnitStatus, fail the work unit");
       return false;
     }
+    pagesFetched++;
+
     // update work unit status
     workUnitStatus.setBuffer(updatedStatus.getBuffer());
     workUnitStatus.setMessages(updatedStatus.getMessages());
+    workUnitStatus.setHeaders(updatedStatus.getHeaders());
     workUnitStatus.setSessionKey(getSessionKey(updatedStatus));
 
     // update extractor key
@@ -285,6 +329,71 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
     return true;
   }
 
+  /**
+   * Save a checkpoint in the work unit state every ms.work.unit.checkpoint.pages pages, before
+   * requesting the next page. All records of the pages fetched so far have been processed at
+   * this point. A failed work unit state keeps its last checkpoint, which the next run passes
+   * to the retried work unit, so that it can resume from the checkpoint.
+   */
+  private void saveCheckpoint() {
+    int interval = MSTAGE_WORK_UNIT_CHECKPOINT_PAGES.get(state);
+    if (interval <= 0 || pagesFetched == 0 || pagesFetched % interval != 0) {
+      return;
+    }
+    JsonObject checkpoint = getWorkUnitWaterMarks();
+    checkpoint.addProperty(CHECKPOINT_PAGES, pagesFetched);
+    checkpoint.addProperty(KEY_WORD_CHECKPOINT_RECORDS, extractorKeys.getProcessedCount());
+    checkpoint.addProperty(CHECKPOINT_PAGE_START, workUnitStatus.getPageStart());
+    checkpoint.addProperty(CHECKPOINT_PAGE_SIZE, workUnitStatus.getPageSize());
+    checkpoint.addProperty(CHECKPOINT_PAGE_NUMBER, workUnitStatus.getPageNumber());
+    checkpoint.addProperty(CHECKPOINT_SESSION_KEY, workUnitStatus.getSessionKey());
+    state.setProp(KEY_WORD_WORK_UNIT_CHECKPOINT, checkpoint.toString());
+    LOG.info("Saved checkpoint of work unit {} after {} pages and {} records",
+        extractorKeys.getSignature(), pagesFetched, extractorKeys.getProcessedCount());
+  }
+
+  /**
+   * Restore the pagination status from the checkpoint passed to the work unit, if any. The
+   * checkpoint is only checked before the first request of the work unit.
+   *
+   * @return true if the work unit resumes from a checkpoint
+   */
+  private boolean resumeFromCheckpoint() {
+    if (checkpointChecked) {
+      return false;
+    }
+    checkpointChecked = true;
+    String checkpoint = state.getProp(KEY_WORD_WORK_UNIT_CHECKPOINT);
+    if (StringUtils.isBlank(checkpoint)) {
+      return false;
+    }
+    try {
+      restoreCheckpoint(new JsonParser().parse(checkpoint).getAsJsonObject());
+    } catch (Exception e) {
+      LOG.warn("Ignoring invalid checkpoint {}: {}", checkpoint, e.getMessage());
+      return false;
+    }
+    LOG.info("Resuming work unit {} after {} pages and {} records",
+        extractorKeys.getSignature(), pagesFetched, extractorKeys.getProcessedCount());
+    return true;
+  }
+
+  /**
+   * Restore the status of the work unit from a checkpoint, subclasses can override it to
+   * restore their own pagination status
+   *
+   * @param checkpoint the checkpoint saved by a previous run of the work unit
+   */
+  protected void restoreCheckpoint(JsonObject checkpoint) {
+    pagesFetched = checkpoint.get(CHECKPOINT_PAGES).getAsLong();
+    extractorKeys.setProcessedCount(checkpoint.get(KEY_WORD_CHECKPOINT_RECORDS).getAsLong());
+    workUnitStatus.setPageStart(checkpoint.get(CHECKPOINT_PAGE_START).getAsLong())
+        .setPageSize(checkpoint.get(CHECKPOINT_PAGE_SIZE).getAsLong())
+        .setPageNumber(checkpoint.get(CHECKPOINT_PAGE_NUMBER).getAsLong())
+        .setSessionKey(checkpoint.get(CHECKPOINT_SESSION_KEY).getAsString());
+    extractorKeys.setSessionKeyValue(workUnitStatus.getSessionKey());
+  }
+
   /**
    * Initialize row filter; by default, json schema based filter is used
    * @param schemaArray schema array
@@ -348,17 +457,65 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
 
   /**
    *  a utility method to wait for its turn when multiple work units were started at the same time
+   *
+   *  When ms.work.unit.concurrency.max is set, the work unit is admitted by the job's admission
+   *  controller, which starts it as soon as a running work unit finishes. Otherwise, the work unit
+   *  waits until its preset start time.
+   *
+   *  @return false if the work unit is interrupted before it is admitted, and the work unit is failed
    */
-  protected void holdExecutionUnitPresetStartTime() {
-    if (extractorKeys.getDelayStartTime() != 0) {
-      while (DateTime.now().getMillis() < extractorKeys.getDelayStartTime()) {
+  protected boolean holdExecutionUnitPresetStartTime() {
+    if (MSTAGE_WORK_UNIT_CONCURRENCY_MAX.get(state) > 0) {
+      if (admission == null) {
         try {
-          Thread.sleep(100L);
-        } catch (Exception e) {
-          LOG.warn(e.getMessage());
+          admission = AdmissionController.admit(
+              state.getProp(ConfigurationKeys.JOB_ID_KEY, JOB_NAME.get(state)),
+              MSTAGE_WORK_UNIT_CONCURRENCY_MAX.get(state),
+              MSTAGE_WORK_UNIT_PACING_SECONDS.getMillis(state));
+          extractorKeys.setStartTime(DateTime.now().getMillis());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          failWorkUnit("Interrupted while waiting for admission: " + e.getMessage());
+          return false;
         }
       }
+      return true;
+    }
+
+    long wait = extractorKeys.getDelayStartTime() - DateTime.now().getMillis();
+    if (wait > 0) {
+      try {
+        Thread.sleep(wait);
+      } catch (Exception e) {
+        LOG.warn(e.getMessage());
+      }
     }
+    return true;
+  }
+
+  /**
+   * Apply the input stream preprocessors, like decryption and decompression, to the input stream.
+   *
+   * When ms.extract.pipeline.buffers is set, the input stream and the output of each preprocessor
+   * are read on separate threads through bounded buffers, so that downloading, preprocessing and
+   * parsing overlap.
+   *
+   * @param input the input stream from the connection
+   * @return the preprocessed input stream
+   * @throws IOException if a preprocessor cannot read the input stream
+   */
+  protected InputStream applyPreprocessors(InputStream input) throws IOException {
+    int buffers = MSTAGE_EXTRACT_PIPELINE_BUFFERS.get(state);
+    InputStream output = buffers > 0 ? new PipelinedInputStream(input, buffers, PIPELINE_BUFFER_SIZE) : input;
+    for (StreamProcessor<?> transformer : extractorKeys.getPreprocessors()) {
+      if (transformer instanceof InputStreamProcessor) {
+        output = ((InputStreamProcessor) transformer).process(output);
+        if (buffers > 0) {
+          output = new PipelinedInputStream(output, buffers, PIPELINE_BUFFER_SIZE);
+        }
+      }
+    }
+    return output;
   }
 
   /**
@@ -609,11 +766,11 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
    * @return the session key in the headers
    */
   protected String getSessionKey(WorkUnitStatus wuStatus) {
-    if (wuStatus.getMessages() != null && wuStatus.getMessages().containsKey("headers")
+    if (wuStatus.getHeaders() != null
         && jobKeys.getSessionKeyField() != null && jobKeys.getSessionKeyField().has("name")) {
-      JsonObject headers = GSON.fromJson(wuStatus.getMessages().get("headers"), JsonObject.class);
-      if (headers.has(this.jobKeys.getSessionKeyField().get("name").getAsString())) {
-        return headers.get(this.jobKeys.getSessionKeyField().get("name").getAsString()).getAsString();
+      String sessionKey = wuStatus.getHeaders().get(this.jobKeys.getSessionKeyField().get("name").getAsString());
+      if (sessionKey != null) {
+        return sessionKey;
       }
     }
     return StringUtils.EMPTY;
@@ -664,6 +821,8 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
    */
   protected boolean waitingBySessionKeyWithTimeout() {
     if (!jobKeys.isSessionStateEnabled() || isSessionStateMatch()) {
+      // the wait is over, the next wait, if any, starts its backoff from the beginning
+      extractorKeys.setSessionWaitCount(0);
       return true;
     }
 
@@ -681,7 +840,9 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
       throw new RuntimeException("Session timed out before ending condition is met");
     }
 
-    // return false to indicate wait should continue
+    // return false to indicate wait should continue, the next check
+    // will be delayed by the backoff strategy, see ms.wait.backoff
+    extractorKeys.incrSessionWaitCount();
     return false;
   }
 
@@ -713,11 +874,16 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
    * 1. if session state control is enabled, then check if session stop condition is met or if timeout
    * 2. otherwise, check if pagination is enabled
    *
+   * A new page is always requested if the connection has more streams, like more files.
+   *
    * Sub-classes should further refine the new page condition.
    *
    * @return true if a new page should be requested
    */
   protected boolean hasNextPage() {
+    if (connection != null && connection.hasNextStream()) {
+      return true;
+    }
     try {
       if (jobKeys.isSessionStateEnabled()) {
         return !waitingBySessionKeyWithTimeout();
@@ -738,7 +904,7 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
   protected String replaceVariable(String variableString) {
     String finalString = "";
     try {
-      finalString = VariableUtils.replaceWithTracking(variableString, currentParameters, false).getKey();
+      finalString = VariableTemplate.compile(variableString, parameterTemplates).render(currentParameters, false);
     } catch (IOException e) {
       failWorkUnit("Invalid parameter " + variableString);
     }
@@ -830,25 +996,25 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
    * @return the replaced parameter object
    */
   JsonObject replaceVariablesInParameters(final JsonObject parameters) {
-    JsonObject parametersCopy = JsonUtils.deepCopy(parameters).getAsJsonObject();
-    JsonObject finalParameter = JsonUtils.deepCopy(parameters).getAsJsonObject();
+    JsonObject finalParameter;
     try {
-      Pair<String, JsonObject> replaced =
-          VariableUtils.replaceWithTracking(parameters.toString(), parametersCopy, false);
-      finalParameter = GSON.fromJson(replaced.getKey(), JsonObject.class);
+      Set<String> usedVariables = new HashSet<>();
+      finalParameter = VariableUtils.replace(parameters, parameters, false, parameterTemplates, usedVariables)
+          .getAsJsonObject();
 
       // for each parameter in the original parameter list, if the name of the parameter
       // name starts with "tmp" and the parameter was used once in this substitution operation,
       // then it shall be removed from the final list
       for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
-        if (entry.getKey().matches("tmp.*") && !replaced.getRight().has(entry.getKey())) {
+        if (entry.getKey().startsWith("tmp") && usedVariables.contains(entry.getKey())) {
           finalParameter.remove(entry.getKey());
         }
       }
     } catch (Exception e) {
       LOG.error("Encoding error is not expected, but : {}", e.getMessage());
+      finalParameter = JsonUtils.deepCopy(parameters).getAsJsonObject();
     }
-    LOG.debug("Final parameters: {}", finalParameter.toString());
+    LOG.debug("Final parameters: {}", finalParameter);
     return finalParameter;
   }
 
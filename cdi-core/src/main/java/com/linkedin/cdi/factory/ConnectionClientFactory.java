@@ -8,12 +8,17 @@ import com.jcraft.jsch.Session;
 import com.linkedin.cdi.factory.reader.SchemaReader;
 import com.linkedin.cdi.factory.sftp.SftpChannelClient;
 import com.linkedin.cdi.factory.sftp.SftpClient;
+import io.netty.channel.ChannelOption;
 import java.sql.Connection;
 import org.apache.gobblin.configuration.State;
 import org.apache.http.client.HttpClient;
 import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.utils.AttributeMap;
 
+import static software.amazon.awssdk.http.SdkHttpConfigurationOption.*;
+
 
 /**
  * The interface for dynamic client creation based on environment
@@ -34,6 +39,27 @@ public interface ConnectionClientFactory {
    */
   SdkHttpClient getS3Client(State state, AttributeMap config);
 
+  /**
+   * Initiate an S3 async HTTP client, the concurrency and the pending connection
+   * acquires are bounded by the given S3 parameters
+   *
+   * The default is a Netty client, so that existing factories need not implement it.
+   *
+   * @param state the state of execution environment
+   * @param config S3 parameters
+   * @return an S3 async HTTP client object
+   */
+  default SdkAsyncHttpClient getS3AsyncClient(State state, AttributeMap config) {
+    NettyNioAsyncHttpClient.Builder builder = NettyNioAsyncHttpClient.builder()
+        .connectionTimeout(config.get(CONNECTION_TIMEOUT))
+        .maxConcurrency(config.get(MAX_CONNECTIONS))
+        .maxPendingConnectionAcquires(config.get(MAX_PENDING_CONNECTION_ACQUIRES));
+    if (config.containsKey(S3ClientOption.READ_BUFFER_SIZE)) {
+      builder.putChannelOption(ChannelOption.SO_RCVBUF, config.get(S3ClientOption.READ_BUFFER_SIZE));
+    }
+    return builder.build();
+  }
+
   /**
    * Initiate a JDBC Connection
    * @param jdbcUrl plain or encrypted URL
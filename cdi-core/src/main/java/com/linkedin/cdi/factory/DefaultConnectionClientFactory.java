@@ -6,7 +6,7 @@ package com.linkedin.cdi.factory;
 
 import com.linkedin.cdi.factory.reader.JsonFileReader;
 import com.linkedin.cdi.factory.reader.SchemaReader;
-import com.linkedin.cdi.factory.sftp.SftpChannelClient;
+import com.linkedin.cdi.factory.sftp.PooledSftpChannelClient;
 import com.linkedin.cdi.factory.sftp.SftpClient;
 import com.linkedin.cdi.util.EncryptionUtils;
 import java.sql.Connection;
@@ -51,6 +51,7 @@ public class DefaultConnectionClientFactory implements ConnectionClientFactory {
         .connectionTimeout(config.get(CONNECTION_TIMEOUT))
         .build();
   }
+
   /**
    * Initiate a JDBC Connection
    * @param jdbcUrl plain or encrypted URL
@@ -79,7 +80,7 @@ public class DefaultConnectionClientFactory implements ConnectionClientFactory {
    */
   @Override
   public SftpClient getSftpChannelClient(State state) {
-    return new SftpChannelClient(state);
+    return PooledSftpChannelClient.create(state);
   }
 
   /**
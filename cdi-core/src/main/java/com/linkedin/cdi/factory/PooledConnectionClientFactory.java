@@ -0,0 +1,76 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.gobblin.configuration.State;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+
+
+/**
+ * This implementation shares persistent HTTP connections among all HttpConnection
+ * instances, i.e. all work units and all pages, running in the same JVM.
+ *
+ * With the default factory, each work unit opens its own connections, and each
+ * connection needs a new TCP and TLS handshake. With this factory, requests to
+ * the same host reuse the kept-alive connections in a shared pool, and the number
+ * of connections per host is capped by ms.http.conn.per.route.max, and the total
+ * number of connections is capped by ms.http.conn.max.
+ *
+ * Closing an HTTP client produced by this factory doesn't close the shared pool;
+ * idle connections are evicted after ms.http.conn.ttl.seconds.
+ *
+ */
+public class PooledConnectionClientFactory extends DefaultConnectionClientFactory {
+  private static final Logger LOG = LoggerFactory.getLogger(PooledConnectionClientFactory.class);
+  private static final Map<String, PoolingHttpClientConnectionManager> POOLS = new ConcurrentHashMap<>();
+
+  /**
+   * Initiate an HTTP client backed by the shared connection pool
+   * @param state the State of execution environment
+   * @return an HTTP client object
+   */
+  @Override
+  public HttpClient getHttpClient(State state) {
+    return HttpClientBuilder.create()
+        .setConnectionManager(getConnectionManager(state))
+        .setConnectionManagerShared(true)
+        .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+        .build();
+  }
+
+  /**
+   * Get the shared connection pool, work units with the same pool settings share the same pool
+   * @param state the State of execution environment
+   * @return the shared connection manager
+   */
+  PoolingHttpClientConnectionManager getConnectionManager(State state) {
+    int ttlSeconds = MSTAGE_HTTP_CONN_TTL_SECONDS.get(state);
+    int maxPerRoute = MSTAGE_HTTP_CONN_PER_ROUTE_MAX.get(state);
+    int maxTotal = MSTAGE_HTTP_CONN_MAX.get(state);
+    String poolKey = String.format("%d:%d:%d", ttlSeconds, maxPerRoute, maxTotal);
+    return POOLS.computeIfAbsent(poolKey, key -> {
+      LOG.info("Creating shared HTTP connection pool, max connections: {}, max connections per route: {}",
+          maxTotal, maxPerRoute);
+      PoolingHttpClientConnectionManager manager =
+          new PoolingHttpClientConnectionManager(ttlSeconds, TimeUnit.SECONDS);
+      manager.setMaxTotal(maxTotal);
+      manager.setDefaultMaxPerRoute(maxPerRoute);
+      // the evictor runs as a daemon thread for the life of the pool
+      new IdleConnectionEvictor(manager, Math.max(ttlSeconds, 1), TimeUnit.SECONDS).start();
+      return manager;
+    });
+  }
+}
@@ -0,0 +1,23 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory;
+
+import software.amazon.awssdk.utils.AttributeMap;
+
+
+/**
+ * S3 client options that are not covered by SdkHttpConfigurationOption. They
+ * are passed to ConnectionClientFactory in the same AttributeMap.
+ */
+public class S3ClientOption<T> extends AttributeMap.Key<T> {
+  /**
+   * The socket receive buffer size of async S3 connections in bytes
+   */
+  public static final S3ClientOption<Integer> READ_BUFFER_SIZE = new S3ClientOption<>(Integer.class);
+
+  private S3ClientOption(Class<T> valueClass) {
+    super(valueClass);
+  }
+}
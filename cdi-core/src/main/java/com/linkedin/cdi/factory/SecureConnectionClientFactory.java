@@ -8,7 +8,7 @@ import com.linkedin.cdi.factory.network.KeyCertRetriever;
 import com.linkedin.cdi.factory.network.SecureNetworkUtil;
 import com.linkedin.cdi.factory.reader.JsonFileReader;
 import com.linkedin.cdi.factory.reader.SchemaReader;
-import com.linkedin.cdi.factory.sftp.SftpChannelClient;
+import com.linkedin.cdi.factory.sftp.PooledSftpChannelClient;
 import com.linkedin.cdi.factory.sftp.SftpClient;
 import java.sql.Connection;
 import org.apache.gobblin.configuration.State;
@@ -79,7 +79,7 @@ public class SecureConnectionClientFactory extends DefaultConnectionClientFactor
   @Override
   public SftpClient getSftpChannelClient(State state)  {
     //return new SftpChannelClient(state, createSslContext(state));
-    return new SftpChannelClient(state);
+    return PooledSftpChannelClient.create(state);
   }
 
   /**
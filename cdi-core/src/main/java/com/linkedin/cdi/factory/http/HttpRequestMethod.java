@@ -6,15 +6,17 @@ package com.linkedin.cdi.factory.http;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.linkedin.cdi.util.JsonUtils;
-import com.linkedin.cdi.util.VariableUtils;
+import com.linkedin.cdi.util.VariableTemplate;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -57,7 +59,7 @@ import org.slf4j.LoggerFactory;
 public enum HttpRequestMethod {
   GET("GET") {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
+    protected HttpUriRequest getHttpRequestContentJson(VariableTemplate uriTemplate,
         JsonObject parameters, JsonObject payloads)
         throws UnsupportedEncodingException {
       Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
@@ -66,7 +68,7 @@ public enum HttpRequestMethod {
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(VariableTemplate uriTemplate, JsonObject parameters)
         throws UnsupportedEncodingException {
       return getHttpRequestContentJson(uriTemplate, parameters, new JsonObject());
     }
@@ -74,7 +76,7 @@ public enum HttpRequestMethod {
 
   POST("POST") {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
+    protected HttpUriRequest getHttpRequestContentJson(VariableTemplate uriTemplate,
         JsonObject parameters, JsonObject payloads)
         throws UnsupportedEncodingException {
       Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
@@ -85,7 +87,7 @@ public enum HttpRequestMethod {
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(VariableTemplate uriTemplate, JsonObject parameters)
         throws UnsupportedEncodingException {
       Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
       return setEntity(new HttpPost(replaced.getKey()), jsonToUrlEncodedEntity(replaced.getValue()));
@@ -94,7 +96,7 @@ public enum HttpRequestMethod {
 
   PUT("PUT") {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
+    protected HttpUriRequest getHttpRequestContentJson(VariableTemplate uriTemplate,
         JsonObject parameters, JsonObject payloads)
         throws UnsupportedEncodingException {
       Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
@@ -105,7 +107,7 @@ public enum HttpRequestMethod {
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(VariableTemplate uriTemplate, JsonObject parameters)
         throws UnsupportedEncodingException {
       Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
       return setEntity(new HttpPut(replaced.getKey()), jsonToUrlEncodedEntity(replaced.getValue()));
@@ -114,7 +116,7 @@ public enum HttpRequestMethod {
 
   DELETE("DELETE") {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
+    protected HttpUriRequest getHttpRequestContentJson(VariableTemplate uriTemplate,
         JsonObject parameters, JsonObject payloads)
         throws UnsupportedEncodingException {
       Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
@@ -125,7 +127,7 @@ public enum HttpRequestMethod {
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(VariableTemplate uriTemplate, JsonObject parameters)
         throws UnsupportedEncodingException {
       Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
       return new HttpDelete(replaced.getKey());
@@ -133,6 +135,7 @@ public enum HttpRequestMethod {
   };
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestMethod.class);
+  private static final String TMP_PARAMETER_PREFIX = "tmp";
   private final String name;
 
   HttpRequestMethod(String name) {
@@ -169,28 +172,54 @@ public enum HttpRequestMethod {
       final Map<String, String> headers,
       final JsonObject payloads)
       throws UnsupportedEncodingException {
+    return getHttpRequest(new HttpRequestTemplate(uriTemplate, headers), parameters, payloads);
+  }
+
+  /**
+   * This is the public method to generate HttpUriRequest for each type of Http Method
+   * from precompiled URI and header templates. Callers that send multiple requests,
+   * like pagination, should compile the templates once and reuse them.
+   *
+   * @param template the compiled URI and header templates
+   * @param parameters parameters to be add to URI or to request Entity
+   * @param payloads additional payloads to be included in the body of the Http request
+   * @return HttpUriRequest ready for connection
+   */
+  public HttpUriRequest getHttpRequest(final HttpRequestTemplate template,
+      final JsonObject parameters,
+      final JsonObject payloads)
+      throws UnsupportedEncodingException {
     HttpUriRequest request;
 
-    // substitute variables in headers
+    // substitute variables in headers, variables used in headers will not be
+    // sent as URI parameters or in the request entity
     Map<String, String> headersCopy = new HashMap<>();
-    JsonObject parametersCopy = JsonUtils.deepCopy(parameters).getAsJsonObject();
-    for (Map.Entry<String, String> entry: headers.entrySet()) {
-      Pair<String, JsonObject> replaced = VariableUtils.replaceWithTracking(entry.getValue(), parameters);
-      if (!replaced.getLeft().equals(entry.getValue())) {
-        parametersCopy = JsonUtils.deepCopy(replaced.getRight()).getAsJsonObject();
-        headersCopy.put(entry.getKey(), replaced.getLeft());
-        LOG.info("Substituted header string: {} = {}", entry.getKey(), replaced.getLeft());
-      } else {
-        headersCopy.put(entry.getKey(), entry.getValue());
+    Set<String> headerVariables = new HashSet<>();
+    for (Map.Entry<String, VariableTemplate> entry: template.getHeaders().entrySet()) {
+      String replaced = entry.getValue().render(parameters, false);
+      if (!replaced.equals(entry.getValue().getTemplate())) {
+        headerVariables.addAll(entry.getValue().getVariables());
+        LOG.debug("Substituted header string: {} = {}", entry.getKey(), replaced);
       }
+      headersCopy.put(entry.getKey(), replaced);
     }
 
-    LOG.info("Final parameters for HttpRequest: {}", parametersCopy.toString());
+    JsonObject parametersCopy = parameters;
+    if (!headerVariables.isEmpty()) {
+      parametersCopy = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry: parameters.entrySet()) {
+        if (!headerVariables.contains(entry.getKey())) {
+          parametersCopy.add(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+
+    LOG.debug("Final parameters for HttpRequest: {}", parametersCopy);
     if (headersCopy.containsKey("Content-Type")
         && headersCopy.get("Content-Type").equals("application/x-www-form-urlencoded")) {
-      request = getHttpRequestContentUrlEncoded(uriTemplate, parametersCopy);
+      request = getHttpRequestContentUrlEncoded(template.getUri(), parametersCopy);
     } else {
-      request = getHttpRequestContentJson(uriTemplate, parametersCopy, payloads);
+      request = getHttpRequestContentJson(template.getUri(), parametersCopy, payloads);
     }
 
     for (Map.Entry<String, String> entry: headersCopy.entrySet()) {
@@ -206,7 +235,7 @@ public enum HttpRequestMethod {
    * @param payloads additional payloads to be included in the body of the Http request
    * @return HttpUriRequest object where content is set per application/json
    */
-  protected abstract HttpUriRequest getHttpRequestContentJson(String uriTemplate,
+  protected abstract HttpUriRequest getHttpRequestContentJson(VariableTemplate uriTemplate,
       JsonObject parameters, JsonObject payloads)
       throws UnsupportedEncodingException;
 
@@ -216,19 +245,45 @@ public enum HttpRequestMethod {
    * @param parameters parameters to be add to URI or to request Entity
    * @return HttpUriRequest object where content is set per application/x-www-form-urlencoded
    */
-  protected abstract HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
+  protected abstract HttpUriRequest getHttpRequestContentUrlEncoded(VariableTemplate uriTemplate, JsonObject parameters)
       throws UnsupportedEncodingException;
 
-  protected Pair<String, JsonObject> replaceVariables(String uriTemplate, JsonObject parameters)
+  protected Pair<String, JsonObject> replaceVariables(VariableTemplate uriTemplate, JsonObject parameters)
       throws UnsupportedEncodingException {
-    return VariableUtils.replaceWithTracking(uriTemplate, parameters, true);
+    return uriTemplate.renderWithTracking(parameters, true);
   }
 
+  /**
+   * Append parameters to the URI as a query string.
+   *
+   * When the URI has no query string or fragment of its own, the encoded parameters are
+   * appended directly; otherwise, URIBuilder is used to merge them with the existing query.
+   * Both ways encode parameters the same way, i.e. as application/x-www-form-urlencoded in UTF-8.
+   *
+   * @param uri the URI with all variables substituted
+   * @param parameters parameters to be added to the URI, excluding the temporary ones
+   * @return the final URI string
+   */
   protected String appendParameters(String uri, JsonObject parameters) {
     try {
+      if (uri.indexOf('?') < 0 && uri.indexOf('#') < 0) {
+        StringBuilder builder = new StringBuilder(uri);
+        char separator = '?';
+        for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
+          if (!entry.getKey().startsWith(TMP_PARAMETER_PREFIX)) {
+            builder.append(separator)
+                .append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8.name()))
+                .append('=')
+                .append(URLEncoder.encode(entry.getValue().getAsString(), StandardCharsets.UTF_8.name()));
+            separator = '&';
+          }
+        }
+        return builder.toString();
+      }
+
       URIBuilder builder = new URIBuilder(new URI(uri));
       for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
-        if (!entry.getKey().matches("tmp.*")) {
+        if (!entry.getKey().startsWith(TMP_PARAMETER_PREFIX)) {
           builder.addParameter(entry.getKey(), entry.getValue().getAsString());
         }
       }
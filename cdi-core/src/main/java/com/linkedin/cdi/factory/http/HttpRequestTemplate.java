@@ -0,0 +1,63 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.http;
+
+import com.linkedin.cdi.util.VariableTemplate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The compiled form of the URI and header templates of an HTTP request.
+ *
+ * The URI template and the headers, including authentication headers, don't change
+ * within a work unit; therefore, they are compiled once and rendered for each page.
+ * Each page only provides the current parameter values.
+ *
+ * @see HttpRequestMethod#getHttpRequest(HttpRequestTemplate, com.google.gson.JsonObject, com.google.gson.JsonObject)
+ */
+public class HttpRequestTemplate {
+  private final String uriTemplate;
+  private final Map<String, String> headerTemplates;
+  private final VariableTemplate uri;
+  private final Map<String, VariableTemplate> headers;
+
+  /**
+   * @param uriTemplate input URI, which might contain place holders
+   * @param headerTemplates Http header tags, which might contain place holders
+   */
+  public HttpRequestTemplate(String uriTemplate, Map<String, String> headerTemplates) {
+    this.uriTemplate = uriTemplate;
+    this.headerTemplates = new HashMap<>(headerTemplates);
+    this.uri = VariableTemplate.compile(uriTemplate);
+    Map<String, VariableTemplate> compiledHeaders = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : headerTemplates.entrySet()) {
+      compiledHeaders.put(entry.getKey(), VariableTemplate.compile(entry.getValue()));
+    }
+    this.headers = Collections.unmodifiableMap(compiledHeaders);
+  }
+
+  public VariableTemplate getUri() {
+    return uri;
+  }
+
+  public Map<String, VariableTemplate> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Check if this compiled template was made from the given URI and headers, so that
+   * it can be reused
+   *
+   * @param uriTemplate input URI, which might contain place holders
+   * @param headerTemplates Http header tags, which might contain place holders
+   * @return true if the compiled template can be used for the given URI and headers
+   */
+  public boolean isCompiledFrom(String uriTemplate, Map<String, String> headerTemplates) {
+    return this.uriTemplate.equals(uriTemplate) && this.headerTemplates.equals(headerTemplates);
+  }
+}
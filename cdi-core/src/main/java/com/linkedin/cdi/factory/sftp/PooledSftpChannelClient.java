@@ -0,0 +1,265 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.sftp;
+
+import com.google.gson.JsonObject;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.gobblin.configuration.State;
+import org.apache.gobblin.util.io.SeekableFSInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+
+
+/**
+ * An SFTP client that keeps a pool of channels over its session.
+ *
+ * The base client opens a new channel for every command, and each channel open is a
+ * round trip to the server. This client reuses idle channels, and caps the number of
+ * concurrent channels, so that concurrent commands and downloads don't exceed the
+ * channel limit of the server, which is commonly 10 per session.
+ *
+ * A file stream holds its channel until the stream is closed.
+ *
+ * When ranged download is enabled, a file larger than one part is downloaded by
+ * multiple channels concurrently, each channel reading a part at its offset.
+ */
+public class PooledSftpChannelClient extends SftpChannelClient {
+  private static final Logger LOG = LoggerFactory.getLogger(PooledSftpChannelClient.class);
+  public static final String KEY_MAX_CHANNELS = "max_channels";
+  private static final String KEY_DOWNLOAD_PART_SIZE_MB = "download_part_size_mb";
+  private static final String KEY_DOWNLOAD_PARALLELISM = "download_parallelism";
+  private static final int MAX_DOWNLOAD_PART_SIZE_MB = 1024;
+  private final LinkedBlockingDeque<ChannelSftp> idleChannels = new LinkedBlockingDeque<>();
+  private final Semaphore permits;
+  // ranged download is enabled when part size is positive
+  private long downloadPartSize = 0;
+  private int downloadParallelism;
+
+  /**
+   * @param state the state of execution environment
+   * @param maxChannels the maximum number of concurrent channels
+   */
+  public PooledSftpChannelClient(State state, int maxChannels) {
+    super(state);
+    this.permits = new Semaphore(maxChannels, true);
+    this.downloadParallelism = maxChannels;
+    JsonObject parameters = MSTAGE_SOURCE_SFTP_PARAMETERS.get(state);
+    if (parameters.has(KEY_DOWNLOAD_PART_SIZE_MB)) {
+      int partSize = parameters.get(KEY_DOWNLOAD_PART_SIZE_MB).getAsInt();
+      if (partSize <= 0 || partSize > MAX_DOWNLOAD_PART_SIZE_MB) {
+        throw new IllegalArgumentException(partSize + " is not a valid download part size.");
+      }
+      downloadPartSize = partSize * 1024L * 1024L;
+    }
+    if (parameters.has(KEY_DOWNLOAD_PARALLELISM)) {
+      int parallelism = parameters.get(KEY_DOWNLOAD_PARALLELISM).getAsInt();
+      if (parallelism <= 0 || parallelism > maxChannels) {
+        throw new IllegalArgumentException(parallelism + " is not a valid download parallelism.");
+      }
+      downloadParallelism = parallelism;
+    }
+    LOG.info("SFTP channel pool created with {} channels", maxChannels);
+  }
+
+  /**
+   * Create a pooled client if max_channels is set in ms.source.sftp.parameters, otherwise
+   * create a client that opens a new channel for every command
+   *
+   * @param state the state of execution environment
+   * @return an SFTP client
+   */
+  public static SftpClient create(State state) {
+    JsonObject parameters = MSTAGE_SOURCE_SFTP_PARAMETERS.get(state);
+    if (parameters.has(KEY_MAX_CHANNELS)) {
+      int maxChannels = parameters.get(KEY_MAX_CHANNELS).getAsInt();
+      if (maxChannels <= 0) {
+        throw new IllegalArgumentException(maxChannels + " is not a valid number of SFTP channels.");
+      }
+      return new PooledSftpChannelClient(state, maxChannels);
+    }
+    return new SftpChannelClient(state);
+  }
+
+  /**
+   * Borrow a channel from the pool, opening a new channel if no idle channel is available.
+   * The caller must return the channel by {@link #releaseChannel(ChannelSftp)}.
+   *
+   * @return a connected channel
+   * @throws SftpException if no channel is available before the connection timeout
+   */
+  public ChannelSftp borrowChannel() throws SftpException {
+    try {
+      if (!permits.tryAcquire(MSTAGE_SFTP_CONN_TIMEOUT_MILLIS.get(state), TimeUnit.MILLISECONDS)) {
+        throw new SftpException(0, "Timeout waiting for a free SFTP channel");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SftpException(0, "Interrupted while waiting for a free SFTP channel", e);
+    }
+    try {
+      ChannelSftp channel;
+      while ((channel = idleChannels.pollFirst()) != null) {
+        if (channel.isConnected()) {
+          return channel;
+        }
+      }
+      return getSftpChannel();
+    } catch (SftpException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Return a channel to the pool; broken channels are dropped
+   * @param channel the channel borrowed by {@link #borrowChannel()}
+   */
+  public void releaseChannel(ChannelSftp channel) {
+    if (channel.isConnected()) {
+      idleChannels.offerFirst(channel);
+    }
+    permits.release();
+  }
+
+  /**
+   * Disconnect the idle channels and close the session
+   */
+  @Override
+  public void close() {
+    ChannelSftp channel;
+    while ((channel = idleChannels.pollFirst()) != null) {
+      channel.disconnect();
+    }
+    super.close();
+  }
+
+  /**
+   * Executes a get SftpCommand and returns an input stream to the file, the channel
+   * returns to the pool when the stream is closed
+   */
+  @Override
+  public InputStream getFileStream(String file) {
+    if (downloadPartSize > 0) {
+      long size = getFileSize(file);
+      if (size > downloadPartSize) {
+        return new SftpRangedInputStream(this, file, size, downloadPartSize, downloadParallelism);
+      }
+    }
+    ChannelSftp channel = null;
+    try {
+      channel = borrowChannel();
+      return new PooledChannelInputStream(channel.get(file, new SftpMonitor()), channel);
+    } catch (SftpException e) {
+      if (channel != null) {
+        releaseChannel(channel);
+      }
+      throw new RuntimeException("Cannot download file " + file + " due to " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Execute an FTP ls command
+   * @param path the target path to list content
+   * @return the list of files and directories
+   */
+  @Override
+  protected List<String> listFiles(String path) {
+    ChannelSftp channel = null;
+    try {
+      channel = borrowChannel();
+      List<String> list = new ArrayList<>();
+      Vector<ChannelSftp.LsEntry> vector = channel.ls(path);
+      for (ChannelSftp.LsEntry entry : vector) {
+        list.add(entry.getFilename());
+      }
+      return list;
+    } catch (SftpException e) {
+      throw new RuntimeException("Cannot execute ls command on sftp connection", e);
+    } finally {
+      if (channel != null) {
+        releaseChannel(channel);
+      }
+    }
+  }
+
+  /**
+   * Get file modification time
+   * @param path file path on target to be checked
+   * @return the modification time in long format
+   */
+  @Override
+  public long getFileMTime(String path) {
+    ChannelSftp channel = null;
+    try {
+      channel = borrowChannel();
+      return channel.lstat(path).getMTime();
+    } catch (SftpException e) {
+      throw new RuntimeException(
+          String.format("Failed to get modified timestamp for file at path %s due to error %s", path,
+              e.getMessage()), e);
+    } finally {
+      if (channel != null) {
+        releaseChannel(channel);
+      }
+    }
+  }
+
+  /**
+   * Get file size
+   * @param path file path on target to be checked
+   * @return the file size
+   */
+  @Override
+  public long getFileSize(String path) {
+    ChannelSftp channel = null;
+    try {
+      channel = borrowChannel();
+      return channel.lstat(path).getSize();
+    } catch (SftpException e) {
+      throw new RuntimeException(
+          String.format("Failed to get size for file at path %s due to error %s", path, e.getMessage()), e);
+    } finally {
+      if (channel != null) {
+        releaseChannel(channel);
+      }
+    }
+  }
+
+  /**
+   * A file stream that returns its channel to the pool when it is closed
+   */
+  private class PooledChannelInputStream extends SeekableFSInputStream {
+    private final ChannelSftp channel;
+    private boolean released = false;
+
+    private PooledChannelInputStream(InputStream in, ChannelSftp channel) {
+      super(in);
+      this.channel = channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (!released) {
+          released = true;
+          releaseChannel(channel);
+        }
+      }
+    }
+  }
+}
@@ -5,6 +5,7 @@
 package com.linkedin.cdi.factory.sftp;
 
 import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonObject;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
@@ -14,8 +15,11 @@ import com.linkedin.cdi.util.Credentials;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.source.extractor.extract.sftp.SftpFsHelper;
 import org.slf4j.Logger;
@@ -26,6 +30,9 @@ import static com.linkedin.cdi.configuration.PropertyCollection.*;
 
 public class SftpChannelClient implements SftpClient {
   private static final Logger LOG = LoggerFactory.getLogger(SftpChannelClient.class);
+  private static final String KEY_READ_AHEAD_REQUESTS = "read_ahead_requests";
+  private static final String KEY_KEEP_ALIVE_SECONDS = "keep_alive_seconds";
+  private static final String KEY_LISTING_CACHE_SECONDS = "listing_cache_seconds";
 
   private static final List<IdentityStrategy> STRATEGIES = ImmutableList.of(
       new LocalFileIdentityStrategy(),
@@ -35,10 +42,30 @@ public class SftpChannelClient implements SftpClient {
   protected State state;
   protected Session session = null;
   protected JSch jsch = new JSch();
+  // the number of read requests a channel keeps in flight, 0 keeps the JSch default
+  protected int readAheadRequests = 0;
+  // the interval of keep-alive messages, 0 doesn't send keep-alive messages
+  protected int keepAliveSeconds = 0;
+  // how long a directory listing is reused, 0 doesn't cache listings
+  protected long listingCacheMillis = 0;
+  private final Map<String, Pair<Long, List<String>>> listings = new ConcurrentHashMap<>();
 //  protected SSLContext sslContext = null;
 
   public SftpChannelClient(State state) {
     this.state = state;
+    JsonObject parameters = MSTAGE_SOURCE_SFTP_PARAMETERS.get(state);
+    if (parameters.has(KEY_READ_AHEAD_REQUESTS)) {
+      readAheadRequests = parameters.get(KEY_READ_AHEAD_REQUESTS).getAsInt();
+      if (readAheadRequests <= 0) {
+        throw new IllegalArgumentException(readAheadRequests + " is not a valid number of read ahead requests.");
+      }
+    }
+    if (parameters.has(KEY_KEEP_ALIVE_SECONDS)) {
+      keepAliveSeconds = Math.max(parameters.get(KEY_KEEP_ALIVE_SECONDS).getAsInt(), 0);
+    }
+    if (parameters.has(KEY_LISTING_CACHE_SECONDS)) {
+      listingCacheMillis = Math.max(parameters.get(KEY_LISTING_CACHE_SECONDS).getAsLong(), 0) * 1000;
+    }
     initializeConnection(state);
   }
 //
@@ -83,6 +110,9 @@ public class SftpChannelClient implements SftpClient {
     try {
       ChannelSftp channelSftp = (ChannelSftp) this.session.openChannel("sftp");
       channelSftp.connect(MSTAGE_SFTP_CONN_TIMEOUT_MILLIS.get(state));
+      if (readAheadRequests > 0) {
+        channelSftp.setBulkRequests(readAheadRequests);
+      }
       return channelSftp;
     } catch (JSchException e) {
       throw new SftpException(0, "Cannot open a channel to SFTP server", e);
@@ -99,6 +129,15 @@ public class SftpChannelClient implements SftpClient {
     }
   }
 
+  /**
+   * Check if the session is still connected, so that the client can be reused
+   * @return true if the session is connected
+   */
+  @Override
+  public boolean isConnected() {
+    return this.session != null && this.session.isConnected();
+  }
+
   /**
    * Executes a get SftpCommand and returns an input stream to the file
    */
@@ -114,12 +153,32 @@ public class SftpChannelClient implements SftpClient {
   }
 
   /**
-   * Execute an FTP ls command
+   * Execute an FTP ls command, or reuse a recent listing of the same path if listing cache is enabled
    * @param path the target path to list content
    * @return the list of files and directories
    */
   @Override
   public List<String> ls(String path) {
+    if (listingCacheMillis <= 0) {
+      return listFiles(path);
+    }
+    long now = System.currentTimeMillis();
+    Pair<Long, List<String>> cached = listings.get(path);
+    if (cached == null || now - cached.getLeft() > listingCacheMillis) {
+      cached = Pair.of(now, listFiles(path));
+      listings.put(path, cached);
+    } else {
+      LOG.info("Reusing the listing of {} from {} ms ago", path, now - cached.getLeft());
+    }
+    return new ArrayList<>(cached.getRight());
+  }
+
+  /**
+   * Execute an FTP ls command
+   * @param path the target path to list content
+   * @return the list of files and directories
+   */
+  protected List<String> listFiles(String path) {
     try {
       List<String> list = new ArrayList<>();
       ChannelSftp channel = getSftpChannel();
@@ -189,6 +248,9 @@ public class SftpChannelClient implements SftpClient {
     session.setUserInfo(new MyUserInfo());
     session.setDaemonThread(true);
     session.setTimeout(MSTAGE_SFTP_CONN_TIMEOUT_MILLIS.get(state));
+    if (keepAliveSeconds > 0) {
+      session.setServerAliveInterval(keepAliveSeconds * 1000);
+    }
     session.setConfig("PreferredAuthentications", "publickey,password");
     if (StringUtils.isEmpty(SOURCE_CONN_KNOWN_HOSTS.get(state))) {
       LOG.info("Known hosts path is not set, StrictHostKeyChecking will be turned off");
@@ -26,6 +26,17 @@ public interface SftpClient {
    */
   void close();
 
+  /**
+   * Check if the session is still connected, so that the client can be reused
+   *
+   * Clients that cannot tell are assumed to be connected.
+   *
+   * @return true if the session is connected
+   */
+  default boolean isConnected() {
+    return true;
+  }
+
   /**
    * Executes a get SftpCommand and returns an input stream to the file
    */
@@ -0,0 +1,71 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.sftp;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jcraft.jsch.ChannelSftp;
+import com.linkedin.cdi.util.RangedInputStream;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An InputStream that downloads a large SFTP file in parts, each part over its own
+ * pooled channel starting at the part offset, and returns the bytes in order.
+ *
+ * A single channel is limited by its read-ahead window over the round trip time;
+ * multiple channels multiply the throughput on high-latency links.
+ */
+class SftpRangedInputStream extends RangedInputStream {
+  private static final Logger LOG = LoggerFactory.getLogger(SftpRangedInputStream.class);
+  private final PooledSftpChannelClient client;
+  private final String file;
+  private final ExecutorService executor;
+
+  /**
+   * @param client the pooled client providing channels
+   * @param file the file path
+   * @param fileSize the size of the file in bytes
+   * @param partSize the number of bytes downloaded over a channel at a time
+   * @param parallelism the number of concurrent parts, which should not exceed the channels of the pool
+   */
+  SftpRangedInputStream(PooledSftpChannelClient client, String file, long fileSize, long partSize, int parallelism) {
+    super(file, fileSize, partSize);
+    this.client = client;
+    this.file = file;
+    this.executor = Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("sftp-download-%d").build());
+    LOG.info("Downloading {} bytes from {} in parts of {} bytes with {} channels", fileSize, file, partSize,
+        parallelism);
+    start(parallelism);
+  }
+
+  @Override
+  protected Future<byte[]> requestPart(long start, long end) {
+    return executor.submit(() -> downloadPart(start, end));
+  }
+
+  @Override
+  protected void onClose() {
+    executor.shutdownNow();
+  }
+
+  private byte[] downloadPart(long start, long end) throws Exception {
+    byte[] part = new byte[(int) (end - start + 1)];
+    ChannelSftp channel = client.borrowChannel();
+    try (InputStream in = channel.get(file, null, start)) {
+      IOUtils.readFully(in, part);
+    } finally {
+      client.releaseChannel(channel);
+    }
+    LOG.debug("Downloaded bytes {}-{} of {}", start, end, file);
+    return part;
+  }
+}
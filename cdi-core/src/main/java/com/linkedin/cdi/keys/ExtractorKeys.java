@@ -47,6 +47,12 @@ public class ExtractorKeys {
   private Boolean explictEof;
   private JsonArray payloads = new JsonArray();
   private long processedCount = 0;
+  // number of checks made while waiting for the session stop condition
+  private int sessionWaitCount = 0;
+
+  public void incrSessionWaitCount() {
+    sessionWaitCount++;
+  }
 
   public void incrProcessedCount() {
     processedCount++;
@@ -164,4 +170,12 @@ public class ExtractorKeys {
   public void setProcessedCount(long processedCount) {
     this.processedCount = processedCount;
   }
+
+  public int getSessionWaitCount() {
+    return sessionWaitCount;
+  }
+
+  public void setSessionWaitCount(int sessionWaitCount) {
+    this.sessionWaitCount = sessionWaitCount;
+  }
 }
@@ -16,4 +16,53 @@ import org.slf4j.LoggerFactory;
  */
 public class HdfsKeys extends JobKeys {
   private static final Logger LOG = LoggerFactory.getLogger(HdfsKeys.class);
+  private String filesPattern = ".*";
+  private boolean multipleFiles = false;
+  private int openAheadFiles = 2;
+  private String splitFormat = null;
+
+  @Override
+  public void logDebugAll() {
+    super.logDebugAll();
+    LOG.debug("These are values in HdfsSource:");
+    LOG.debug("files pattern: {}", filesPattern);
+    LOG.debug("multiple files: {}", multipleFiles);
+    LOG.debug("open ahead files: {}", openAheadFiles);
+    LOG.debug("split format: {}", splitFormat);
+  }
+
+  public String getFilesPattern() {
+    return filesPattern;
+  }
+
+  public void setFilesPattern(String filesPattern) {
+    this.filesPattern = filesPattern;
+  }
+
+  public boolean isMultipleFiles() {
+    return multipleFiles;
+  }
+
+  public void setMultipleFiles(boolean multipleFiles) {
+    this.multipleFiles = multipleFiles;
+  }
+
+  public int getOpenAheadFiles() {
+    return openAheadFiles;
+  }
+
+  public void setOpenAheadFiles(int openAheadFiles) {
+    this.openAheadFiles = openAheadFiles;
+  }
+
+  /**
+   * @return the format of file splits, csv or avro, or null if files are not split
+   */
+  public String getSplitFormat() {
+    return splitFormat;
+  }
+
+  public void setSplitFormat(String splitFormat) {
+    this.splitFormat = splitFormat;
+  }
 }
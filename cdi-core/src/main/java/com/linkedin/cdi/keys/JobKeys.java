@@ -14,6 +14,7 @@ import com.google.gson.reflect.TypeToken;
 import com.linkedin.cdi.configuration.MultistageProperties;
 import com.linkedin.cdi.factory.ConnectionClientFactory;
 import com.linkedin.cdi.factory.reader.SchemaReader;
+import com.linkedin.cdi.util.BackoffTypes;
 import com.linkedin.cdi.util.DateTimeUtils;
 import com.linkedin.cdi.util.HdfsReader;
 import com.linkedin.cdi.util.JsonUtils;
@@ -73,6 +74,7 @@ public class JobKeys {
   private Map<ParameterTypes, String> paginationFields = new HashMap<>();
   private Map<ParameterTypes, Long> paginationInitValues = new HashMap<>();
   private long sessionTimeout;
+  private BackoffTypes waitBackoff = BackoffTypes.NONE;
   private long callInterval;
   private JsonArray encryptionField = new JsonArray();
   private boolean enableCleansing;
@@ -107,6 +109,7 @@ public class JobKeys {
     setDataField(MSTAGE_DATA_FIELD.get(state));
     setCallInterval(MSTAGE_CALL_INTERVAL_MILLIS.get(state));
     setSessionTimeout(MSTAGE_WAIT_TIMEOUT_SECONDS.getMillis(state));
+    setWaitBackoff(BackoffTypes.fromString(MSTAGE_WAIT_BACKOFF.get(state)));
     setMinWorkUnitRecords(MSTAGE_WORK_UNIT_MIN_RECORDS.get(state));
     setMinWorkUnits(MSTAGE_WORK_UNIT_MIN_UNITS.get(state));
 
@@ -302,6 +305,7 @@ public class JobKeys {
     LOG.debug("Session key field definition: {}", sessionKeyField.toString());
     LOG.debug("Call interval in milliseconds: {}", callInterval);
     LOG.debug("Session timeout: {}", sessionTimeout);
+    LOG.debug("Session wait backoff: {}", waitBackoff);
     LOG.debug("Derived fields definition: {}", derivedFields.toString());
     LOG.debug("Output schema definition: {}", outputSchema.toString());
     LOG.debug("Watermark definition: {}", watermarkDefinition.toString());
@@ -675,6 +679,14 @@ public class JobKeys {
     this.sessionTimeout = sessionTimeout;
   }
 
+  public BackoffTypes getWaitBackoff() {
+    return waitBackoff;
+  }
+
+  public void setWaitBackoff(BackoffTypes waitBackoff) {
+    this.waitBackoff = waitBackoff;
+  }
+
   public long getCallInterval() {
     return callInterval;
   }
@@ -19,6 +19,19 @@ public class S3Keys extends JobKeys {
   private String accessKey;
   private String secretId;
   private Integer connectionTimeout;
+  // ranged download is enabled when part size is positive
+  private long downloadPartSize = 0;
+  private int downloadParallelism = 4;
+  private boolean workUnitPerObject = false;
+  private int listParallelism = 1;
+  // objects last modified before this time, in milliseconds, are not listed, 0 lists all objects
+  private long modifiedSince = 0;
+  private boolean incrementalListing = false;
+  // async download uses a non-blocking client, the client defaults apply to null settings
+  private boolean asyncDownload = false;
+  private Integer maxConcurrency;
+  private Integer maxPendingAcquires;
+  private Integer readBufferSize;
   String targetFilePattern;
 
   @Override
@@ -29,6 +42,11 @@ public class S3Keys extends JobKeys {
     LOG.debug("S3 endpoint: {}", endpoint);
     LOG.debug("S3 prefix: {}", prefix);
     LOG.debug("S3 files pattern: {}", filesPattern);
+    LOG.debug("S3 download part size: {}, parallelism: {}", downloadPartSize, downloadParallelism);
+    LOG.debug("S3 work unit per object: {}", workUnitPerObject);
+    LOG.debug("S3 list parallelism: {}, incremental listing: {}", listParallelism, incrementalListing);
+    LOG.debug("S3 async download: {}, max concurrency: {}, max pending acquires: {}, read buffer size: {}",
+        asyncDownload, maxConcurrency, maxPendingAcquires, readBufferSize);
   }
 
   public String getBucket() {
@@ -103,6 +121,86 @@ public class S3Keys extends JobKeys {
     this.connectionTimeout = connectionTimeout;
   }
 
+  public long getDownloadPartSize() {
+    return downloadPartSize;
+  }
+
+  public void setDownloadPartSize(long downloadPartSize) {
+    this.downloadPartSize = downloadPartSize;
+  }
+
+  public int getDownloadParallelism() {
+    return downloadParallelism;
+  }
+
+  public void setDownloadParallelism(int downloadParallelism) {
+    this.downloadParallelism = downloadParallelism;
+  }
+
+  public boolean isWorkUnitPerObject() {
+    return workUnitPerObject;
+  }
+
+  public void setWorkUnitPerObject(boolean workUnitPerObject) {
+    this.workUnitPerObject = workUnitPerObject;
+  }
+
+  public int getListParallelism() {
+    return listParallelism;
+  }
+
+  public void setListParallelism(int listParallelism) {
+    this.listParallelism = listParallelism;
+  }
+
+  public long getModifiedSince() {
+    return modifiedSince;
+  }
+
+  public void setModifiedSince(long modifiedSince) {
+    this.modifiedSince = modifiedSince;
+  }
+
+  public boolean isIncrementalListing() {
+    return incrementalListing;
+  }
+
+  public void setIncrementalListing(boolean incrementalListing) {
+    this.incrementalListing = incrementalListing;
+  }
+
+  public boolean isAsyncDownload() {
+    return asyncDownload;
+  }
+
+  public void setAsyncDownload(boolean asyncDownload) {
+    this.asyncDownload = asyncDownload;
+  }
+
+  public Integer getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public void setMaxConcurrency(Integer maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  public Integer getMaxPendingAcquires() {
+    return maxPendingAcquires;
+  }
+
+  public void setMaxPendingAcquires(Integer maxPendingAcquires) {
+    this.maxPendingAcquires = maxPendingAcquires;
+  }
+
+  public Integer getReadBufferSize() {
+    return readBufferSize;
+  }
+
+  public void setReadBufferSize(Integer readBufferSize) {
+    this.readBufferSize = readBufferSize;
+  }
+
   public String getTargetFilePattern() {
     return targetFilePattern;
   }
@@ -15,6 +15,7 @@ public class SftpKeys extends JobKeys {
   private String baseDirectory = "";
   private String pathSeparator = "/";
   private String targetFilePattern;
+  private boolean workUnitPerFile = false;
 
   @Override
   public void logDebugAll() {
@@ -25,6 +26,7 @@ public class SftpKeys extends JobKeys {
     LOG.debug("split pattern: {}", splitPattern);
     LOG.debug("files pattern: {}", filesPattern);
     LOG.debug("Base directory: {}", baseDirectory);
+    LOG.debug("work unit per file: {}", workUnitPerFile);
   }
 
   public String getFilesPattern() {
@@ -74,4 +76,12 @@ public class SftpKeys extends JobKeys {
   public void setTargetFilePattern(String targetFilePattern) {
     this.targetFilePattern = targetFilePattern;
   }
+
+  public boolean isWorkUnitPerFile() {
+    return workUnitPerFile;
+  }
+
+  public void setWorkUnitPerFile(boolean workUnitPerFile) {
+    this.workUnitPerFile = workUnitPerFile;
+  }
 }
@@ -4,17 +4,29 @@
 
 package com.linkedin.cdi.source;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.linkedin.cdi.connection.HdfsConnection;
+import com.linkedin.cdi.extractor.AvroExtractor;
+import com.linkedin.cdi.extractor.CsvExtractor;
 import com.linkedin.cdi.extractor.MultistageExtractor;
+import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.HdfsKeys;
+import com.linkedin.cdi.util.VariableUtils;
+import java.io.IOException;
+import java.util.Map;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.configuration.WorkUnitState;
 import org.apache.gobblin.source.extractor.Extractor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
 
 /**
  * This class supports HDFS as just another protocol. The main function
@@ -22,6 +34,9 @@ import org.slf4j.LoggerFactory;
  */
 public class HdfsSource extends MultistageSource<Schema, GenericRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(HdfsSource.class);
+  private static final String KEY_MULTIPLE_FILES = "multiple_files";
+  private static final String KEY_OPEN_AHEAD_FILES = "open_ahead_files";
+  private static final String KEY_SPLIT_FILES = "split_files";
 
   public HdfsKeys getHdfsKeys() {
     return hdfsKeys;
@@ -40,9 +55,80 @@ public class HdfsSource extends MultistageSource<Schema, GenericRecord> {
 
   protected void initialize(State state) {
     super.initialize(state);
+    hdfsKeys.setFilesPattern(MSTAGE_SOURCE_FILES_PATTERN.get(state));
+    JsonObject parameters = MSTAGE_SOURCE_HDFS_PARAMETERS.get(state);
+    if (parameters.has(KEY_MULTIPLE_FILES)) {
+      hdfsKeys.setMultipleFiles(parameters.get(KEY_MULTIPLE_FILES).getAsBoolean());
+    }
+    if (parameters.has(KEY_OPEN_AHEAD_FILES)) {
+      int openAheadFiles = parameters.get(KEY_OPEN_AHEAD_FILES).getAsInt();
+      if (openAheadFiles < 0) {
+        throw new IllegalArgumentException(KEY_OPEN_AHEAD_FILES + " cannot be negative: " + openAheadFiles);
+      }
+      hdfsKeys.setOpenAheadFiles(openAheadFiles);
+    }
+    if (parameters.has(KEY_SPLIT_FILES) && parameters.get(KEY_SPLIT_FILES).getAsBoolean()) {
+      hdfsKeys.setSplitFormat(getSplitFormat(MSTAGE_EXTRACTOR_CLASS.get(state)));
+    }
     hdfsKeys.logDebugAll();
   }
 
+  /**
+   * Files can be split if each split can be aligned to record boundaries, that is
+   * lines for CSV files and sync markers for Avro files.
+   *
+   * @param extractorClass the extractor class name
+   * @return the split format
+   */
+  private String getSplitFormat(String extractorClass) {
+    try {
+      Class<?> clazz = Class.forName(extractorClass);
+      if (CsvExtractor.class.isAssignableFrom(clazz)) {
+        return KEY_WORD_CSV;
+      }
+      if (AvroExtractor.class.isAssignableFrom(clazz)) {
+        return KEY_WORD_AVRO;
+      }
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException("Extractor class not found: " + extractorClass, e);
+    }
+    throw new IllegalArgumentException(KEY_SPLIT_FILES + " requires CsvExtractor or AvroExtractor: " + extractorClass);
+  }
+
+  /**
+   * When splitting files is enabled, list the files matching the files pattern, and add
+   * one activation for each block of each file, so that a large file is read by multiple
+   * work units concurrently.
+   *
+   * @param state source state
+   * @param retries number of retries reading secondary input
+   * @return secondary inputs, with file split activations added
+   */
+  @Override
+  protected Map<String, JsonArray> readSecondaryInputs(State state, final long retries) {
+    Map<String, JsonArray> secondaryInputs = super.readSecondaryInputs(state, retries);
+    if (hdfsKeys.getSplitFormat() == null) {
+      return secondaryInputs;
+    }
+
+    if (VariableUtils.hasVariable(hdfsKeys.getSourceUri())) {
+      throw new IllegalArgumentException("Splitting files requires a source URI without variables: "
+          + hdfsKeys.getSourceUri());
+    }
+
+    HdfsConnection connection = new HdfsConnection(state, hdfsKeys, new ExtractorKeys());
+    JsonArray activations = secondaryInputs.computeIfAbsent(KEY_WORD_ACTIVATION, x -> new JsonArray());
+    try {
+      activations.addAll(connection.getFileSplits(hdfsKeys.getSourceUri()));
+    } catch (IOException e) {
+      throw new RuntimeException("Error splitting files under " + hdfsKeys.getSourceUri(), e);
+    } finally {
+      connection.closeAll(StringUtils.EMPTY);
+    }
+    LOG.info("Listed {} file splits, each will be extracted by a work unit", activations.size());
+    return secondaryInputs;
+  }
+
   /**
    * Create extractor based on the input WorkUnitState, the extractor.class
    * configuration, and a new HdfsConnection
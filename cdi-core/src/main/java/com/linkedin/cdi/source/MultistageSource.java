@@ -4,27 +4,37 @@
 
 package com.linkedin.cdi.source;
 
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.linkedin.cdi.extractor.MultistageExtractor;
 import com.linkedin.cdi.keys.JobKeys;
 import com.linkedin.cdi.util.EndecoUtils;
 import com.linkedin.cdi.util.HdfsReader;
 import com.linkedin.cdi.util.WatermarkDefinition;
+import com.linkedin.cdi.util.WorkUnitSizer;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.gobblin.configuration.ConfigurationKeys;
@@ -72,6 +82,8 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
   private static final Logger LOG = LoggerFactory.getLogger(MultistageSource.class);
   final static private Gson GSON = new Gson();
   final static private String PROPERTY_SEPARATOR = ".";
+  // the number of work units or units above which work units are generated concurrently
+  final static private int PARALLEL_GENERATION_THRESHOLD = 1000;
   final static private String DUMMY_DATETIME_WATERMARK_START = "2019-01-01";
   final static private String CURRENT_DATE_SYMBOL = "-";
   final static private String ACTIVATION_WATERMARK_NAME = "activation";
@@ -80,6 +92,10 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
 
   protected SourceState sourceState = null;
   JobKeys jobKeys = new JobKeys();
+  // sizes datetime partitions with the statistics of previous work units
+  private WorkUnitSizer workUnitSizer = null;
+  // checkpoints of previous failed work units, by dataset URN
+  private Map<String, JsonObject> previousCheckpoints = new HashMap<>();
 
   public SourceState getSourceState() {
     return sourceState;
@@ -162,11 +178,12 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
       for (WorkUnit wu : wuList) {
         wu.setProp(MSTAGE_ACTIVATION_PROPERTY.toString(),
             getUpdatedWorkUnitActivation(wu, authentications.get(0).getAsJsonObject()));
-
-        // unlike activation secondary inputs, payloads will be processed in each work unit
-        // and payloads will not be loaded until the Connection executes the command
-        wu.setProp(MSTAGE_PAYLOAD_PROPERTY.toString(), payloads);
       }
+
+      // unlike activation secondary inputs, payloads will be processed in each work unit
+      // and payloads will not be loaded until the Connection executes the command.
+      // payloads are the same for all work units, they are saved once in the job state
+      state.setProp(MSTAGE_PAYLOAD_PROPERTY.toString(), payloads);
     }
     return wuList;
   }
@@ -176,7 +193,7 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
    * In case the token is missing, it will retry accessing the tokens as per the retry parameters
    * ("delayInSec", "retryCount")
    */
-  private Map<String, JsonArray> readSecondaryInputs(State state, final long retries) {
+  protected Map<String, JsonArray> readSecondaryInputs(State state, final long retries) {
     LOG.info("Trying to read secondary input with retry = {}", retries);
     Map<String, JsonArray> secondaryInputs = readContext(state);
 
@@ -268,10 +285,15 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
       datetimeWatermark = new WatermarkDefinition("datetime", DUMMY_DATETIME_WATERMARK_START, CURRENT_DATE_SYMBOL);
     }
 
+    populateSchemas();
+
     List<WorkUnit> workUnits = new ArrayList<>();
     Extract extract = createExtractObject(checkFullExtractState(sourceState, previousHighWatermarks));
     List<ImmutablePair<Long, Long>> datetimePartitions = getDatetimePartitions(datetimeWatermark.getRangeInDateTime());
     List<String> unitPartitions = unitWatermark.getUnits();
+    if (workUnitSizer != null) {
+      datetimePartitions = workUnitSizer.resize(datetimePartitions, unitPartitions.size());
+    }
 
     JsonArray watermarkGroups = new JsonArray();
     String datetimeWatermarkName = datetimeWatermark.getLongName();
@@ -286,92 +308,204 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
         - MSTAGE_GRACE_PERIOD_DAYS.getMillis(sourceState);
     LOG.debug("Overall cutoff time: {}", cutoffTime);
 
+    // the values shared by all work units are computed once
+    int maxWorkUnits = MSTAGE_WORK_UNIT_PARALLELISM_MAX.isValidNonblank(sourceState)
+        ? MSTAGE_WORK_UNIT_PARALLELISM_MAX.get(sourceState) : Integer.MAX_VALUE;
+    long unitCutoffOffset = MSTAGE_ABSTINENT_PERIOD_DAYS.getMillis(sourceState)
+        - MSTAGE_GRACE_PERIOD_DAYS.getMillis(sourceState);
+    long startTime = DateTime.now().getMillis();
+    // when concurrency is limited, work units are paced by the admission controller instead of start times
+    long pacingMillis = MSTAGE_WORK_UNIT_CONCURRENCY_MAX.get(sourceState) > 0
+        ? 0 : MSTAGE_WORK_UNIT_PACING_SECONDS.getMillis(sourceState);
+    String watermarkGroupsString = watermarkGroups.toString();
+    List<String> unitSignatures = unitPartitions.stream()
+        .map(unitPartition -> unitWatermarkName + PROPERTY_SEPARATOR + unitPartition + "]")
+        .collect(Collectors.toList());
+    Map<String, TreeMap<Long, Long>> previousRanges = getPreviousRanges(datetimeWatermarkName, previousHighWatermarks);
+
     for (ImmutablePair<Long, Long> dtPartition : datetimePartitions) {
+      // adding the date time partition and unit partition combination to work units until
+      // it reaches ms.work.unit.parallelism.max. a combination is not added if its prior
+      // watermark doesn't require a rerun.
+      if (workUnits.size() >= maxWorkUnits) {
+        break;
+      }
       LOG.debug("dtPartition: {}", dtPartition);
-      for (String unitPartition: unitPartitions) {
-
-        // adding the date time partition and unit partition combination to work units until
-        // it reaches ms.work.unit.parallelism.max. a combination is not added if its prior
-        // watermark doesn't require a rerun.
-        // a work unit signature is a date time partition and unit partition combination.
-        if (MSTAGE_WORK_UNIT_PARALLELISM_MAX.isValidNonblank(sourceState)
-            && workUnits.size() >= (Integer) MSTAGE_WORK_UNIT_PARALLELISM_MAX.get(sourceState)) {
-          break;
-        }
 
-        // each work unit has a watermark since we use dataset.urn to track state
-        // and the work unit can be uniquely identified by its signature
-        String wuSignature = getWorkUnitSignature(
-            datetimeWatermarkName, dtPartition.getLeft(),
-            unitWatermarkName, unitPartition);
-        LOG.debug("Checking work unit: {}", wuSignature);
-
-        // if a work unit exists in state store, manage its watermark independently
-        long unitCutoffTime = -1L;
-        if (previousHighWatermarks.containsKey(wuSignature)) {
-          unitCutoffTime = previousHighWatermarks.get(wuSignature)
-              - MSTAGE_GRACE_PERIOD_DAYS.getMillis(sourceState)
-              + MSTAGE_ABSTINENT_PERIOD_DAYS.getMillis(sourceState);
-        }
-        LOG.debug(String.format("previousHighWatermarks.get(wuSignature): %s, unitCutoffTime: %s",
-            previousHighWatermarks.get(wuSignature), unitCutoffTime));
-
-        // for a dated work unit partition, we only need to redo it when its previous
-        // execution was not successful
-        // for recent work unit partitions, we might need to re-extract based on
-        // grace period logic, which is controlled by cut off time
-        if (unitCutoffTime == -1L
-            || dtPartition.getRight() >= Longs.max(unitCutoffTime, cutoffTime)) {
-          // prune the date range only if the unit is not in first execution
-          // note the nominal date range low boundary had been saved in signature
-          ImmutablePair<Long, Long> dtPartitionModified = unitCutoffTime == -1L
-              ? dtPartition : previousHighWatermarks.get(wuSignature).equals(dtPartition.left)
-              ? dtPartition : new ImmutablePair<>(Long.max(unitCutoffTime, dtPartition.left), dtPartition.right);
-
-          LOG.info(String.format(MSG_WORK_UNIT_INFO, wuSignature, dtPartitionModified));
-          WorkUnit workUnit = WorkUnit.create(extract,
-              new WatermarkInterval(
-                  new LongWatermark(dtPartitionModified.getLeft()),
-                  new LongWatermark(dtPartitionModified.getRight())));
-
-          // save work unit signature for identification
-          // because each dataset URN key will have a state file on Hadoop, it cannot contain path separator
-          workUnit.setProp(MSTAGE_WATERMARK_GROUPS.toString(),
-              watermarkGroups.toString());
-          workUnit.setProp(DATASET_URN.toString(), EndecoUtils.getHadoopFsEncoded(wuSignature));
-
-          // save the lower number of datetime watermark partition and the unit watermark partition
-          workUnit.setProp(datetimeWatermarkName, dtPartition.getLeft());
-          workUnit.setProp(unitWatermarkName, unitPartition);
-
-          workUnit.setProp(MSTAGE_ACTIVATION_PROPERTY.toString(), unitPartition);
-          workUnit.setProp(MSTAGE_WORK_UNIT_SCHEDULING_STARTTIME.toString(),
-              DateTime.now().getMillis()
-                  + workUnits.size() * MSTAGE_WORK_UNIT_PACING_SECONDS.getMillis(sourceState));
-
-          if (!MSTAGE_OUTPUT_SCHEMA.isValidNonblank(sourceState)
-            && this.jobKeys.hasOutputSchema()) {
-            // populate the output schema read from URN reader to sub tasks
-            // so that the URN reader will not be called again
-            LOG.info("Populating output schema to work units:");
-            LOG.info("Output schema: {}", this.jobKeys.getOutputSchema().toString());
-            workUnit.setProp(MSTAGE_OUTPUT_SCHEMA.getConfig(),
-                this.jobKeys.getOutputSchema().toString());
-
-            // populate the target schema read from URN reader to sub tasks
-            // so that the URN reader will not be called again
-            LOG.info("Populating target schema to work units:");
-            LOG.info("Target schema: {}", jobKeys.getTargetSchema().toString());
-            workUnit.setProp(MSTAGE_TARGET_SCHEMA.getConfig(),
-                jobKeys.getTargetSchema().toString());
-          }
-          workUnits.add(workUnit);
+      // each work unit has a watermark since we use dataset.urn to track state
+      // and the work unit can be uniquely identified by its signature.
+      // a work unit signature is a date time partition and unit partition combination.
+      String dtSignature = "[" + datetimeWatermarkName + PROPERTY_SEPARATOR + dtPartition.getLeft() + ", ";
+
+      // units are checked concurrently when there are many, and added in the order of units
+      IntStream units = IntStream.range(0, unitPartitions.size());
+      List<ImmutablePair<Long, Long>> ranges = (unitPartitions.size() >= PARALLEL_GENERATION_THRESHOLD
+          ? units.parallel() : units)
+          .mapToObj(i -> getWorkUnitRange(dtSignature + unitSignatures.get(i), dtPartition,
+              previousHighWatermarks, previousRanges.get(unitSignatures.get(i)), cutoffTime, unitCutoffOffset))
+          .collect(Collectors.toList());
+      List<Integer> selected = new ArrayList<>();
+      for (int i = 0; i < ranges.size() && workUnits.size() + selected.size() < maxWorkUnits; i++) {
+        if (ranges.get(i) != null) {
+          selected.add(i);
         }
       }
+
+      int offset = workUnits.size();
+      IntStream indexes = IntStream.range(0, selected.size());
+      workUnits.addAll((selected.size() >= PARALLEL_GENERATION_THRESHOLD ? indexes.parallel() : indexes)
+          .mapToObj(j -> {
+            int i = selected.get(j);
+            String wuSignature = dtSignature + unitSignatures.get(i);
+            ImmutablePair<Long, Long> dtPartitionModified = ranges.get(i);
+            if (LOG.isDebugEnabled()) {
+              LOG.debug(String.format(MSG_WORK_UNIT_INFO, wuSignature, dtPartitionModified));
+            }
+            WorkUnit workUnit = WorkUnit.create(extract,
+                new WatermarkInterval(
+                    new LongWatermark(dtPartitionModified.getLeft()),
+                    new LongWatermark(dtPartitionModified.getRight())));
+
+            // save work unit signature for identification
+            // because each dataset URN key will have a state file on Hadoop, it cannot contain path separator
+            workUnit.setProp(MSTAGE_WATERMARK_GROUPS.toString(), watermarkGroupsString);
+            workUnit.setProp(DATASET_URN.toString(), EndecoUtils.getHadoopFsEncoded(wuSignature));
+
+            // save the lower number of datetime watermark partition and the unit watermark partition
+            workUnit.setProp(datetimeWatermarkName, dtPartition.getLeft());
+            workUnit.setProp(unitWatermarkName, unitPartitions.get(i));
+
+            workUnit.setProp(MSTAGE_ACTIVATION_PROPERTY.toString(), unitPartitions.get(i));
+            workUnit.setProp(MSTAGE_WORK_UNIT_SCHEDULING_STARTTIME.toString(),
+                startTime + (offset + j) * pacingMillis);
+
+            // a failed work unit resumes from its checkpoint if it covers the same range
+            JsonObject checkpoint = previousCheckpoints.get(wuSignature);
+            if (checkpoint != null && checkpoint.get("low").getAsLong() == dtPartitionModified.getLeft()
+                && checkpoint.get("high").getAsLong() == dtPartitionModified.getRight()) {
+              workUnit.setProp(KEY_WORD_WORK_UNIT_CHECKPOINT, checkpoint.toString());
+            }
+            return workUnit;
+          })
+          .collect(Collectors.toList()));
     }
+    LOG.info("Generated {} work units from {} datetime partitions and {} unit partitions",
+        workUnits.size(), datetimePartitions.size(), unitPartitions.size());
     return workUnits;
   }
 
+  /**
+   * Get the watermark range of a work unit
+   *
+   * For a dated work unit partition, we only need to redo it when its previous
+   * execution was not successful. For recent work unit partitions, we might need
+   * to re-extract based on grace period logic, which is controlled by cut off time.
+   *
+   * When datetime partitions are resized, a work unit can have a new signature, or a previous
+   * high watermark short of its range, while the previous work units of other signatures
+   * have extracted its range. Therefore, the previous high watermark is extended by the
+   * previous ranges of the same unit that cover the work unit from its low boundary.
+   *
+   * @param wuSignature the work unit signature
+   * @param dtPartition the datetime partition
+   * @param previousHighWatermarks previous high watermarks by work unit signature
+   * @param previousRanges previous ranges of the unit, see {@link #getPreviousRanges}, or null
+   * @param cutoffTime the overall cutoff time
+   * @param unitCutoffOffset the abstinent period minus the grace period
+   * @return the watermark range, or null if the work unit doesn't need a rerun
+   */
+  private ImmutablePair<Long, Long> getWorkUnitRange(String wuSignature, ImmutablePair<Long, Long> dtPartition,
+      Map<String, Long> previousHighWatermarks, TreeMap<Long, Long> previousRanges, long cutoffTime,
+      long unitCutoffOffset) {
+    // if a work unit exists in state store, manage its watermark independently
+    Long previousHighWatermark = previousHighWatermarks.get(wuSignature);
+    if (previousRanges != null) {
+      long covered = previousHighWatermark == null ? dtPartition.getLeft() : previousHighWatermark;
+      while (covered < dtPartition.getRight()) {
+        Map.Entry<Long, Long> floor = previousRanges.floorEntry(covered);
+        if (floor == null || floor.getValue() <= covered) {
+          break;
+        }
+        covered = floor.getValue();
+      }
+      if (previousHighWatermark != null || covered > dtPartition.getLeft()) {
+        previousHighWatermark = covered;
+      }
+    }
+    long unitCutoffTime = previousHighWatermark == null ? -1L : previousHighWatermark + unitCutoffOffset;
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Checking work unit: {}, previous high watermark: {}, unitCutoffTime: {}",
+          wuSignature, previousHighWatermark, unitCutoffTime);
+    }
+
+    if (unitCutoffTime != -1L && dtPartition.getRight() < Longs.max(unitCutoffTime, cutoffTime)) {
+      return null;
+    }
+
+    // prune the date range only if the unit is not in first execution
+    // note the nominal date range low boundary had been saved in signature
+    return unitCutoffTime == -1L || previousHighWatermark.equals(dtPartition.left)
+        ? dtPartition : new ImmutablePair<>(Long.max(unitCutoffTime, dtPartition.left), dtPartition.right);
+  }
+
+  /**
+   * Index the previous high watermarks by unit, and by the low boundary of their datetime
+   * partitions. The value of a low boundary is the highest high watermark of the partitions
+   * starting at or before it, so that a floor lookup returns how far the previous work units
+   * of the unit have extracted from that point.
+   *
+   * @param datetimeWatermarkName the long name of the datetime watermark
+   * @param previousHighWatermarks previous high watermarks by work unit signature
+   * @return previous ranges by unit signature
+   */
+  private Map<String, TreeMap<Long, Long>> getPreviousRanges(String datetimeWatermarkName,
+      Map<String, Long> previousHighWatermarks) {
+    String prefix = "[" + datetimeWatermarkName + PROPERTY_SEPARATOR;
+    Map<String, TreeMap<Long, Long>> previousRanges = new HashMap<>();
+    for (Map.Entry<String, Long> entry : previousHighWatermarks.entrySet()) {
+      int separator = entry.getKey().indexOf(", ", prefix.length());
+      if (!entry.getKey().startsWith(prefix) || separator < 0) {
+        continue;
+      }
+      long low;
+      try {
+        low = Long.parseLong(entry.getKey().substring(prefix.length(), separator));
+      } catch (NumberFormatException e) {
+        continue;
+      }
+      previousRanges.computeIfAbsent(entry.getKey().substring(separator + 2), x -> new TreeMap<>())
+          .merge(low, entry.getValue(), Math::max);
+    }
+    for (TreeMap<Long, Long> ranges : previousRanges.values()) {
+      long highest = Long.MIN_VALUE;
+      for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+        highest = Math.max(highest, range.getValue());
+        range.setValue(highest);
+      }
+    }
+    return previousRanges;
+  }
+
+  /**
+   * Populate the output schema and target schema read from URN reader to sub tasks,
+   * so that the URN reader will not be called again.
+   *
+   * The schemas are the same for all work units; therefore, they are saved once in the
+   * source state, which is the job state shared by all work units, instead of in each
+   * work unit. Work unit states read them from the job state.
+   */
+  private void populateSchemas() {
+    if (!MSTAGE_OUTPUT_SCHEMA.isValidNonblank(sourceState) && this.jobKeys.hasOutputSchema()) {
+      LOG.info("Populating output schema to job state:");
+      LOG.info("Output schema: {}", this.jobKeys.getOutputSchema().toString());
+      sourceState.setProp(MSTAGE_OUTPUT_SCHEMA.getConfig(), this.jobKeys.getOutputSchema().toString());
+
+      LOG.info("Populating target schema to job state:");
+      LOG.info("Target schema: {}", jobKeys.getTargetSchema().toString());
+      sourceState.setProp(MSTAGE_TARGET_SCHEMA.getConfig(), jobKeys.getTargetSchema().toString());
+    }
+  }
+
   /**
    * breaks a date time range to smaller partitions per WORK_UNIT_PARTITION property setting
    * if too many partitions created, truncate to the maximum partitions allowed
@@ -410,7 +544,8 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
    *         property organized by category, in a Map<String, JsonArray> structure
    */
   private Map<String, JsonArray> readContext(State state) {
-    Map<String, JsonArray> secondaryInputs = new HashMap<>();
+    // activation and authentication entries are read concurrently, and merged in the order of entries
+    List<ImmutablePair<String, Callable<JsonArray>>> readers = new ArrayList<>();
     for (JsonElement entry: jobKeys.getSecondaryInputs()) {
       if (!entry.getAsJsonObject().has(KEY_WORD_PATH)) {
         continue;
@@ -420,17 +555,43 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
           ? entry.getAsJsonObject().get(KEY_WORD_CATEGORY).getAsString()
           : KEY_WORD_ACTIVATION;
 
-      JsonArray categoryData = secondaryInputs.computeIfAbsent(category, x -> new JsonArray());
       if (category.equalsIgnoreCase(KEY_WORD_ACTIVATION) || category.equalsIgnoreCase(KEY_WORD_AUTHENTICATION)) {
-        categoryData.addAll(new HdfsReader(state).readSecondary(entry.getAsJsonObject()));
+        // each reader has its own copy of state, as reading HDFS changes the file system URI in state
+        State readerState = new State(state);
+        readers.add(new ImmutablePair<>(category,
+            () -> new HdfsReader(readerState).readSecondary(entry.getAsJsonObject())));
+      } else {
+        JsonArray payload = new JsonArray();
+        if (category.equalsIgnoreCase(KEY_WORD_PAYLOAD)) {
+          payload.add(entry);
+        }
+        readers.add(new ImmutablePair<>(category, () -> payload));
       }
+    }
 
-      if (entry.getAsJsonObject().has(KEY_WORD_PATH) && category.equalsIgnoreCase(KEY_WORD_PAYLOAD)) {
-        categoryData.add(entry);
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(MSTAGE_SECONDARY_INPUT_PARALLELISM.get(state), readers.size())),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("secondary-input-entry-%d").build());
+    try {
+      List<Future<JsonArray>> results = new ArrayList<>();
+      for (ImmutablePair<String, Callable<JsonArray>> reader : readers) {
+        results.add(executor.submit(reader.getValue()));
       }
-
+      Map<String, JsonArray> secondaryInputs = new HashMap<>();
+      for (int i = 0; i < readers.size(); i++) {
+        secondaryInputs.computeIfAbsent(readers.get(i).getKey(), x -> new JsonArray())
+            .addAll(results.get(i).get());
+      }
+      return secondaryInputs;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while reading secondary input", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
     }
-    return secondaryInputs;
   }
 
   /**
@@ -438,23 +599,79 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
    * had multiple work units, the highest high watermark is retrieved for that
    * dataset URN.
    *
+   * The watermarks are indexed in one pass over the previous work unit states, so that
+   * each work unit signature is looked up in constant time.
+   *
    * @return the previous highest high watermarks by dataset URN
    */
   private Map<String, Long> getPreviousHighWatermarks() {
-    Map<String, Long> watermarks = new HashMap<>();
     Map<String, Iterable<WorkUnitState>> wuStates = sourceState.getPreviousWorkUnitStatesByDatasetUrns();
+    Map<String, Long> watermarks = Maps.newHashMapWithExpectedSize(wuStates.size());
+    workUnitSizer = new WorkUnitSizer(MSTAGE_WORK_UNIT_TARGET_ROWS.get(sourceState),
+        MSTAGE_WORK_UNIT_TARGET_SECONDS.getMillis(sourceState));
+    previousCheckpoints = new HashMap<>();
     for (Map.Entry<String, Iterable<WorkUnitState>> entry: wuStates.entrySet()) {
-      Long highWatermark = Collections.max(Lists.newArrayList(entry.getValue().iterator()).stream()
-          .map(s -> s.getActualHighWatermark(LongWatermark.class).getValue())
-          .collect(Collectors.toList()));
+      long highWatermark = Long.MIN_VALUE;
+      boolean hasState = false;
+      JsonObject checkpoint = null;
+      for (WorkUnitState wuState : entry.getValue()) {
+        highWatermark = Math.max(highWatermark, wuState.getActualHighWatermark(LongWatermark.class).getValue());
+        hasState = true;
+        JsonObject previousCheckpoint = getCheckpoint(wuState);
+        if (previousCheckpoint != null && (checkpoint == null
+            || previousCheckpoint.get(KEY_WORD_CHECKPOINT_RECORDS).getAsLong()
+            > checkpoint.get(KEY_WORD_CHECKPOINT_RECORDS).getAsLong())) {
+          checkpoint = previousCheckpoint;
+        }
+        if (workUnitSizer.isEnabled() && wuState.contains(KEY_WORD_WORK_UNIT_ROWS)) {
+          workUnitSizer.addStatistics(wuState.getWorkunit().getLowWatermark(LongWatermark.class).getValue(),
+              wuState.getWorkunit().getExpectedHighWatermark(LongWatermark.class).getValue(),
+              wuState.getPropAsLong(KEY_WORD_WORK_UNIT_ROWS, 0L),
+              wuState.getPropAsLong(KEY_WORD_WORK_UNIT_DURATION, 0L));
+        }
+      }
+      if (!hasState) {
+        continue;
+      }
 
       // Unit watermarks might contain encoded file separator,
       // in such case, we will decode the watermark name so that it can be compared with
       // work unit signatures
-      LOG.debug("Dataset Signature: {}, High Watermark: {}", EndecoUtils.getHadoopFsDecoded(entry.getKey()), highWatermark);
-      watermarks.put(EndecoUtils.getHadoopFsDecoded(entry.getKey()), highWatermark);
+      String signature = entry.getKey().indexOf('%') < 0
+          ? entry.getKey() : EndecoUtils.getHadoopFsDecoded(entry.getKey());
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Dataset Signature: {}, High Watermark: {}", signature, highWatermark);
+      }
+      watermarks.put(signature, highWatermark);
+      if (checkpoint != null) {
+        previousCheckpoints.put(signature, checkpoint);
+      }
+    }
+    LOG.info("Indexed previous high watermarks of {} datasets", watermarks.size());
+    return Collections.unmodifiableMap(watermarks);
+  }
+
+  /**
+   * Get the checkpoint of a work unit that failed after saving a checkpoint
+   *
+   * @param wuState the previous work unit state
+   * @return the checkpoint, or null if the work unit succeeded or didn't save a valid checkpoint
+   */
+  private JsonObject getCheckpoint(WorkUnitState wuState) {
+    if (wuState.getWorkingState() == WorkUnitState.WorkingState.SUCCESSFUL
+        || wuState.getWorkingState() == WorkUnitState.WorkingState.COMMITTED
+        || StringUtils.isBlank(wuState.getProp(KEY_WORD_WORK_UNIT_CHECKPOINT))) {
+      return null;
     }
-    return ImmutableMap.copyOf(watermarks);
+    try {
+      JsonObject checkpoint = new JsonParser().parse(wuState.getProp(KEY_WORD_WORK_UNIT_CHECKPOINT)).getAsJsonObject();
+      if (checkpoint.has("low") && checkpoint.has("high") && checkpoint.has(KEY_WORD_CHECKPOINT_RECORDS)) {
+        return checkpoint;
+      }
+    } catch (Exception e) {
+      LOG.warn("Ignoring invalid checkpoint: {}", e.getMessage());
+    }
+    return null;
   }
 
   Extract createExtractObject(final boolean isFull) {
@@ -466,16 +683,6 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
     return extract;
   }
 
-  private String getWorkUnitSignature(
-      String datetimeWatermarkName,
-      Long datetimePartition,
-      String unitWatermarkName,
-      String unitPartition) {
-    List<String> list = Lists.newArrayList(datetimeWatermarkName + PROPERTY_SEPARATOR + datetimePartition,
-        unitWatermarkName + PROPERTY_SEPARATOR  + unitPartition);
-    return list.toString();
-  }
-
   /**
    * retrieve the authentication data from secondary input
    * TODO there is a slight inefficiency here
@@ -7,33 +7,64 @@ package com.linkedin.cdi.source;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.linkedin.cdi.connection.S3Connection;
 import com.linkedin.cdi.extractor.MultistageExtractor;
+import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.S3Keys;
+import com.linkedin.cdi.util.VariableUtils;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.configuration.WorkUnitState;
 import org.apache.gobblin.source.extractor.Extractor;
+import org.apache.gobblin.source.workunit.WorkUnit;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.S3Object;
 
 import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
 
 
 public class S3SourceV2 extends MultistageSource<Schema, GenericRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(S3SourceV2.class);
   private static final String KEY_REGION = "region";
   private static final String KEY_CONNECTION_TIMEOUT = "connection_timeout";
+  private static final String KEY_DOWNLOAD_PART_SIZE_MB = "download_part_size_mb";
+  private static final String KEY_DOWNLOAD_PARALLELISM = "download_parallelism";
+  private static final String KEY_WORK_UNIT_PER_OBJECT = "work_unit_per_object";
+  private static final String KEY_LIST_PARALLELISM = "list_parallelism";
+  private static final String KEY_INCREMENTAL_LISTING = "incremental_listing";
+  private static final String KEY_ASYNC_DOWNLOAD = "async_download";
+  private static final String KEY_MAX_CONCURRENCY = "max_concurrency";
+  private static final String KEY_MAX_PENDING_ACQUIRES = "max_pending_acquires";
+  private static final String KEY_READ_BUFFER_SIZE_KB = "read_buffer_size_kb";
+  private static final String KEY_LISTING_TIME = "time";
+  private static final String KEY_LISTING_WATERMARK = "watermark";
+  private static final String KEY_LISTING_EXTRACTED = "extracted";
+  private static final String KEY_LISTING_SCHEDULED = "scheduled";
+  private static final String KEY_LISTING_UNSCHEDULED = "unscheduled";
+  private static final int MAX_DOWNLOAD_PART_SIZE_MB = 1024;
+  private static final Gson GSON = new Gson();
   private static final HashSet<String> S3_REGIONS_SET =
       Region.regions().stream().map(region -> region.toString()).collect(Collectors.toCollection(HashSet::new));
   private S3Keys s3SourceV2Keys = new S3Keys();
+  private JsonObject listing = null;
+  private final Map<String, Long> listed = new HashMap<>();
 
   public S3Keys getS3SourceV2Keys() {
     return s3SourceV2Keys;
@@ -86,6 +117,50 @@ public class S3SourceV2 extends MultistageSource<Schema, GenericRecord> {
       s3SourceV2Keys.setConnectionTimeout(connectionTimeout);
     }
 
+    // set ranged download part size and parallelism, the part size has to fit in memory
+    if (parameters.has(KEY_DOWNLOAD_PART_SIZE_MB)) {
+      int partSize = parameters.get(KEY_DOWNLOAD_PART_SIZE_MB).getAsInt();
+      if (partSize <= 0 || partSize > MAX_DOWNLOAD_PART_SIZE_MB) {
+        throw new IllegalArgumentException(partSize + " is not a valid download part size.");
+      }
+      s3SourceV2Keys.setDownloadPartSize(partSize * 1024L * 1024L);
+    }
+    if (parameters.has(KEY_DOWNLOAD_PARALLELISM)) {
+      int parallelism = parameters.get(KEY_DOWNLOAD_PARALLELISM).getAsInt();
+      if (parallelism <= 0) {
+        throw new IllegalArgumentException(parallelism + " is not a valid download parallelism.");
+      }
+      s3SourceV2Keys.setDownloadParallelism(parallelism);
+    }
+
+    if (parameters.has(KEY_WORK_UNIT_PER_OBJECT)) {
+      s3SourceV2Keys.setWorkUnitPerObject(parameters.get(KEY_WORK_UNIT_PER_OBJECT).getAsBoolean());
+    }
+    if (parameters.has(KEY_LIST_PARALLELISM)) {
+      int parallelism = parameters.get(KEY_LIST_PARALLELISM).getAsInt();
+      if (parallelism <= 0) {
+        throw new IllegalArgumentException(parallelism + " is not a valid list parallelism.");
+      }
+      s3SourceV2Keys.setListParallelism(parallelism);
+    }
+    if (parameters.has(KEY_INCREMENTAL_LISTING)) {
+      s3SourceV2Keys.setIncrementalListing(parameters.get(KEY_INCREMENTAL_LISTING).getAsBoolean());
+    }
+
+    // set async download client settings, non-positive integers are rejected
+    if (parameters.has(KEY_ASYNC_DOWNLOAD)) {
+      s3SourceV2Keys.setAsyncDownload(parameters.get(KEY_ASYNC_DOWNLOAD).getAsBoolean());
+    }
+    if (parameters.has(KEY_MAX_CONCURRENCY)) {
+      s3SourceV2Keys.setMaxConcurrency(getPositiveInt(parameters, KEY_MAX_CONCURRENCY));
+    }
+    if (parameters.has(KEY_MAX_PENDING_ACQUIRES)) {
+      s3SourceV2Keys.setMaxPendingAcquires(getPositiveInt(parameters, KEY_MAX_PENDING_ACQUIRES));
+    }
+    if (parameters.has(KEY_READ_BUFFER_SIZE_KB)) {
+      s3SourceV2Keys.setReadBufferSize(getPositiveInt(parameters, KEY_READ_BUFFER_SIZE_KB) * 1024);
+    }
+
     // separate the endpoint, which should be a URL without bucket name, from the domain name
     s3SourceV2Keys.setEndpoint("https://" + getEndpointFromHost(url.getHost()));
     s3SourceV2Keys.setPrefix(url.getPath().substring(1));
@@ -102,6 +177,210 @@ public class S3SourceV2 extends MultistageSource<Schema, GenericRecord> {
     s3SourceV2Keys.logDebugAll();
   }
 
+  /**
+   * When work unit per object is enabled, list the objects under the prefix, and add one
+   * activation for each object, so that each object is extracted by its own work unit,
+   * and each object has its own watermark.
+   *
+   * The activation of an object has its key, ETag, size, and last modified time. Therefore,
+   * when an object is replaced, it will have a new work unit signature, and it will be
+   * extracted again.
+   *
+   * With incremental listing, objects that were extracted successfully by prior runs, or
+   * were last modified before them, are skipped. See {@link #getListingWatermark}.
+   *
+   * The number of work units is limited by ms.work.unit.parallelism.max; therefore, when
+   * more objects are listed, only the first objects that need extraction are extracted by
+   * this run, and the others are extracted by the following runs.
+   *
+   * @param state source state
+   * @param retries number of retries reading secondary input
+   * @return secondary inputs, with object activations added
+   */
+  @Override
+  protected Map<String, JsonArray> readSecondaryInputs(State state, final long retries) {
+    Map<String, JsonArray> secondaryInputs = super.readSecondaryInputs(state, retries);
+    listing = null;
+    listed.clear();
+    if (!s3SourceV2Keys.isWorkUnitPerObject()) {
+      return secondaryInputs;
+    }
+
+    if (VariableUtils.hasVariable(s3SourceV2Keys.getPrefix())) {
+      throw new IllegalArgumentException("Work unit per object requires a prefix without variables: "
+          + s3SourceV2Keys.getPrefix());
+    }
+
+    Map<String, Long> extracted = new HashMap<>();
+    if (s3SourceV2Keys.isIncrementalListing() && sourceState != null) {
+      long watermark = getListingWatermark(sourceState, extracted);
+      s3SourceV2Keys.setModifiedSince(watermark);
+      LOG.info("Listing objects modified since {}", watermark);
+      listing = new JsonObject();
+      listing.addProperty(KEY_LISTING_TIME, DateTime.now().getMillis());
+      listing.addProperty(KEY_LISTING_WATERMARK, watermark);
+      listing.add(KEY_LISTING_EXTRACTED, GSON.toJsonTree(extracted));
+    }
+
+    JsonArray activations = secondaryInputs.computeIfAbsent(KEY_WORD_ACTIVATION, x -> new JsonArray());
+    for (S3Object object : listObjects(state)) {
+      if (extracted.containsKey(object.key() + object.eTag())) {
+        continue;
+      }
+      JsonObject activation = new JsonObject();
+      activation.addProperty(KEY_WORD_S3_KEY, object.key());
+      activation.addProperty(KEY_WORD_S3_ETAG, object.eTag());
+      activation.addProperty(KEY_WORD_S3_SIZE, object.size());
+      if (object.lastModified() != null) {
+        activation.addProperty(KEY_WORD_S3_MODIFIED, object.lastModified().toEpochMilli());
+        listed.put(object.key() + object.eTag(), object.lastModified().toEpochMilli());
+      }
+      activations.add(activation);
+    }
+    LOG.info("Listed {} objects, each will be extracted by a work unit", activations.size());
+    if (MSTAGE_WORK_UNIT_PARALLELISM_MAX.isValidNonblank(state)
+        && activations.size() > MSTAGE_WORK_UNIT_PARALLELISM_MAX.get(state)) {
+      LOG.warn("Listed objects are more than {}, only the first objects that need extraction are extracted "
+          + "in this run", MSTAGE_WORK_UNIT_PARALLELISM_MAX.get(state));
+    }
+    return secondaryInputs;
+  }
+
+  /**
+   * With incremental listing, the listing state of this run is saved in the first work unit,
+   * so that the following runs can start from it, even if this run has no object to extract.
+   *
+   * Besides the listing watermark and the objects extracted since the watermark, the listing
+   * state has the objects scheduled in this run, and the earliest last modified time of
+   * the objects that were listed but not scheduled in this run.
+   *
+   * @param state source state
+   * @return work units, the first of which has the listing state
+   */
+  @Override
+  public List<WorkUnit> getWorkunits(SourceState state) {
+    List<WorkUnit> workUnits = super.getWorkunits(state);
+    if (listing == null || workUnits.isEmpty()) {
+      return workUnits;
+    }
+
+    Map<String, Long> scheduled = new HashMap<>();
+    for (WorkUnit workUnit : workUnits) {
+      JsonObject activation = MSTAGE_ACTIVATION_PROPERTY.get(workUnit);
+      if (activation.has(KEY_WORD_S3_MODIFIED)) {
+        scheduled.put(getObjectId(activation), activation.get(KEY_WORD_S3_MODIFIED).getAsLong());
+      }
+    }
+    long earliestUnscheduled = listed.entrySet().stream()
+        .filter(entry -> !scheduled.containsKey(entry.getKey()))
+        .mapToLong(Map.Entry::getValue)
+        .min().orElse(Long.MAX_VALUE);
+    listing.add(KEY_LISTING_SCHEDULED, GSON.toJsonTree(scheduled));
+    listing.addProperty(KEY_LISTING_UNSCHEDULED, earliestUnscheduled);
+    workUnits.get(0).setProp(KEY_WORD_S3_LISTING, listing.toString());
+    return workUnits;
+  }
+
+  /**
+   * List the objects under the prefix, filtered by the files pattern and the listing watermark
+   * @param state source state
+   * @return the objects ordered by key
+   */
+  List<S3Object> listObjects(State state) {
+    S3Connection connection = new S3Connection(state, s3SourceV2Keys, new ExtractorKeys());
+    try {
+      return connection.getObjects(s3SourceV2Keys.getPrefix());
+    } finally {
+      connection.closeAll(StringUtils.EMPTY);
+    }
+  }
+
+  private int getPositiveInt(JsonObject parameters, String key) {
+    int value = parameters.get(key).getAsInt();
+    if (value <= 0) {
+      throw new IllegalArgumentException(value + " is not a valid value of " + key);
+    }
+    return value;
+  }
+
+  /**
+   * The listing watermark starts from the latest listing state saved by prior runs, and moves
+   * to the latest last modified time of objects extracted successfully, but it doesn't move
+   * past the objects that were scheduled and not extracted successfully, or the objects that
+   * were listed but not scheduled, because of ms.work.unit.parallelism.max.
+   *
+   * Without a saved listing state, the watermark is the latest last modified time of objects
+   * extracted successfully by prior runs, or the earliest last modified time of objects that
+   * were not extracted successfully, whichever is earlier.
+   *
+   * The watermark is inclusive because S3 last modified times are in seconds, therefore
+   * objects extracted successfully are also returned, so that they can be skipped.
+   *
+   * @param state source state with prior work unit states
+   * @param extracted collects the keys and ETags of objects extracted successfully, and
+   *                  their last modified times, since the watermark
+   * @return the listing watermark in milliseconds
+   */
+  private long getListingWatermark(SourceState state, Map<String, Long> extracted) {
+    JsonObject previous = null;
+    for (WorkUnitState wuState : state.getPreviousWorkUnitStates()) {
+      if (wuState.contains(KEY_WORD_S3_LISTING)) {
+        JsonObject candidate = GSON.fromJson(wuState.getProp(KEY_WORD_S3_LISTING), JsonObject.class);
+        if (previous == null || candidate.get(KEY_LISTING_TIME).getAsLong() > previous.get(KEY_LISTING_TIME).getAsLong()) {
+          previous = candidate;
+        }
+      }
+    }
+
+    long latestSucceeded = 0;
+    long earliestPending = Long.MAX_VALUE;
+    if (previous != null) {
+      latestSucceeded = previous.get(KEY_LISTING_WATERMARK).getAsLong();
+      earliestPending = previous.get(KEY_LISTING_UNSCHEDULED).getAsLong();
+      extracted.putAll(getObjectTimes(previous.getAsJsonObject(KEY_LISTING_EXTRACTED)));
+    }
+
+    for (WorkUnitState wuState : state.getPreviousWorkUnitStates()) {
+      JsonObject activation = MSTAGE_ACTIVATION_PROPERTY.get(wuState);
+      if (!activation.has(KEY_WORD_S3_MODIFIED)) {
+        continue;
+      }
+      long modified = activation.get(KEY_WORD_S3_MODIFIED).getAsLong();
+      if (wuState.getWorkingState() == WorkUnitState.WorkingState.COMMITTED
+          || wuState.getWorkingState() == WorkUnitState.WorkingState.SUCCESSFUL) {
+        latestSucceeded = Math.max(latestSucceeded, modified);
+        extracted.put(getObjectId(activation), modified);
+      } else if (previous == null) {
+        earliestPending = Math.min(earliestPending, modified);
+      }
+    }
+
+    // objects scheduled by the last run, and not extracted successfully, are extracted again
+    if (previous != null) {
+      for (Map.Entry<String, Long> entry : getObjectTimes(previous.getAsJsonObject(KEY_LISTING_SCHEDULED)).entrySet()) {
+        if (!extracted.containsKey(entry.getKey())) {
+          earliestPending = Math.min(earliestPending, entry.getValue());
+        }
+      }
+    }
+
+    long watermark = Math.min(latestSucceeded, earliestPending);
+    extracted.values().removeIf(modified -> modified < watermark);
+    return watermark;
+  }
+
+  private String getObjectId(JsonObject activation) {
+    return activation.get(KEY_WORD_S3_KEY).getAsString() + activation.get(KEY_WORD_S3_ETAG).getAsString();
+  }
+
+  private Map<String, Long> getObjectTimes(JsonObject objects) {
+    Map<String, Long> times = new HashMap<>();
+    for (Map.Entry<String, JsonElement> entry : objects.entrySet()) {
+      times.put(entry.getKey(), entry.getValue().getAsLong());
+    }
+    return times;
+  }
+
   /**
    * Create extractor based on the input WorkUnitState, the extractor.class
    * configuration, and a new S3Connection
@@ -4,14 +4,19 @@
 
 package com.linkedin.cdi.source;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.linkedin.cdi.connection.SftpConnection;
 import com.linkedin.cdi.extractor.MultistageExtractor;
+import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.SftpKeys;
 import com.linkedin.cdi.util.VariableUtils;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Map;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.gobblin.configuration.ConfigurationKeys;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.configuration.WorkUnitState;
@@ -20,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
 
 
 /**
@@ -27,6 +33,7 @@ import static com.linkedin.cdi.configuration.PropertyCollection.*;
  */
 public class SftpSource extends MultistageSource<Schema, GenericRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(SftpSource.class);
+  private static final String KEY_WORK_UNIT_PER_FILE = "work_unit_per_file";
   SftpKeys sftpSourceKeys;
 
   public SftpKeys getSftpSourceKeys() {
@@ -48,9 +55,49 @@ public class SftpSource extends MultistageSource<Schema, GenericRecord> {
     sftpSourceKeys.setFilesPattern(MSTAGE_SOURCE_FILES_PATTERN.get(state));
     sftpSourceKeys.setTargetFilePattern(
         MSTAGE_EXTRACTOR_TARGET_FILE_NAME.get(state));
+    JsonObject parameters = MSTAGE_SOURCE_SFTP_PARAMETERS.get(state);
+    if (parameters.has(KEY_WORK_UNIT_PER_FILE)) {
+      sftpSourceKeys.setWorkUnitPerFile(parameters.get(KEY_WORK_UNIT_PER_FILE).getAsBoolean());
+    }
     sftpSourceKeys.logDebugAll();
   }
 
+  /**
+   * When work unit per file is enabled, list the files matching the files pattern, and add
+   * one activation for each file, so that files are downloaded concurrently by their own
+   * work units, and each file has its own watermark.
+   *
+   * @param state source state
+   * @param retries number of retries reading secondary input
+   * @return secondary inputs, with file activations added
+   */
+  @Override
+  protected Map<String, JsonArray> readSecondaryInputs(State state, final long retries) {
+    Map<String, JsonArray> secondaryInputs = super.readSecondaryInputs(state, retries);
+    if (!sftpSourceKeys.isWorkUnitPerFile()) {
+      return secondaryInputs;
+    }
+
+    if (VariableUtils.hasVariable(sftpSourceKeys.getFilesPath())) {
+      throw new IllegalArgumentException("Work unit per file requires a source path without variables: "
+          + sftpSourceKeys.getFilesPath());
+    }
+
+    SftpConnection connection = new SftpConnection(state, sftpSourceKeys, new ExtractorKeys());
+    JsonArray activations = secondaryInputs.computeIfAbsent(KEY_WORD_ACTIVATION, x -> new JsonArray());
+    try {
+      for (String file : connection.getMatchedFiles(sftpSourceKeys.getFilesPath())) {
+        JsonObject activation = new JsonObject();
+        activation.addProperty(KEY_WORD_SFTP_FILE, file);
+        activations.add(activation);
+      }
+    } finally {
+      connection.closeAll(StringUtils.EMPTY);
+    }
+    LOG.info("Listed {} files, each will be extracted by a work unit", activations.size());
+    return secondaryInputs;
+  }
+
   /**
    * Create extractor based on the input WorkUnitState, the extractor.class
    * configuration, and a new SftpConnection
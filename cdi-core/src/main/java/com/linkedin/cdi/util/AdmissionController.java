@@ -0,0 +1,108 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Admits work units of a job to start processing, so that at most a number of work units
+ * run concurrently, and consecutive work units start at least an interval apart.
+ *
+ * Work units take turns in the order they ask for admission. When a running work unit
+ * finishes, the next waiting work unit starts right away, subject to the interval,
+ * instead of waiting for a start time fixed at planning time. Waiting work units block
+ * on a fair semaphore, and pacing reserves the next start time, so that no thread polls.
+ *
+ * Work units of the same job in the same JVM share one controller. The controller is
+ * discarded when no work unit of the job is running or waiting.
+ */
+public class AdmissionController {
+  private static final Logger LOG = LoggerFactory.getLogger(AdmissionController.class);
+  private static final ConcurrentHashMap<String, AdmissionController> CONTROLLERS = new ConcurrentHashMap<>();
+
+  private final String jobId;
+  private final Semaphore permits;
+  private final long intervalMillis;
+  // the number of work units holding or waiting for admission, guarded by CONTROLLERS
+  private int users = 0;
+  // the earliest time the next work unit can start, guarded by this
+  private long nextAdmission = 0;
+
+  private AdmissionController(String jobId, int maxConcurrency, long intervalMillis) {
+    this.jobId = jobId;
+    this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * Wait until a work unit can start
+   * @param jobId the job ID shared by work units of the same job
+   * @param maxConcurrency the maximum number of work units running concurrently, 0 for no limit
+   * @param intervalMillis the minimum interval between the starts of work units, 0 for no limit
+   * @return the controller, which has to be released when the work unit finishes
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public static AdmissionController admit(String jobId, int maxConcurrency, long intervalMillis)
+      throws InterruptedException {
+    AdmissionController controller = CONTROLLERS.compute(jobId, (key, existing) -> {
+      AdmissionController value = existing == null
+          ? new AdmissionController(jobId, maxConcurrency, intervalMillis) : existing;
+      value.users++;
+      return value;
+    });
+    try {
+      controller.acquire();
+    } catch (InterruptedException e) {
+      controller.leave();
+      throw e;
+    }
+    return controller;
+  }
+
+  /**
+   * Release the admission, so that the next waiting work unit can start
+   */
+  public void release() {
+    if (permits != null) {
+      permits.release();
+    }
+    leave();
+  }
+
+  private void acquire() throws InterruptedException {
+    if (permits != null) {
+      permits.acquire();
+    }
+    if (intervalMillis > 0) {
+      long wait;
+      synchronized (this) {
+        long now = System.currentTimeMillis();
+        long admission = Math.max(now, nextAdmission);
+        nextAdmission = admission + intervalMillis;
+        wait = admission - now;
+      }
+      if (wait > 0) {
+        LOG.info("Work unit of job {} is paced to start in {} ms", jobId, wait);
+        try {
+          TimeUnit.MILLISECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+          if (permits != null) {
+            permits.release();
+          }
+          throw e;
+        }
+      }
+    }
+  }
+
+  private void leave() {
+    CONTROLLERS.computeIfPresent(jobId, (key, existing) -> --existing.users == 0 ? null : existing);
+  }
+}
@@ -0,0 +1,86 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+/**
+ * Backoff strategies for polling a source while waiting for a session to finish,
+ * like waiting for an asynchronous export to complete.
+ *
+ * none keeps the same interval between checks
+ * <p>
+ * exponential doubles the interval after each check: 1, 2, 4, 8, ... times the base interval
+ * <p>
+ * fibonacci grows the interval by the Fibonacci sequence: 1, 1, 2, 3, 5, ... times the base interval
+ */
+public enum BackoffTypes {
+  NONE("none") {
+    @Override
+    protected long getMultiplier(int attempt) {
+      return 1;
+    }
+  },
+  EXPONENTIAL("exponential") {
+    @Override
+    protected long getMultiplier(int attempt) {
+      return 1L << Math.min(attempt, MAX_ATTEMPTS);
+    }
+  },
+  FIBONACCI("fibonacci") {
+    @Override
+    protected long getMultiplier(int attempt) {
+      long previous = 0;
+      long current = 1;
+      for (int i = 0; i < Math.min(attempt, MAX_ATTEMPTS); i++) {
+        long next = previous + current;
+        previous = current;
+        current = next;
+      }
+      return current;
+    }
+  };
+
+  // the growth stops after this many attempts, waits are capped by the session timeout anyway
+  private static final int MAX_ATTEMPTS = 30;
+  private final String name;
+
+  BackoffTypes(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  /**
+   * @param attempt the number of prior checks, starting from 0
+   * @return the multiplier of the base interval
+   */
+  protected abstract long getMultiplier(int attempt);
+
+  /**
+   * Calculate the wait time before the next check
+   * @param baseInterval the interval before the first check in milliseconds
+   * @param attempt the number of prior checks, starting from 0
+   * @return the wait time in milliseconds
+   */
+  public long getInterval(long baseInterval, int attempt) {
+    return baseInterval * getMultiplier(Math.max(attempt, 0));
+  }
+
+  /**
+   * Convert a string to a backoff type, case-insensitive
+   * @param name the name of the backoff type
+   * @return the backoff type, NONE if the name is not recognized
+   */
+  public static BackoffTypes fromString(String name) {
+    for (BackoffTypes type : BackoffTypes.values()) {
+      if (type.name.equalsIgnoreCase(name)) {
+        return type;
+      }
+    }
+    return NONE;
+  }
+}
@@ -5,18 +5,35 @@
 package com.linkedin.cdi.util;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.mapred.FsInput;
@@ -29,6 +46,7 @@ import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
 import static com.linkedin.cdi.configuration.StaticConstants.*;
 
 
@@ -41,6 +59,10 @@ import static com.linkedin.cdi.configuration.StaticConstants.*;
  *
  * All files in the location should have consistent format and contain the fields of selection.
  *
+ * Records are read lazily, file by file, and only the fields of selection and the fields
+ * with filters are decoded from each file. Up to ms.secondary.input.parallelism files are
+ * read concurrently, and their records are returned in the order of the files.
+ *
  * @author vbhrill chrli
  */
 
@@ -83,14 +105,12 @@ public class HdfsReader {
     }
     Map<String, JsonArray> secondaryInput = new HashMap<>();
     for (JsonElement input: transientInputPayload) {
-      JsonArray transientData = new JsonArray();
       JsonElement path = input.getAsJsonObject().get("path");
-      List<String> fieldList = getFieldsAsList(input);
       String category = input.getAsJsonObject().has(KEY_WORD_CATEGORY)
           ? input.getAsJsonObject().get(KEY_WORD_CATEGORY).getAsString()
           : KEY_WORD_ACTIVATION;
       if (path != null) {
-        transientData.addAll(readRecordsFromPath(path.getAsString(), fieldList, getFilters(input)));
+        JsonArray transientData = toJsonArray(iterateSecondary(input.getAsJsonObject()));
         if (secondaryInput.containsKey(category)) {
           transientData.addAll(secondaryInput.get(category));
         }
@@ -111,14 +131,24 @@ public class HdfsReader {
     if (!secondaryEntry.has(("path"))) {
       return new JsonArray();
     }
-
-    JsonArray secondaryData = new JsonArray();
-    JsonElement path = secondaryEntry.get("path");
-    List<String> fieldList = getFieldsAsList(secondaryEntry);
-    secondaryData.addAll(readRecordsFromPath(path.getAsString(), fieldList, getFilters(secondaryEntry)));
-    return secondaryData;
+    return toJsonArray(iterateSecondary(secondaryEntry));
   }
 
+  /**
+   * Reads a secondary input lazily. The files in the path are listed at once, but
+   * each file is opened when the records before it have been consumed, and each
+   * record is decoded when it is requested.
+   *
+   * @param secondaryEntry one entry in the ms.secondary.input parameter
+   * @return an iterator of the filtered and projected records
+   */
+  public Iterator<JsonObject> iterateSecondary(JsonObject secondaryEntry) {
+    if (!secondaryEntry.has(("path"))) {
+      return new ArrayList<JsonObject>().iterator();
+    }
+    String path = secondaryEntry.get("path").getAsString();
+    return readRecordsFromFiles(listFiles(path), getFieldsAsList(secondaryEntry), getFilters(secondaryEntry));
+  }
 
   public JsonArray toJsonArray(String transientDataInputPayload) {
     try {
@@ -129,40 +159,37 @@ public class HdfsReader {
     }
   }
 
-  private DataFileReader createDataReader(String path) {
+  private JsonArray toJsonArray(Iterator<JsonObject> records) {
+    JsonArray jsonArray = new JsonArray();
+    while (records.hasNext()) {
+      jsonArray.add(records.next());
+    }
+    return jsonArray;
+  }
+
+  private DataFileReader<GenericRecord> createDataReader(String path,
+      GenericDatumReader<GenericRecord> genericDatumReader) {
     try {
-      GenericDatumReader<GenericRecord> genericDatumReader = new GenericDatumReader<>();
       FsInput fsInput = new FsInput(new Path(path), new Configuration());
-      return new DataFileReader(fsInput, genericDatumReader);
+      return new DataFileReader<>(fsInput, genericDatumReader);
     } catch (Exception e) {
       throw new RuntimeException("Error initializing transient data reader", e);
     }
   }
 
   /**
-   * process 1 secondary input path
+   * List the files of 1 secondary input path
    * @param inputLocation the secondary input path
-   * @param fields the list of fields to be output
-   * @param filters the list of filters to ber applied
-   * @return a filter list of records
+   * @return the files under the path
    */
-  private JsonArray readRecordsFromPath(
-      String inputLocation,
-      List<String> fields,
-      Map<String, String> filters) {
-    JsonArray transientDataArray = new JsonArray();
+  private List<String> listFiles(String inputLocation) {
     String sourceFileBasedFsUri = state.getProp(ConfigurationKeys.SOURCE_FILEBASED_FS_URI);
     TimestampAwareFileBasedHelper fsHelper = new AvroFsHelper(state);
     try {
       state.setProp(ConfigurationKeys.SOURCE_FILEBASED_FS_URI, inputLocation);
       fsHelper.connect();
-      List<String> filesToRead = fsHelper.ls(inputLocation);
-      for (String singleFile: filesToRead) {
-        DataFileReader reader = createDataReader(singleFile);
-        transientDataArray.addAll(readFileAsJsonArray(reader, fields, filters));
-      }
-      return transientDataArray;
-      } catch (Exception e) {
+      return fsHelper.ls(inputLocation);
+    } catch (Exception e) {
       throw new RuntimeException("Error while reading records from location " + inputLocation, e);
     } finally {
       if (sourceFileBasedFsUri != null) {
@@ -172,38 +199,204 @@ public class HdfsReader {
   }
 
   /**
-   * This method read 1 avro file and store the records in a JsonArray
-   *
-   * @param preparedReader The avro file reader
-   * @param fields The list of fields to output
-   * @param filters The filters to apply to each records
-   * @return the filtered projection of the avro file in a JsonArray
+   * Read records from a list of avro files lazily
+   * @param files the avro files
+   * @param fields the list of fields to be output
+   * @param filters the filters to be applied, as a map of field name to regular expression
+   * @return an iterator of the filtered and projected records
    */
-  private JsonArray readFileAsJsonArray(
-      DataFileReader preparedReader,
-      List<String> fields,
-      Map<String, String> filters) {
-    JsonArray transientDataArray = new JsonArray();
-    while (preparedReader.hasNext()) {
-      GenericRecord record = (GenericRecord) preparedReader.next();
-      Schema schema = record.getSchema();
-      boolean recordAccepted = true;
-      for (Schema.Field field: schema.getFields()) {
-        String name = field.name();
-        String pattern = filters.getOrDefault(name, ".*");
-        if (record.get(name) != null && !record.get(name).toString().matches(pattern)
-          || filters.containsKey(name) && record.get(name) == null) {
-          recordAccepted = false;
+  @VisibleForTesting
+  Iterator<JsonObject> readRecordsFromFiles(List<String> files, List<String> fields, Map<String, String> filters) {
+    Map<String, Pattern> patterns = new LinkedHashMap<>();
+    for (Map.Entry<String, String> filter : filters.entrySet()) {
+      patterns.put(filter.getKey(), Pattern.compile(filter.getValue()));
+    }
+    int parallelism = MSTAGE_SECONDARY_INPUT_PARALLELISM.get(state);
+    if (parallelism <= 1 || files.size() <= 1) {
+      return new RecordIterator(files, fields, patterns);
+    }
+    return new ParallelRecordIterator(files, fields, patterns, parallelism);
+  }
+
+  /**
+   * Create a reader schema that only has the given fields of the writer schema, so that
+   * other fields are skipped without being decoded
+   * @param writerSchema the schema of an avro file
+   * @param fields the fields to read
+   * @return the reader schema
+   */
+  private Schema getProjectedSchema(Schema writerSchema, Collection<String> fields) {
+    List<Schema.Field> projectedFields = new ArrayList<>();
+    for (String name : fields) {
+      Schema.Field field = writerSchema.getField(name);
+      if (field == null) {
+        throw new RuntimeException(String.format("Field %s is not found in %s", name, writerSchema.getFullName()));
+      }
+      projectedFields.add(new Schema.Field(field.name(), field.schema(), field.doc(), field.defaultVal()));
+    }
+    return Schema.createRecord(writerSchema.getName(), writerSchema.getDoc(), writerSchema.getNamespace(),
+        writerSchema.isError(), projectedFields);
+  }
+
+  /**
+   * Iterates through records of a list of avro files, opening one file at a time
+   */
+  private class RecordIterator implements Iterator<JsonObject> {
+    private final Iterator<String> files;
+    private final List<String> fields;
+    private final Map<String, Pattern> patterns;
+    private DataFileReader<GenericRecord> reader = null;
+    private Map<String, Pattern> fileFilters = null;
+    private GenericRecord record = null;
+    private JsonObject next = null;
+
+    RecordIterator(List<String> files, List<String> fields, Map<String, Pattern> patterns) {
+      this.files = files.iterator();
+      this.fields = fields;
+      this.patterns = patterns;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null) {
+        if (reader == null || !reader.hasNext()) {
+          closeReader();
+          if (!files.hasNext()) {
+            return false;
+          }
+          openReader(files.next());
+          continue;
+        }
+        try {
+          record = reader.next(record);
+        } catch (IOException e) {
+          throw new RuntimeException("Error while reading records from secondary input", e);
+        }
+        if (isAccepted(record)) {
+          next = selectFieldsFromGenericRecord(record, fields);
         }
       }
-      if (recordAccepted) {
-        transientDataArray.add(selectFieldsFromGenericRecord(record, fields));
+      return true;
+    }
+
+    @Override
+    public JsonObject next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      JsonObject result = next;
+      next = null;
+      return result;
+    }
+
+    private void openReader(String file) {
+      GenericDatumReader<GenericRecord> datumReader = new GenericDatumReader<>();
+      reader = createDataReader(file, datumReader);
+      Schema writerSchema = reader.getSchema();
+
+      // filters on fields not in the file are ignored
+      fileFilters = new LinkedHashMap<>();
+      for (Map.Entry<String, Pattern> pattern : patterns.entrySet()) {
+        if (writerSchema.getField(pattern.getKey()) != null) {
+          fileFilters.put(pattern.getKey(), pattern.getValue());
+        }
+      }
+      Set<String> projection = new LinkedHashSet<>(fields);
+      projection.addAll(fileFilters.keySet());
+      datumReader.setExpected(getProjectedSchema(writerSchema, projection));
+      record = null;
+    }
+
+    private void closeReader() {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          LOG.warn("Error closing secondary input file", e);
+        }
+        reader = null;
+      }
+    }
+
+    private boolean isAccepted(GenericRecord record) {
+      for (Map.Entry<String, Pattern> filter : fileFilters.entrySet()) {
+        Object value = record.get(filter.getKey());
+        if (value == null || !filter.getValue().matcher(value.toString()).matches()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Reads files concurrently, each file into a list, and returns the records in the order
+   * of the files. At most "parallelism" files are read ahead of the consumer.
+   */
+  private class ParallelRecordIterator implements Iterator<JsonObject> {
+    private final Iterator<String> files;
+    private final List<String> fields;
+    private final Map<String, Pattern> patterns;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final Deque<Future<List<JsonObject>>> pending = new ArrayDeque<>();
+    private Iterator<JsonObject> current = Collections.emptyIterator();
+
+    ParallelRecordIterator(List<String> files, List<String> fields, Map<String, Pattern> patterns, int parallelism) {
+      this.files = files.iterator();
+      this.fields = fields;
+      this.patterns = patterns;
+      this.parallelism = parallelism;
+      this.executor = Executors.newFixedThreadPool(Math.min(parallelism, files.size()),
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("secondary-input-%d").build());
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!current.hasNext()) {
+        submitFiles();
+        Future<List<JsonObject>> next = pending.poll();
+        if (next == null) {
+          return false;
+        }
+        try {
+          current = next.get().iterator();
+        } catch (InterruptedException e) {
+          executor.shutdownNow();
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while reading records from secondary input", e);
+        } catch (ExecutionException e) {
+          executor.shutdownNow();
+          throw new RuntimeException("Error while reading records from secondary input", e.getCause());
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public JsonObject next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return current.next();
+    }
+
+    private void submitFiles() {
+      while (pending.size() < parallelism && files.hasNext()) {
+        List<String> file = Collections.singletonList(files.next());
+        pending.add(executor.submit(() -> {
+          List<JsonObject> records = new ArrayList<>();
+          new RecordIterator(file, fields, patterns).forEachRemaining(records::add);
+          return records;
+        }));
+      }
+      if (!files.hasNext()) {
+        // the submitted files are still read after shutdown
+        executor.shutdown();
       }
     }
-    return transientDataArray;
   }
 
-  @VisibleForTesting
   private JsonObject selectFieldsFromGenericRecord(GenericRecord record, List<String> fields) {
     JsonObject jsonObject = new JsonObject();
     for (String field: fields) {
@@ -213,16 +406,14 @@ public class HdfsReader {
         jsonObject.add(field, JsonNull.INSTANCE);
       } else if (fieldType == Schema.Type.STRING) {
         jsonObject.addProperty(field, EncryptionUtils.decryptGobblin(valueObject.toString(), state));
-      } else if (fieldType == Schema.Type.ARRAY) {
-        jsonObject.add(field, gson.fromJson(valueObject.toString(), JsonArray.class));
-      } else if (fieldType == Schema.Type.RECORD) {
-        jsonObject.add(field, gson.fromJson(valueObject.toString(), JsonObject.class));
+      } else if (fieldType == Schema.Type.ARRAY || fieldType == Schema.Type.RECORD) {
+        jsonObject.add(field, toJsonElement(valueObject));
       } else if (fieldType == Schema.Type.INT || fieldType == Schema.Type.LONG) {
-        jsonObject.addProperty(field, Long.valueOf(valueObject.toString()));
+        jsonObject.addProperty(field, ((Number) valueObject).longValue());
       } else if (fieldType == Schema.Type.DOUBLE || fieldType == Schema.Type.FLOAT) {
-        jsonObject.addProperty(field, Double.valueOf(valueObject.toString()));
+        jsonObject.addProperty(field, ((Number) valueObject).doubleValue());
       } else if (fieldType == Schema.Type.BOOLEAN) {
-        jsonObject.addProperty(field, Boolean.valueOf(valueObject.toString()));
+        jsonObject.addProperty(field, (Boolean) valueObject);
       } else {
         jsonObject.addProperty(field, valueObject.toString());
       }
@@ -230,6 +421,44 @@ public class HdfsReader {
     return jsonObject;
   }
 
+  /**
+   * Convert a nested avro value to Json directly, without printing and parsing it
+   * @param value the avro value
+   * @return the Json value
+   */
+  private JsonElement toJsonElement(Object value) {
+    if (value == null) {
+      return JsonNull.INSTANCE;
+    } else if (value instanceof GenericRecord) {
+      GenericRecord record = (GenericRecord) value;
+      JsonObject jsonObject = new JsonObject();
+      for (Schema.Field field : record.getSchema().getFields()) {
+        jsonObject.add(field.name(), toJsonElement(record.get(field.pos())));
+      }
+      return jsonObject;
+    } else if (value instanceof Collection) {
+      JsonArray jsonArray = new JsonArray();
+      for (Object element : (Collection<?>) value) {
+        jsonArray.add(toJsonElement(element));
+      }
+      return jsonArray;
+    } else if (value instanceof Map) {
+      JsonObject jsonObject = new JsonObject();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        jsonObject.add(entry.getKey().toString(), toJsonElement(entry.getValue()));
+      }
+      return jsonObject;
+    } else if (value instanceof CharSequence || value instanceof GenericData.EnumSymbol) {
+      return new JsonPrimitive(value.toString());
+    } else if (value instanceof Number) {
+      return new JsonPrimitive((Number) value);
+    } else if (value instanceof Boolean) {
+      return new JsonPrimitive((Boolean) value);
+    }
+    // bytes and fixed values keep the format of avro
+    return gson.fromJson(GenericData.get().toString(value), JsonElement.class);
+  }
+
   /**
    * retrieve the filters from the secondary input definition
    *
@@ -21,17 +21,31 @@ public interface JsonUtils {
   Gson GSON = new Gson();
 
   /**
-   * This deepCopy is a workaround. When it is possible to upgrade Gson to 2.8.1+,
+   * This deepCopy is a workaround. When it is possible to upgrade Gson to 2.8.2+,
    * we shall change code to use Gson deepCopy.
    *
-   * This function is intended to use use small Json, like schema objects. It is not
-   * suitable to deep copy large Json objects.
+   * The copy is made by walking the Json structure instead of serializing and parsing
+   * it. Containers are copied, and primitives, which are immutable, are shared.
    *
    * @param source the source Json object, can be JsonArray, JsonObject, or JsonPrimitive
    * @return the deeply copied Json object
    */
   static JsonElement deepCopy(JsonElement source) {
-    return GSON.fromJson(source.toString(), source.getClass());
+    if (source.isJsonObject()) {
+      JsonObject copy = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry : source.getAsJsonObject().entrySet()) {
+        copy.add(entry.getKey(), deepCopy(entry.getValue()));
+      }
+      return copy;
+    }
+    if (source.isJsonArray()) {
+      JsonArray copy = new JsonArray();
+      for (JsonElement element : source.getAsJsonArray()) {
+        copy.add(deepCopy(element));
+      }
+      return copy;
+    }
+    return source;
   }
 
   /**
@@ -0,0 +1,171 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * An InputStream that reads its upstream on a separate thread, so that reading the upstream,
+ * like downloading, decrypting or decompressing, overlaps with processing the bytes read.
+ *
+ * The upstream is read into a fixed pool of buffers, which are passed to the reader through
+ * a bounded queue, and returned to the pool after they are read. When all buffers are full,
+ * the upstream thread waits for the reader, so the memory used is bounded by the number of
+ * buffers times the buffer size.
+ *
+ * Chaining pipelined streams makes a staged pipeline: each stage runs on its own thread,
+ * consuming the previous stage through a bounded queue.
+ */
+public class PipelinedInputStream extends InputStream {
+  private static final ExecutorService STAGES = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("stream-pipeline-%d").build());
+  private static final Chunk END = new Chunk(new byte[0]);
+
+  private final InputStream upstream;
+  private final BlockingQueue<Chunk> filled;
+  private final BlockingQueue<Chunk> free;
+  private final Future<?> stage;
+  private Chunk current = null;
+  private int position = 0;
+  private boolean finished = false;
+  private volatile boolean closed = false;
+  private volatile IOException failure = null;
+
+  private static class Chunk {
+    private final byte[] bytes;
+    private int length = 0;
+
+    private Chunk(byte[] bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * @param upstream the stream to be read on a separate thread, closed when this stream is closed
+   * @param buffers the number of buffers
+   * @param bufferSize the size of each buffer in bytes
+   */
+  public PipelinedInputStream(InputStream upstream, int buffers, int bufferSize) {
+    if (buffers < 1 || bufferSize < 1) {
+      throw new IllegalArgumentException("The number and size of buffers must be positive");
+    }
+    this.upstream = upstream;
+    // one more slot than buffers, so that the end marker can always be queued
+    this.filled = new ArrayBlockingQueue<>(buffers + 1);
+    this.free = new ArrayBlockingQueue<>(buffers);
+    for (int i = 0; i < buffers; i++) {
+      free.add(new Chunk(new byte[bufferSize]));
+    }
+    this.stage = STAGES.submit(this::fill);
+  }
+
+  /**
+   * Read the upstream into free buffers until the end of the upstream, or until the stream is closed
+   */
+  private void fill() {
+    try {
+      while (!closed) {
+        // each read is passed on as it is, so that the reader doesn't wait for a full buffer
+        Chunk chunk = free.take();
+        chunk.length = upstream.read(chunk.bytes, 0, chunk.bytes.length);
+        if (chunk.length < 0) {
+          break;
+        }
+        filled.put(chunk);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      failure = e;
+    } catch (RuntimeException e) {
+      failure = new IOException(e);
+    } finally {
+      filled.offer(END);
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureAvailable()) {
+      return -1;
+    }
+    return current.bytes[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!ensureAvailable()) {
+      return -1;
+    }
+    int count = Math.min(length, current.length - position);
+    System.arraycopy(current.bytes, position, buffer, offset, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return current == null ? 0 : current.length - position;
+  }
+
+  /**
+   * Make sure there are unread bytes in the current buffer
+   * @return false if the end of the upstream is reached
+   * @throws IOException if the upstream failed or the stream is closed
+   */
+  private boolean ensureAvailable() throws IOException {
+    if (closed) {
+      throw new IOException("Stream is closed");
+    }
+    while (current == null || position >= current.length) {
+      if (finished) {
+        return false;
+      }
+      if (current != null) {
+        free.offer(current);
+        current = null;
+      }
+      Chunk next;
+      try {
+        next = filled.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the upstream");
+      }
+      if (next == END) {
+        finished = true;
+        if (failure != null) {
+          throw failure;
+        }
+        return false;
+      }
+      current = next;
+      position = 0;
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    stage.cancel(true);
+    upstream.close();
+  }
+}
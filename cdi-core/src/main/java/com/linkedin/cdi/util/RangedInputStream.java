@@ -0,0 +1,146 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+
+/**
+ * The base class of InputStreams that download a file in parts using concurrent
+ * range requests, and return the bytes in order.
+ *
+ * At most "parallelism" parts are requested ahead of the reader, so the memory used
+ * is bounded by (parallelism + 1) * part size. Subclasses make the range requests,
+ * and they must call {@link #start(int)} at the end of their constructors.
+ */
+public abstract class RangedInputStream extends InputStream {
+  private final String name;
+  private final long size;
+  private final long partSize;
+  private final Deque<Future<byte[]>> parts = new ArrayDeque<>();
+  private long nextPartStart = 0;
+  private byte[] currentPart = new byte[0];
+  private int position = 0;
+  private boolean closed = false;
+
+  /**
+   * @param name the file name, used in error messages
+   * @param size the size of the file in bytes
+   * @param partSize the number of bytes downloaded by each range request
+   */
+  protected RangedInputStream(String name, long size, long partSize) {
+    this.name = name;
+    this.size = size;
+    this.partSize = partSize;
+  }
+
+  /**
+   * Request the first parts
+   * @param parallelism the number of parts requested ahead of the reader
+   */
+  protected void start(int parallelism) {
+    for (int i = 0; i < parallelism; i++) {
+      scheduleNextPart();
+    }
+  }
+
+  /**
+   * Request a part of the file
+   * @param start the first byte of the part, inclusive
+   * @param end the last byte of the part, inclusive
+   * @return the future bytes of the part
+   */
+  protected abstract Future<byte[]> requestPart(long start, long end);
+
+  /**
+   * Release the resources of range requests, called once when the stream is closed
+   */
+  protected void onClose() {
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureAvailable()) {
+      return -1;
+    }
+    return currentPart[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!ensureAvailable()) {
+      return -1;
+    }
+    int count = Math.min(length, currentPart.length - position);
+    System.arraycopy(currentPart, position, buffer, offset, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return currentPart.length - position;
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      for (Future<byte[]> part : parts) {
+        part.cancel(true);
+      }
+      parts.clear();
+      onClose();
+    }
+  }
+
+  /**
+   * Make sure the current part has unread bytes, moving to the next part if needed
+   * @return false if the end of the file is reached
+   * @throws IOException if a part download fails or the stream is closed
+   */
+  private boolean ensureAvailable() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed: " + name);
+    }
+    while (position >= currentPart.length) {
+      Future<byte[]> next = parts.poll();
+      if (next == null) {
+        return false;
+      }
+      try {
+        currentPart = next.get();
+        position = 0;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new IOException("Interrupted while downloading " + name, e);
+      } catch (ExecutionException e) {
+        close();
+        throw new IOException("Error downloading " + name, e.getCause());
+      }
+      scheduleNextPart();
+    }
+    return true;
+  }
+
+  private void scheduleNextPart() {
+    if (nextPartStart >= size) {
+      return;
+    }
+    final long start = nextPartStart;
+    final long end = Math.min(start + partSize, size) - 1;
+    nextPartStart = end + 1;
+    parts.add(requestPart(start, end));
+  }
+}
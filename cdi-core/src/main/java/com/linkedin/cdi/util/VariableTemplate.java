@@ -0,0 +1,157 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import static com.linkedin.cdi.util.VariableUtils.*;
+
+
+/**
+ * A template string with placeholders or variables, like https://domain/api/{{id}}/items,
+ * compiled into a list of literal segments and variable segments.
+ *
+ * A template is compiled once, typically once per work unit, and then rendered for
+ * each request with the current variable values. Rendering only walks the segments,
+ * it doesn't re-scan the template with regular expressions, and it doesn't chain
+ * String.replace() calls.
+ *
+ * Variables that have no value in the parameters are rendered as is, i.e. {{variable}},
+ * which is the same behavior as {@link VariableUtils#replaceWithTracking(String, JsonObject, Boolean)}.
+ */
+public class VariableTemplate {
+  private final String template;
+  // literals has one more element than variables: literal[0] var[0] literal[1] ... var[n-1] literal[n]
+  private final String[] literals;
+  private final String[] variables;
+  private final Set<String> variableNames;
+
+  private VariableTemplate(String template, List<String> literals, List<String> variables) {
+    this.template = template;
+    this.literals = literals.toArray(new String[0]);
+    this.variables = variables.toArray(new String[0]);
+    this.variableNames = ImmutableSet.copyOf(variables);
+  }
+
+  /**
+   * Compile a template string into segments
+   * @param template the template string with placeholders or variables
+   * @return the compiled template
+   */
+  public static VariableTemplate compile(String template) {
+    List<String> literals = new ArrayList<>();
+    List<String> variables = new ArrayList<>();
+    Matcher matcher = PATTERN.matcher(template);
+    int position = 0;
+    while (matcher.find()) {
+      literals.add(template.substring(position, matcher.start()));
+      variables.add(matcher.group(1));
+      position = matcher.end();
+    }
+    literals.add(template.substring(position));
+    return new VariableTemplate(template, literals, variables);
+  }
+
+  /**
+   * Compile a template string, reusing a previously compiled template when available.
+   *
+   * Only strings with variables are kept in the cache, so that the cache doesn't grow
+   * with plain values that change from request to request.
+   *
+   * @param template the template string with placeholders or variables
+   * @param compiled the cache of compiled templates, usually owned by a work unit
+   * @return the compiled template
+   */
+  public static VariableTemplate compile(String template, Map<String, VariableTemplate> compiled) {
+    VariableTemplate variableTemplate = compiled.get(template);
+    if (variableTemplate == null) {
+      variableTemplate = compile(template);
+      if (variableTemplate.hasVariable()) {
+        compiled.put(template, variableTemplate);
+      }
+    }
+    return variableTemplate;
+  }
+
+  public String getTemplate() {
+    return template;
+  }
+
+  /**
+   * @return the distinct names of the variables in the template
+   */
+  public Set<String> getVariables() {
+    return variableNames;
+  }
+
+  /**
+   * @return true if the template has at least one variable
+   */
+  public boolean hasVariable() {
+    return variables.length > 0;
+  }
+
+  /**
+   * Render the template with the variable values
+   *
+   * @param parameters the replacement values coded in a JsonObject format
+   * @param encode whether to URL encode the replacement values, the template itself is never encoded
+   * @return the rendered string
+   * @throws UnsupportedEncodingException
+   */
+  public String render(JsonObject parameters, boolean encode) throws UnsupportedEncodingException {
+    if (variables.length == 0) {
+      return template;
+    }
+    StringBuilder builder = new StringBuilder(template.length() + 16 * variables.length);
+    for (int i = 0; i < variables.length; i++) {
+      builder.append(literals[i]);
+      JsonElement value = parameters.get(variables[i]);
+      if (value == null) {
+        builder.append(OPENING).append(variables[i]).append(CLOSING);
+      } else {
+        builder.append(encode ? URLEncoder.encode(value.getAsString(), "UTF-8") : value.getAsString());
+      }
+    }
+    builder.append(literals[variables.length]);
+    return builder.toString();
+  }
+
+  /**
+   * Render the template with the variable values, and keep track of parameters that are
+   * not used by the template
+   *
+   * @param parameters the replacement values coded in a JsonObject format
+   * @param encode whether to URL encode the replacement values, the template itself is never encoded
+   * @return a pair made of the rendered string and whatever parameters that were not used
+   * @throws UnsupportedEncodingException
+   */
+  public Pair<String, JsonObject> renderWithTracking(JsonObject parameters, boolean encode)
+      throws UnsupportedEncodingException {
+    JsonObject remainingParameters = new JsonObject();
+    for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
+      if (!variableNames.contains(entry.getKey())) {
+        remainingParameters.add(entry.getKey(), entry.getValue());
+      }
+    }
+    return new ImmutablePair<>(render(parameters, encode), remainingParameters);
+  }
+
+  @Override
+  public String toString() {
+    return template;
+  }
+}
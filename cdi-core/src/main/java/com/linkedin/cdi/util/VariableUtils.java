@@ -6,15 +6,18 @@ package com.linkedin.cdi.util;
 
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 
@@ -37,8 +40,7 @@ public interface VariableUtils {
    * @throws UnsupportedEncodingException
    */
   static JsonObject replace(JsonObject templateJsonObject, JsonObject parameters) throws UnsupportedEncodingException {
-    String replacedString = replaceWithTracking(templateJsonObject.toString(), parameters, false).getKey();
-    return GSON.fromJson(replacedString, JsonObject.class);
+    return replace(templateJsonObject, parameters, false);
   }
 
   /**
@@ -53,8 +55,51 @@ public interface VariableUtils {
    */
   static JsonObject replace(JsonObject templateJsonObject, JsonObject parameters, Boolean encode)
       throws UnsupportedEncodingException {
-    String replacedString = replaceWithTracking(templateJsonObject.toString(), parameters, encode).getKey();
-    return GSON.fromJson(replacedString, JsonObject.class);
+    return replace(templateJsonObject, parameters, encode, new HashMap<>(), new HashSet<>()).getAsJsonObject();
+  }
+
+  /**
+   * Replace placeholders or variables in the keys and string values of a JsonElement, recursively.
+   *
+   * Unlike replacing on the serialized string, this doesn't need to serialize and parse the Json
+   * element, and the replacement values are never interpreted as Json.
+   *
+   * @param template the template JsonElement with placeholders
+   * @param parameters the replacement values
+   * @param encode whether to encode the value string
+   * @param compiled cache of compiled templates, typically kept for the life of a work unit
+   * @param usedVariables collects the names of all variables found in the template
+   * @return the replaced JsonElement, primitives without variables are shared with the template
+   * @throws UnsupportedEncodingException
+   */
+  static JsonElement replace(JsonElement template, JsonObject parameters, boolean encode,
+      Map<String, VariableTemplate> compiled, Set<String> usedVariables) throws UnsupportedEncodingException {
+    if (template.isJsonObject()) {
+      JsonObject replaced = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry : template.getAsJsonObject().entrySet()) {
+        VariableTemplate key = VariableTemplate.compile(entry.getKey(), compiled);
+        usedVariables.addAll(key.getVariables());
+        replaced.add(key.render(parameters, encode),
+            replace(entry.getValue(), parameters, encode, compiled, usedVariables));
+      }
+      return replaced;
+    }
+
+    if (template.isJsonArray()) {
+      JsonArray replaced = new JsonArray();
+      for (JsonElement element : template.getAsJsonArray()) {
+        replaced.add(replace(element, parameters, encode, compiled, usedVariables));
+      }
+      return replaced;
+    }
+
+    if (template.isJsonPrimitive() && template.getAsJsonPrimitive().isString()
+        && template.getAsString().contains(OPENING)) {
+      VariableTemplate value = VariableTemplate.compile(template.getAsString(), compiled);
+      usedVariables.addAll(value.getVariables());
+      return new JsonPrimitive(value.render(parameters, encode));
+    }
+    return template;
   }
 
   /**
@@ -80,20 +125,7 @@ public interface VariableUtils {
    */
   static Pair<String, JsonObject> replaceWithTracking(String templateString, JsonObject parameters, Boolean encode)
       throws UnsupportedEncodingException {
-    String replacedString = templateString;
-    JsonObject remainingParameters = new JsonObject();
-
-    List<String> variables = getVariables(templateString);
-
-    for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
-      if (variables.contains(entry.getKey())) {
-        replacedString = replacedString.replace(OPENING + entry.getKey() + CLOSING,
-            encode ? URLEncoder.encode(entry.getValue().getAsString(), "UTF-8") : entry.getValue().getAsString());
-      } else {
-        remainingParameters.add(entry.getKey(), entry.getValue());
-      }
-    }
-    return new ImmutablePair<>(replacedString, remainingParameters);
+    return VariableTemplate.compile(templateString).renderWithTracking(parameters, encode);
   }
 
   /**
@@ -0,0 +1,165 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Resizes datetime partitions based on the statistics of previous work units, so that
+ * each work unit processes about a target number of rows, or runs about a target duration.
+ *
+ * The statistics of previous work units, rows and duration, are spread evenly over their
+ * watermark ranges. The load of a partition is then estimated from the statistics overlapping
+ * its range, divided by the number of units, because each datetime partition is processed
+ * by one work unit per unit.
+ *
+ * A partition whose load is more than the target is split into equal sub-ranges, and adjacent
+ * partitions whose combined load is within the target are merged. Partitions without statistics,
+ * like the most recent ones, are kept as they are.
+ */
+public class WorkUnitSizer {
+  private static final Logger LOG = LoggerFactory.getLogger(WorkUnitSizer.class);
+  // sub-ranges of a split partition are at least 1 minute, and a partition is split into at most 100 sub-ranges
+  private static final long MIN_RANGE_MILLIS = 60 * 1000L;
+  private static final int MAX_SPLITS = 100;
+
+  private final long targetRows;
+  private final long targetMillis;
+  // statistics by watermark range, each is [rows, duration in milliseconds]
+  private final Map<ImmutablePair<Long, Long>, long[]> statistics = new TreeMap<>();
+
+  /**
+   * @param targetRows the target number of rows per work unit, 0 to disable
+   * @param targetMillis the target duration per work unit in milliseconds, 0 to disable
+   */
+  public WorkUnitSizer(long targetRows, long targetMillis) {
+    this.targetRows = targetRows;
+    this.targetMillis = targetMillis;
+  }
+
+  /**
+   * @return true if either a target number of rows or a target duration is set
+   */
+  public boolean isEnabled() {
+    return targetRows > 0 || targetMillis > 0;
+  }
+
+  /**
+   * Add the statistics of a previous work unit
+   * @param low the low watermark of the work unit
+   * @param high the high watermark of the work unit
+   * @param rows the number of rows processed by the work unit
+   * @param millis the duration of the work unit in milliseconds
+   */
+  public void addStatistics(long low, long high, long rows, long millis) {
+    if (high <= low) {
+      return;
+    }
+    long[] stats = statistics.computeIfAbsent(new ImmutablePair<>(low, high), x -> new long[2]);
+    stats[0] += rows;
+    stats[1] += millis;
+  }
+
+  /**
+   * Split heavy partitions and merge light adjacent partitions
+   * @param partitions the datetime partitions in ascending order
+   * @param units the number of work units per datetime partition
+   * @return the resized datetime partitions in ascending order
+   */
+  public List<ImmutablePair<Long, Long>> resize(List<ImmutablePair<Long, Long>> partitions, int units) {
+    if (!isEnabled() || statistics.isEmpty()) {
+      return partitions;
+    }
+
+    List<ImmutablePair<Long, Long>> resized = new ArrayList<>();
+    ImmutablePair<Long, Long> pending = null;
+    double pendingLoad = 0;
+    for (ImmutablePair<Long, Long> partition : partitions) {
+      double load = getLoad(partition.getLeft(), partition.getRight(), Math.max(units, 1));
+      if (load >= 0 && load <= 1 && pending != null
+          && pending.getRight().equals(partition.getLeft()) && pendingLoad + load <= 1) {
+        pending = new ImmutablePair<>(pending.getLeft(), partition.getRight());
+        pendingLoad += load;
+        continue;
+      }
+      if (pending != null) {
+        resized.add(pending);
+        pending = null;
+      }
+      if (load > 1) {
+        resized.addAll(split(partition, load));
+      } else if (load >= 0) {
+        pending = partition;
+        pendingLoad = load;
+      } else {
+        resized.add(partition);
+      }
+    }
+    if (pending != null) {
+      resized.add(pending);
+    }
+    LOG.info("Resized {} datetime partitions to {} based on previous work unit statistics",
+        partitions.size(), resized.size());
+    return resized;
+  }
+
+  /**
+   * Estimate the load of a work unit processing a range, relative to the target
+   * @param low the low boundary of the range
+   * @param high the high boundary of the range
+   * @param units the number of work units sharing the range
+   * @return the estimated load, 1 means the target, or -1 if there are no statistics for the range
+   */
+  private double getLoad(long low, long high, int units) {
+    double rows = 0;
+    double millis = 0;
+    boolean found = false;
+    for (Map.Entry<ImmutablePair<Long, Long>, long[]> entry : statistics.entrySet()) {
+      long statsLow = entry.getKey().getLeft();
+      long statsHigh = entry.getKey().getRight();
+      if (statsLow >= high) {
+        break;
+      }
+      long overlap = Math.min(high, statsHigh) - Math.max(low, statsLow);
+      if (overlap > 0) {
+        double ratio = (double) overlap / (statsHigh - statsLow);
+        rows += entry.getValue()[0] * ratio;
+        millis += entry.getValue()[1] * ratio;
+        found = true;
+      }
+    }
+    if (!found) {
+      return -1;
+    }
+    double load = 0;
+    if (targetRows > 0) {
+      load = Math.max(load, rows / units / targetRows);
+    }
+    if (targetMillis > 0) {
+      load = Math.max(load, millis / units / targetMillis);
+    }
+    return load;
+  }
+
+  private List<ImmutablePair<Long, Long>> split(ImmutablePair<Long, Long> partition, double load) {
+    long range = partition.getRight() - partition.getLeft();
+    int splits = (int) Math.min(Math.min(Math.ceil(load), MAX_SPLITS), Math.max(range / MIN_RANGE_MILLIS, 1));
+    List<ImmutablePair<Long, Long>> subRanges = new ArrayList<>();
+    long low = partition.getLeft();
+    for (int i = 1; i <= splits; i++) {
+      long high = i == splits ? partition.getRight() : partition.getLeft() + range * i / splits;
+      subRanges.add(new ImmutablePair<>(low, high));
+      low = high;
+    }
+    return subRanges;
+  }
+}
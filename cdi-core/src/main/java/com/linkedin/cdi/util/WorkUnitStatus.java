@@ -9,6 +9,7 @@ import com.google.gson.JsonArray;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 
@@ -28,10 +29,12 @@ public class WorkUnitStatus {
   private InputStream buffer;
 
   private Map<String, String> messages;
+  // response headers of the last request, names are case-insensitive
+  private Map<String, String> headers;
   private String sessionKey;
 
   WorkUnitStatus(long totalCount, long setCount, long pageNumber, long pageStart, long pageSize, InputStream buffer,
-      Map<String, String> messages, String sessionKey) {
+      Map<String, String> messages, Map<String, String> headers, String sessionKey) {
     this.totalCount = totalCount;
     this.setCount = setCount;
     this.pageNumber = pageNumber;
@@ -39,9 +42,17 @@ public class WorkUnitStatus {
     this.pageSize = pageSize;
     this.buffer = buffer;
     this.messages = messages == null ? new HashMap<>() : messages;
+    this.headers = headers == null ? newHeaderMap() : headers;
     this.sessionKey = sessionKey;
   }
 
+  /**
+   * @return an empty map for response headers, which are looked up case-insensitively
+   */
+  public static Map<String, String> newHeaderMap() {
+    return new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+  }
+
   public static WorkUnitStatusBuilder builder() {
     return new WorkUnitStatusBuilder();
   }
@@ -99,6 +110,10 @@ public class WorkUnitStatus {
     return messages;
   }
 
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
   public String getSessionKey() {
     return this.sessionKey == null ? StringUtils.EMPTY : sessionKey;
   }
@@ -138,6 +153,11 @@ public class WorkUnitStatus {
     return this;
   }
 
+  public WorkUnitStatus setHeaders(Map<String, String> headers) {
+    this.headers = headers == null ? newHeaderMap() : headers;
+    return this;
+  }
+
   public WorkUnitStatus setSessionKey(String sessionKey) {
     this.sessionKey = sessionKey;
     return this;
@@ -157,6 +177,7 @@ public class WorkUnitStatus {
         .pageSize(this.pageSize)
         .buffer(this.buffer)
         .messages(this.messages)
+        .headers(this.headers)
         .sessionKey(this.sessionKey);
   }
 
@@ -168,6 +189,7 @@ public class WorkUnitStatus {
     private long pageSize;
     private InputStream buffer;
     private Map<String, String> messages;
+    private Map<String, String> headers;
     private String sessionKey;
 
     WorkUnitStatusBuilder() {
@@ -208,13 +230,18 @@ public class WorkUnitStatus {
       return this;
     }
 
+    public WorkUnitStatus.WorkUnitStatusBuilder headers(Map<String, String> headers) {
+      this.headers = headers;
+      return this;
+    }
+
     public WorkUnitStatus.WorkUnitStatusBuilder sessionKey(String sessionKey) {
       this.sessionKey = sessionKey;
       return this;
     }
 
     public WorkUnitStatus build() {
-      return new WorkUnitStatus(totalCount, setCount, pageNumber, pageStart, pageSize, buffer, messages, sessionKey);
+      return new WorkUnitStatus(totalCount, setCount, pageNumber, pageStart, pageSize, buffer, messages, headers, sessionKey);
     }
 
     public String toString() {
@@ -0,0 +1,103 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class HdfsFileSplitTest {
+  private static final int RECORDS = 1000;
+
+  /**
+   * Test: split a CSV file with a header line at arbitrary offsets
+   * Expected: each split starts with the header, and each line is read by exactly one split
+   */
+  @Test
+  public void testLineSplits() throws Exception {
+    StringBuilder content = new StringBuilder("id,name\n");
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < RECORDS; i++) {
+      String line = i + ",name" + i;
+      expected.add(line);
+      content.append(line).append('\n');
+    }
+    File file = File.createTempFile("split", ".csv");
+    file.deleteOnExit();
+    Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path path = new Path(file.getAbsolutePath());
+    for (long splitSize : Arrays.asList(1L, 7L, 100L, 1024L, file.length())) {
+      List<String> actual = new ArrayList<>();
+      for (long start = 0; start < file.length(); start += splitSize) {
+        try (InputStream split = HdfsFileSplit.openLines(fs.open(path), start, start + splitSize, 1)) {
+          List<String> lines = IOUtils.readLines(split, StandardCharsets.UTF_8);
+          Assert.assertEquals(lines.get(0), "id,name");
+          actual.addAll(lines.subList(1, lines.size()));
+        }
+      }
+      Assert.assertEquals(actual, expected, "split size " + splitSize);
+    }
+  }
+
+  /**
+   * Test: split an Avro file with many small blocks at arbitrary offsets
+   * Expected: each split is a valid Avro file, and each record is read by exactly one split
+   */
+  @Test
+  public void testAvroSplits() throws Exception {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"test\",\"fields\":[{\"name\":\"id\",\"type\":\"int\"}]}");
+    File file = File.createTempFile("split", ".avro");
+    file.deleteOnExit();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+      writer.setSyncInterval(64);
+      writer.create(schema, file);
+      for (int i = 0; i < RECORDS; i++) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("id", i);
+        writer.append(record);
+      }
+    }
+
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path path = new Path(file.getAbsolutePath());
+    for (long splitSize : Arrays.asList(10L, 100L, 1000L, file.length())) {
+      List<Integer> actual = new ArrayList<>();
+      for (long start = 0; start < file.length(); start += splitSize) {
+        try (DataFileStream<GenericRecord> records = new DataFileStream<>(
+            HdfsFileSplit.openAvro(fs.open(path), start, start + splitSize), new GenericDatumReader<>())) {
+          for (GenericRecord record : records) {
+            actual.add((Integer) record.get("id"));
+          }
+        }
+      }
+      Assert.assertEquals(actual.size(), RECORDS, "split size " + splitSize);
+      for (int i = 0; i < RECORDS; i++) {
+        Assert.assertEquals(actual.get(i).intValue(), i);
+      }
+    }
+  }
+}
@@ -4,12 +4,15 @@
 
 package com.linkedin.cdi.connection;
 
+import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.commons.io.IOUtils;
 import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.configuration.WorkUnitState;
 import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.HdfsKeys;
 import com.linkedin.cdi.source.HdfsSource;
 import com.linkedin.cdi.util.WorkUnitStatus;
 import org.apache.gobblin.source.extractor.filebased.FileBasedHelperException;
@@ -98,4 +101,68 @@ public class HdfsReadConnectionTest extends PowerMockTestCase {
 
     conn.closeAll("");
   }
+
+  /**
+   * Test: multiple files mode with 3 matched files out of 4
+   * Expected: matched files are returned in order, one per page, and other files are skipped
+   */
+  @Test
+  public void testMultipleFiles() throws Exception {
+    HadoopFsHelper fsHelper = PowerMockito.mock(HadoopFsHelper.class);
+    State state = new State();
+    HdfsKeys hdfsKeys = new HdfsKeys();
+    hdfsKeys.setSourceUri("/data/daily");
+    hdfsKeys.setFilesPattern(".*part.*");
+    hdfsKeys.setMultipleFiles(true);
+    hdfsKeys.setOpenAheadFiles(1);
+
+    HdfsConnection conn = new HdfsConnection(state, hdfsKeys, new ExtractorKeys());
+    conn.setFsHelper(fsHelper);
+    when(fsHelper.ls(any())).thenReturn(Lists.newArrayList(
+        "/data/daily/part-2", "/data/daily/_SUCCESS", "/data/daily/part-0", "/data/daily/part-1"));
+    for (String file : Lists.newArrayList("part-0", "part-1", "part-2")) {
+      when(fsHelper.getFileStream("/data/daily/" + file)).thenReturn(IOUtils.toInputStream(file));
+    }
+
+    WorkUnitStatus status = conn.executeFirst(WorkUnitStatus.builder().build());
+    Assert.assertEquals(IOUtils.toString(status.getBuffer()), "part-0");
+    for (String file : Lists.newArrayList("part-1", "part-2")) {
+      Assert.assertTrue(conn.hasNextStream());
+      Assert.assertTrue(conn.closeStream());
+      status = conn.executeNext(status);
+      Assert.assertEquals(IOUtils.toString(status.getBuffer()), file);
+    }
+    Assert.assertFalse(conn.hasNextStream());
+    Assert.assertTrue(conn.closeAll(""));
+  }
+
+  /**
+   * Test: multiple files mode where the second of 3 files cannot be opened
+   * Expected: the page of the failed file returns no status, so that the work unit fails
+   * instead of ending successfully with the rest of the files skipped
+   */
+  @Test
+  public void testMultipleFilesWithFailedFile() throws Exception {
+    HadoopFsHelper fsHelper = PowerMockito.mock(HadoopFsHelper.class);
+    HdfsKeys hdfsKeys = new HdfsKeys();
+    hdfsKeys.setSourceUri("/data/daily");
+    hdfsKeys.setFilesPattern(".*part.*");
+    hdfsKeys.setMultipleFiles(true);
+    hdfsKeys.setOpenAheadFiles(1);
+
+    HdfsConnection conn = new HdfsConnection(new State(), hdfsKeys, new ExtractorKeys());
+    conn.setFsHelper(fsHelper);
+    when(fsHelper.ls(any())).thenReturn(Lists.newArrayList(
+        "/data/daily/part-0", "/data/daily/part-1", "/data/daily/part-2"));
+    when(fsHelper.getFileStream("/data/daily/part-0")).thenReturn(IOUtils.toInputStream("part-0"));
+    when(fsHelper.getFileStream("/data/daily/part-1")).thenThrow(new FileBasedHelperException("permission denied"));
+    when(fsHelper.getFileStream("/data/daily/part-2")).thenReturn(IOUtils.toInputStream("part-2"));
+
+    WorkUnitStatus status = conn.executeFirst(WorkUnitStatus.builder().build());
+    Assert.assertEquals(IOUtils.toString(status.getBuffer()), "part-0");
+    Assert.assertTrue(conn.hasNextStream());
+    Assert.assertTrue(conn.closeStream());
+    Assert.assertNull(conn.executeNext(status));
+    Assert.assertTrue(conn.closeAll(""));
+  }
 }
@@ -0,0 +1,47 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import static org.mockito.Mockito.*;
+
+
+@Test
+public class S3ClientCacheTest {
+  /**
+   * Test: acquire a client twice by the same key, and release it twice
+   * Expected: the client is created once, and it is closed after the last release
+   */
+  @Test
+  public void testAcquireAndRelease() {
+    S3Client client = mock(S3Client.class);
+    Assert.assertSame(S3ClientCache.acquire("key", () -> client), client);
+    Assert.assertSame(S3ClientCache.acquire("key", () -> mock(S3Client.class)), client);
+    Assert.assertEquals(S3ClientCache.getReferences("key"), 2);
+
+    S3ClientCache.release("key");
+    verify(client, never()).close();
+    S3ClientCache.release("key");
+    verify(client, times(1)).close();
+    Assert.assertEquals(S3ClientCache.getReferences("key"), 0);
+
+    // releasing an unknown key does nothing
+    S3ClientCache.release("key");
+    verify(client, times(1)).close();
+  }
+
+  /**
+   * Test: the client cannot be created
+   * Expected: nothing is cached
+   */
+  @Test
+  public void testAcquireFailure() {
+    Assert.assertNull(S3ClientCache.acquire("failed", () -> null));
+    Assert.assertEquals(S3ClientCache.getReferences("failed"), 0);
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+
+@Test
+public class S3RangedInputStreamTest {
+  private static final byte[] CONTENT = new byte[1000];
+
+  static {
+    for (int i = 0; i < CONTENT.length; i++) {
+      CONTENT[i] = (byte) (i % 251);
+    }
+  }
+
+  /**
+   * mock ranged GET requests with the content above
+   */
+  private S3Client mockS3Client() {
+    S3Client s3Client = mock(S3Client.class);
+    when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class))).thenAnswer(invocation -> {
+      GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+      Assert.assertEquals(request.ifMatch(), "etag");
+      String[] range = request.range().replace("bytes=", "").split("-");
+      byte[] part = Arrays.copyOfRange(CONTENT, Integer.parseInt(range[0]), Integer.parseInt(range[1]) + 1);
+      return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+          AbortableInputStream.create(new ByteArrayInputStream(part)));
+    });
+    return s3Client;
+  }
+
+  /**
+   * Test: download in parts of different sizes, including a last partial part
+   * Expected: the content is reassembled in order
+   */
+  @Test
+  public void testRead() throws IOException {
+    for (int partSize : new int[]{1, 100, 333, 1000}) {
+      S3RangedInputStream stream =
+          new S3RangedInputStream(mockS3Client(), "bucket", "key", "etag", CONTENT.length, partSize, 3);
+      Assert.assertEquals(IOUtils.toByteArray(stream), CONTENT);
+      Assert.assertEquals(stream.read(), -1);
+      stream.close();
+    }
+
+    S3RangedInputStream stream = new S3RangedInputStream(mockS3Client(), "bucket", "key", "etag", CONTENT.length, 64, 2);
+    Assert.assertEquals(stream.read(), 0);
+    Assert.assertEquals(stream.read(), 1);
+    stream.close();
+    Assert.assertThrows(IOException.class, stream::read);
+  }
+
+  /**
+   * Test: download in parts with an async client
+   * Expected: the content is reassembled in order, and at most the given number of requests are in flight
+   */
+  @Test
+  public void testAsyncRead() throws IOException {
+    S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+    when(s3AsyncClient.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class))).thenAnswer(invocation -> {
+      GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+      String[] range = request.range().replace("bytes=", "").split("-");
+      byte[] part = Arrays.copyOfRange(CONTENT, Integer.parseInt(range[0]), Integer.parseInt(range[1]) + 1);
+      return CompletableFuture.completedFuture(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), part));
+    });
+    S3RangedInputStream stream =
+        new S3RangedInputStream(s3AsyncClient, "bucket", "key", "etag", CONTENT.length, 100, 3);
+    verify(s3AsyncClient, times(3)).getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+    Assert.assertEquals(IOUtils.toByteArray(stream), CONTENT);
+    verify(s3AsyncClient, times(10)).getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+    stream.close();
+  }
+
+  /**
+   * Test: a ranged GET fails
+   * Expected: the error is raised to the reader
+   */
+  @Test
+  public void testReadFailure() {
+    S3Client s3Client = mock(S3Client.class);
+    when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class)))
+        .thenThrow(S3Exception.builder().message("precondition failed").build());
+    S3RangedInputStream stream = new S3RangedInputStream(s3Client, "bucket", "key", "etag", CONTENT.length, 100, 2);
+    Assert.assertThrows(IOException.class, () -> IOUtils.toByteArray(stream));
+  }
+}
@@ -4,18 +4,36 @@
 
 package com.linkedin.cdi.connection;
 
+import com.google.gson.JsonObject;
 import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.S3Keys;
 import com.linkedin.cdi.source.MultistageSource;
 import com.linkedin.cdi.source.S3SourceV2;
+import com.linkedin.cdi.util.WorkUnitStatus;
 import gobblin.runtime.JobState;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import org.apache.commons.io.IOUtils;
 import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.WorkUnitState;
 import org.apache.gobblin.source.workunit.WorkUnit;
+import org.mockito.ArgumentCaptor;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 
 import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+import static org.mockito.Mockito.*;
 
 
 @Test
@@ -38,4 +56,79 @@ public class S3ReadConnectionTest {
     conn.getS3SourceV2Keys().setConnectionTimeout(10);
     Assert.assertNotNull(conn.getS3HttpClient(wuState));
   }
+
+  /**
+   * Test: a work unit made for an object in work unit per object mode
+   * Expected: the object is downloaded directly by its key and ETag, without listing
+   */
+  @Test
+  public void testDownloadWorkUnitObject() throws Exception {
+    S3Client s3Client = mock(S3Client.class);
+    when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class))).thenReturn(
+        new ResponseInputStream<>(GetObjectResponse.builder().build(),
+            AbortableInputStream.create(new ByteArrayInputStream("a,b".getBytes()))));
+    JsonObject activation = new JsonObject();
+    activation.addProperty(KEY_WORD_S3_KEY, "exports/a.csv");
+    activation.addProperty(KEY_WORD_S3_ETAG, "e1");
+    activation.addProperty(KEY_WORD_S3_SIZE, 3);
+    S3Connection conn = getWorkUnitPerObjectConnection(s3Client, activation);
+
+    WorkUnitStatus status = conn.executeFirst(WorkUnitStatus.builder().build());
+    Assert.assertEquals(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), "a,b");
+    ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+    verify(s3Client).getObject(request.capture(), any(ResponseTransformer.class));
+    Assert.assertEquals(request.getValue().bucket(), "bucket");
+    Assert.assertEquals(request.getValue().key(), "exports/a.csv");
+    Assert.assertEquals(request.getValue().ifMatch(), "e1");
+    verify(s3Client, never()).listObjectsV2(any(ListObjectsV2Request.class));
+  }
+
+  /**
+   * Test: an async download of an object whose HEAD response has no content length
+   * Expected: the object is downloaded by a plain GET, without the async client
+   */
+  @Test
+  public void testAsyncDownloadWithoutContentLength() throws Exception {
+    S3Client s3Client = mock(S3Client.class);
+    when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(
+        HeadObjectResponse.builder().eTag("e1").build());
+    when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class))).thenReturn(
+        new ResponseInputStream<>(GetObjectResponse.builder().build(),
+            AbortableInputStream.create(new ByteArrayInputStream("a,b".getBytes()))));
+    JsonObject activation = new JsonObject();
+    activation.addProperty(KEY_WORD_S3_KEY, "exports/a.csv");
+    S3Connection conn = getWorkUnitPerObjectConnection(s3Client, activation);
+    conn.getS3SourceV2Keys().setAsyncDownload(true);
+
+    WorkUnitStatus status = conn.executeFirst(WorkUnitStatus.builder().build());
+    Assert.assertEquals(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), "a,b");
+    verify(s3Client).getObject(any(GetObjectRequest.class), any(ResponseTransformer.class));
+    verify(conn, never()).getS3AsyncHttpClient(any());
+  }
+
+  /**
+   * Test: a work unit without an object in work unit per object mode, like the only work unit of a
+   * run that listed no objects
+   * Expected: nothing is listed or downloaded
+   */
+  @Test
+  public void testWorkUnitWithoutObject() throws Exception {
+    S3Client s3Client = mock(S3Client.class);
+    S3Connection conn = getWorkUnitPerObjectConnection(s3Client, new JsonObject());
+
+    WorkUnitStatus status = conn.executeFirst(WorkUnitStatus.builder().build());
+    Assert.assertNull(status.getBuffer());
+    verifyZeroInteractions(s3Client);
+  }
+
+  private S3Connection getWorkUnitPerObjectConnection(S3Client s3Client, JsonObject activation) {
+    S3Keys keys = new S3Keys();
+    keys.setBucket("bucket");
+    keys.setWorkUnitPerObject(true);
+    ExtractorKeys extractorKeys = new ExtractorKeys();
+    extractorKeys.setActivationParameters(activation);
+    S3Connection conn = spy(new S3Connection(new WorkUnitState(), keys, extractorKeys));
+    doReturn(s3Client).when(conn).getS3HttpClient(any());
+    return conn;
+  }
 }
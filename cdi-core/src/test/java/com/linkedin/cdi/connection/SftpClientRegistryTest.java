@@ -0,0 +1,120 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.linkedin.cdi.factory.sftp.SftpClient;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+
+
+@Test
+public class SftpClientRegistryTest {
+  private SftpClient mockClient() {
+    SftpClient client = mock(SftpClient.class);
+    when(client.isConnected()).thenReturn(true);
+    return client;
+  }
+
+  /**
+   * Test: acquire a client twice by the same key, and release it twice without idle time
+   * Expected: the client is created once, and it is closed after the last release
+   */
+  @Test
+  public void testAcquireAndRelease() {
+    SftpClient client = mockClient();
+    Assert.assertSame(SftpClientRegistry.acquire("shared", 0, () -> client), client);
+    Assert.assertSame(SftpClientRegistry.acquire("shared", 0, this::mockClient), client);
+    Assert.assertEquals(SftpClientRegistry.getReferences("shared"), 2);
+
+    SftpClientRegistry.release(client);
+    verify(client, never()).close();
+    SftpClientRegistry.release(client);
+    verify(client, times(1)).close();
+    Assert.assertEquals(SftpClientRegistry.getReferences("shared"), -1);
+  }
+
+  /**
+   * Test: release a client with idle time, and acquire it again
+   * Expected: the idle client is reused, and it is closed after the idle time
+   */
+  @Test
+  public void testIdleClient() throws InterruptedException {
+    SftpClient client = mockClient();
+    SftpClientRegistry.acquire("idle", 200, () -> client);
+    SftpClientRegistry.release(client);
+    Assert.assertEquals(SftpClientRegistry.getReferences("idle"), 0);
+    Assert.assertSame(SftpClientRegistry.acquire("idle", 200, this::mockClient), client);
+    SftpClientRegistry.release(client);
+    verify(client, never()).close();
+
+    Thread.sleep(400);
+    SftpClientRegistry.evictIdleClients();
+    verify(client, times(1)).close();
+    Assert.assertEquals(SftpClientRegistry.getReferences("idle"), -1);
+  }
+
+  /**
+   * Test: the shared session is disconnected while a work unit still uses it
+   * Expected: a new client is created, and the old client is closed when released
+   */
+  @Test
+  public void testDisconnectedClient() {
+    SftpClient broken = mockClient();
+    SftpClientRegistry.acquire("broken", 1000, () -> broken);
+    when(broken.isConnected()).thenReturn(false);
+
+    SftpClient replacement = mockClient();
+    Assert.assertSame(SftpClientRegistry.acquire("broken", 1000, () -> replacement), replacement);
+    SftpClientRegistry.release(broken);
+    verify(broken, times(1)).close();
+    Assert.assertEquals(SftpClientRegistry.getReferences("broken"), 1);
+    SftpClientRegistry.release(replacement);
+  }
+
+  /**
+   * Test: a slow handshake of one key, while work units acquire clients of the same and other keys
+   * Expected: other keys are not blocked, and the work units of the same key share one client
+   */
+  @Test
+  public void testConcurrentCreation() throws Exception {
+    CountDownLatch handshake = new CountDownLatch(1);
+    AtomicInteger created = new AtomicInteger();
+    SftpClient slow = mockClient();
+    Supplier<SftpClient> slowFactory = () -> {
+      created.incrementAndGet();
+      try {
+        handshake.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return slow;
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Future<SftpClient> first = executor.submit(() -> SftpClientRegistry.acquire("slow", 0, slowFactory));
+    Future<SftpClient> second = executor.submit(() -> SftpClientRegistry.acquire("slow", 0, slowFactory));
+
+    SftpClient fast = mockClient();
+    Assert.assertSame(SftpClientRegistry.acquire("fast", 0, () -> fast), fast);
+    SftpClientRegistry.release(fast);
+
+    handshake.countDown();
+    Assert.assertSame(first.get(5, TimeUnit.SECONDS), slow);
+    Assert.assertSame(second.get(5, TimeUnit.SECONDS), slow);
+    Assert.assertEquals(created.get(), 1);
+    Assert.assertEquals(SftpClientRegistry.getReferences("slow"), 2);
+    SftpClientRegistry.release(slow);
+    SftpClientRegistry.release(slow);
+    executor.shutdown();
+  }
+}
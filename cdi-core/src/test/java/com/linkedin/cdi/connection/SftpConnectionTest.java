@@ -0,0 +1,106 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.factory.DefaultConnectionClientFactory;
+import com.linkedin.cdi.factory.sftp.SftpClient;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.SftpKeys;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.configuration.State;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+import static org.mockito.Mockito.*;
+
+
+@Test
+public class SftpConnectionTest {
+  private static final List<SftpClient> CREATED = new ArrayList<>();
+
+  /**
+   * A client factory that creates a mock SFTP client for each call
+   */
+  public static class MockClientFactory extends DefaultConnectionClientFactory {
+    @Override
+    public SftpClient getSftpChannelClient(State state) {
+      SftpClient client = mock(SftpClient.class);
+      when(client.isConnected()).thenReturn(true);
+      when(client.getFileStream(anyString())).thenReturn(new ByteArrayInputStream(new byte[0]));
+      CREATED.add(client);
+      return client;
+    }
+  }
+
+  @BeforeMethod
+  public void setUp() {
+    CREATED.clear();
+  }
+
+  /**
+   * Test: two work units download files without session_idle_seconds or max_channels
+   * Expected: each work unit has its own client, and closes it when it finishes
+   */
+  @Test
+  public void testPerConnectionClient() throws Exception {
+    State state = getState("sftp.unshared.com", "{}");
+    SftpConnection first = download(state);
+    SftpConnection second = download(state);
+    Assert.assertEquals(CREATED.size(), 2);
+    Assert.assertNotSame(first.fsClient, second.fsClient);
+
+    SftpClient client = first.fsClient;
+    first.closeAll("");
+    verify(client).close();
+    second.closeAll("");
+    verify(CREATED.get(1)).close();
+  }
+
+  /**
+   * Test: two work units download files with max_channels
+   * Expected: the work units share one client, which is closed after the last work unit finishes
+   */
+  @Test
+  public void testSharedClient() throws Exception {
+    State state = getState("sftp.shared.com", "{\"max_channels\": 2}");
+    SftpConnection first = download(state);
+    SftpConnection second = download(state);
+    Assert.assertEquals(CREATED.size(), 1);
+    Assert.assertSame(first.fsClient, second.fsClient);
+
+    SftpClient client = first.fsClient;
+    first.closeAll("");
+    verify(client, never()).close();
+    second.closeAll("");
+    verify(client).close();
+  }
+
+  private State getState(String host, String parameters) {
+    State state = new State();
+    state.setProp(MSTAGE_CONNECTION_CLIENT_FACTORY.getConfig(), MockClientFactory.class.getName());
+    state.setProp(MSTAGE_SOURCE_SFTP_PARAMETERS.getConfig(), parameters);
+    state.setProp(ConfigurationKeys.SOURCE_CONN_HOST_NAME, host);
+    return state;
+  }
+
+  private SftpConnection download(State state) throws Exception {
+    JsonObject activation = new JsonObject();
+    activation.addProperty(KEY_WORD_SFTP_FILE, "/data/file.csv");
+    ExtractorKeys extractorKeys = new ExtractorKeys();
+    extractorKeys.setActivationParameters(activation);
+    SftpConnection connection = new SftpConnection(state, new SftpKeys(), extractorKeys);
+    WorkUnitStatus status = connection.executeFirst(WorkUnitStatus.builder().build());
+    Assert.assertNotNull(status.getBuffer());
+    return connection;
+  }
+}
@@ -0,0 +1,153 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.converter.DataConversionException;
+import org.apache.gobblin.source.workunit.Extract;
+import org.apache.gobblin.source.workunit.WorkUnit;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class JsonToAvroConverterTest {
+  private static final String SCHEMA = "["
+      + "{\"columnName\":\"id\",\"isNullable\":\"false\",\"dataType\":{\"type\":\"long\"}},"
+      + "{\"columnName\":\"name\",\"isNullable\":\"true\",\"dataType\":{\"type\":\"string\"}},"
+      + "{\"columnName\":\"status\",\"isNullable\":\"false\",\"dataType\":{\"type\":\"enum\",\"symbols\":[\"A\",\"B\"]}},"
+      + "{\"columnName\":\"created\",\"isNullable\":\"true\",\"dataType\":{\"type\":\"timestamp\"}},"
+      + "{\"columnName\":\"tags\",\"isNullable\":\"true\",\"dataType\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"columnName\":\"address\",\"isNullable\":\"true\",\"dataType\":{\"type\":\"record\",\"values\":["
+      + "{\"columnName\":\"city\",\"isNullable\":\"true\",\"dataType\":{\"type\":\"string\"}}]}}]";
+
+  private Gson gson = new Gson();
+  private WorkUnitState state;
+  private JsonToAvroConverter converter;
+
+  @BeforeMethod
+  public void setUp() {
+    state = new WorkUnitState(WorkUnit.create(new Extract(Extract.TableType.SNAPSHOT_ONLY, "com.linkedin.test", "users")));
+    state.setProp("converter.avro.timestamp.format", "yyyy-MM-dd HH:mm:ss,yyyy-MM-dd");
+    state.setProp("converter.avro.date.timezone", "UTC");
+    converter = new JsonToAvroConverter();
+  }
+
+  /**
+   * Test: convert records with primitive, enum, timestamp, array, and nested record fields
+   * Expected: fields are converted to their positions, absent nullable fields are null,
+   * timestamps are parsed by each of the formats, and the records are valid for the schema
+   */
+  @Test
+  public void testConvertRecord() throws Exception {
+    converter.init(state);
+    Schema schema = converter.convertSchema(gson.fromJson(SCHEMA, JsonArray.class), state);
+    Assert.assertEquals(schema.getFields().size(), 6);
+    Assert.assertEquals(schema.getField("id").schema().getType(), Schema.Type.LONG);
+    Assert.assertEquals(schema.getField("name").schema().getTypes().get(1).getType(), Schema.Type.STRING);
+    Assert.assertEquals(schema.getField("status").schema().getEnumSymbols(), Arrays.asList("A", "B"));
+
+    GenericRecord record = convert(schema, "{\"id\": 1, \"name\": \"x\", \"status\": \"B\", "
+        + "\"created\": \"2021-06-17 10:00:00\", \"tags\": [\"a\", \"b\"], \"address\": {\"city\": \"y\"}}");
+    Assert.assertEquals(record.get(0), 1L);
+    Assert.assertEquals(record.get("name"), "x");
+    Assert.assertEquals(record.get("status").toString(), "B");
+    Assert.assertEquals(record.get("created"), DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss")
+        .withZone(DateTimeZone.UTC).parseMillis("2021-06-17 10:00:00"));
+    Assert.assertEquals(record.get("tags"), Arrays.asList("a", "b"));
+    Assert.assertEquals(((GenericRecord) record.get("address")).get("city"), "y");
+    serialize(schema, record);
+
+    record = convert(schema, "{\"id\": 2, \"status\": \"A\", \"created\": \"2021-06-17\"}");
+    Assert.assertNull(record.get("name"));
+    Assert.assertNull(record.get("tags"));
+    Assert.assertEquals(record.get("created"), DateTimeFormat.forPattern("yyyy-MM-dd")
+        .withZone(DateTimeZone.UTC).parseMillis("2021-06-17"));
+    serialize(schema, record);
+
+    record = convert(schema, "{\"id\": 3, \"status\": \"A\", \"created\": 1623924000000}");
+    Assert.assertEquals(record.get("created"), 1623924000000L);
+  }
+
+  /**
+   * Test: convert records with ms.converter.reuse.records enabled and disabled
+   * Expected: the record and its nested values are reused only when enabled
+   */
+  @Test
+  public void testReuseRecords() throws Exception {
+    converter.init(state);
+    Schema schema = converter.convertSchema(gson.fromJson(SCHEMA, JsonArray.class), state);
+    GenericRecord first = convert(schema, "{\"id\": 1, \"status\": \"A\", \"tags\": [\"a\", \"b\"]}");
+    GenericRecord second = convert(schema, "{\"id\": 2, \"status\": \"A\", \"tags\": [\"c\"]}");
+    Assert.assertNotSame(second, first);
+    Assert.assertEquals(first.get("tags"), Arrays.asList("a", "b"));
+
+    state.setProp("ms.converter.reuse.records", "true");
+    converter.init(state);
+    first = convert(schema, "{\"id\": 1, \"status\": \"A\", \"tags\": [\"a\", \"b\"]}");
+    Object tags = first.get("tags");
+    second = convert(schema, "{\"id\": 2, \"status\": \"A\", \"tags\": [\"c\"]}");
+    Assert.assertSame(second, first);
+    Assert.assertSame(second.get("tags"), tags);
+    Assert.assertEquals(second.get("id"), 2L);
+    Assert.assertEquals(second.get("tags"), Collections.singletonList("c"));
+    serialize(schema, second);
+  }
+
+  /**
+   * Test: convert records with null or invalid values
+   * Expected: DataConversionException naming the field
+   */
+  @Test
+  public void testConvertInvalidRecord() throws Exception {
+    converter.init(state);
+    Schema schema = converter.convertSchema(gson.fromJson(SCHEMA, JsonArray.class), state);
+    try {
+      convert(schema, "{\"id\": null, \"status\": \"A\"}");
+      Assert.fail("a null value of a non-nullable field should fail");
+    } catch (DataConversionException e) {
+      Assert.assertTrue(e.getMessage().contains("id"));
+    }
+    try {
+      convert(schema, "{\"id\": 1, \"status\": \"C\"}");
+      Assert.fail("a value that is not an enum symbol should fail");
+    } catch (DataConversionException e) {
+      Assert.assertTrue(e.getMessage().contains("status"));
+    }
+    try {
+      convert(schema, "{\"id\": \"one\", \"status\": \"A\"}");
+      Assert.fail("a value that is not a number should fail");
+    } catch (DataConversionException e) {
+      Assert.assertTrue(e.getMessage().contains("id"));
+    }
+  }
+
+  private GenericRecord convert(Schema schema, String record) throws DataConversionException {
+    return converter.convertRecord(schema, gson.fromJson(record, JsonObject.class), state).iterator().next();
+  }
+
+  private void serialize(Schema schema, GenericRecord record) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(output, null);
+    new GenericDatumWriter<GenericRecord>(schema, GenericData.get()).write(record, encoder);
+    encoder.flush();
+    Assert.assertTrue(output.size() > 0);
+  }
+}
@@ -28,12 +28,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang.StringUtils;
+import org.apache.gobblin.configuration.ConfigurationKeys;
 import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.WorkUnitState;
 import org.apache.gobblin.source.workunit.WorkUnit;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.powermock.reflect.Whitebox;
 import org.testng.Assert;
@@ -203,6 +205,49 @@ public class JsonExtractorTest {
     Assert.assertFalse(jsonExtractor.processInputStream(0));
   }
 
+  /**
+   * Test: a work unit is passed the checkpoint of its previous failed run
+   * Expected: the first request fetches the page after the checkpoint, continuing the counts
+   */
+  @Test
+  public void testResumeFromCheckpoint() throws RetriableAuthenticationException {
+    jsonExtractor.setJsonExtractorKeys(new JsonExtractorKeys());
+    jsonExtractor.setJobKeys(new JobKeys());
+    when(state.getProp("work.unit.checkpoint")).thenReturn("{\"low\":0,\"high\":1,\"pages\":40,"
+        + "\"records\":4000,\"pageStart\":4000,\"pageSize\":100,\"pageNumber\":40,\"sessionKey\":\"abc\"}");
+    WorkUnitStatus status = WorkUnitStatus.builder()
+        .buffer(new ByteArrayInputStream("[{\"id\": 1}, {\"id\": 2}]".getBytes())).build();
+    when(multistageConnection.executeNext(any())).thenReturn(status);
+
+    Assert.assertTrue(jsonExtractor.processInputStream(0));
+    verify(multistageConnection, never()).executeFirst(any());
+    Assert.assertEquals(jsonExtractor.getJsonExtractorKeys().getProcessedCount(), 4000);
+    Assert.assertEquals(jsonExtractor.getJsonExtractorKeys().getCurrentPageNumber(), 41);
+    Assert.assertEquals(jsonExtractor.getWorkUnitStatus().getPageStart(), 4002);
+  }
+
+  /**
+   * Test processInputStream when the work unit is interrupted while waiting for admission
+   * Expected: the work unit fails without sending the request
+   */
+  @Test
+  public void testInterruptedAdmission() throws RetriableAuthenticationException {
+    jsonExtractor.setJsonExtractorKeys(new JsonExtractorKeys());
+    jsonExtractor.setJobKeys(new JobKeys());
+    when(state.contains(MSTAGE_WORK_UNIT_CONCURRENCY_MAX.getConfig())).thenReturn(true);
+    when(state.getProp(MSTAGE_WORK_UNIT_CONCURRENCY_MAX.getConfig())).thenReturn("1");
+    when(state.getProp(eq(ConfigurationKeys.JOB_ID_KEY), anyString())).thenReturn("testInterruptedAdmission");
+
+    Thread.currentThread().interrupt();
+    try {
+      Assert.assertFalse(jsonExtractor.processInputStream(0));
+    } finally {
+      Assert.assertTrue(Thread.interrupted());
+    }
+    verify(state).setWorkingState(WorkUnitState.WorkingState.FAILED);
+    verify(multistageConnection, never()).executeFirst(any());
+  }
+
    @Test
   public void testGetElementByJsonPathWithEdgeCases() {
     JsonObject row = new JsonObject();
@@ -504,6 +549,13 @@ public class JsonExtractorTest {
     when(jsonExtractorKeys.getStartTime()).thenReturn(secondsBeforeCurrentTime);
     when(jobKeys.getSessionTimeout()).thenReturn(timeout);
     Assert.assertFalse(Whitebox.invokeMethod(jsonExtractor, "waitingBySessionKeyWithTimeout"));
+
+    // once the condition is met, the backoff of the next wait starts over
+    when(jsonExtractorKeys.getSessionKeyValue()).thenReturn("ready");
+    Assert.assertTrue(Whitebox.invokeMethod(jsonExtractor, "waitingBySessionKeyWithTimeout"));
+    InOrder inOrder = inOrder(jsonExtractorKeys);
+    inOrder.verify(jsonExtractorKeys).incrSessionWaitCount();
+    inOrder.verify(jsonExtractorKeys).setSessionWaitCount(0);
   }
 
   /**
@@ -4,7 +4,12 @@
 
 package com.linkedin.cdi.factory;
 
+import com.linkedin.cdi.factory.reader.SchemaReader;
+import com.linkedin.cdi.factory.sftp.SftpClient;
+import java.sql.Connection;
+import java.time.Duration;
 import org.apache.gobblin.configuration.State;
+import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.mockito.Mock;
@@ -13,8 +18,13 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.testng.PowerMockTestCase;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.utils.AttributeMap;
 
 import static org.mockito.Mockito.*;
+import static software.amazon.awssdk.http.SdkHttpConfigurationOption.*;
 
 
 @PrepareForTest({HttpClientBuilder.class})
@@ -36,4 +46,51 @@ public class DefaultConnectionClientFactoryTest extends PowerMockTestCase {
     when(httpClientBuilder.build()).thenReturn(closeableHttpClient);
     Assert.assertEquals(factory.getHttpClient(new State()), closeableHttpClient);
   }
-}
\ No newline at end of file
+
+  /**
+   * Test whether a factory that does not implement the async S3 client still
+   * produces one, bounded by the given S3 parameters
+   */
+  @Test
+  public void testGetS3AsyncClientByDefault() {
+    ConnectionClientFactory factory = new CustomConnectionClientFactory();
+    AttributeMap config = AttributeMap.builder()
+        .put(CONNECTION_TIMEOUT, Duration.ofSeconds(10))
+        .put(MAX_CONNECTIONS, 5)
+        .put(MAX_PENDING_CONNECTION_ACQUIRES, 10)
+        .build();
+    SdkAsyncHttpClient client = factory.getS3AsyncClient(new State(), config);
+    Assert.assertTrue(client instanceof NettyNioAsyncHttpClient);
+    client.close();
+  }
+
+  /**
+   * A custom factory that is written before the async S3 client is added
+   */
+  private static class CustomConnectionClientFactory implements ConnectionClientFactory {
+    @Override
+    public HttpClient getHttpClient(State state) {
+      return null;
+    }
+
+    @Override
+    public SdkHttpClient getS3Client(State state, AttributeMap config) {
+      return null;
+    }
+
+    @Override
+    public Connection getJdbcConnection(String jdbcUrl, String userId, String cryptedPassword, State state) {
+      return null;
+    }
+
+    @Override
+    public SftpClient getSftpChannelClient(State state) {
+      return null;
+    }
+
+    @Override
+    public SchemaReader getSchemaReader(State state) {
+      return null;
+    }
+  }
+}
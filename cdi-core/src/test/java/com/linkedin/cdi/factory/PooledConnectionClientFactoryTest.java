@@ -0,0 +1,45 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory;
+
+import java.io.IOException;
+import org.apache.gobblin.configuration.State;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class PooledConnectionClientFactoryTest {
+
+  /**
+   * Test: work units with the same settings get the same pool, and the pool
+   * is not closed when a client is closed
+   */
+  @Test
+  public void testSharedPool() throws IOException {
+    PooledConnectionClientFactory factory = new PooledConnectionClientFactory();
+    State state = new State();
+    state.setProp("ms.http.conn.max", 30);
+    state.setProp("ms.http.conn.per.route.max", 5);
+
+    PoolingHttpClientConnectionManager manager = factory.getConnectionManager(state);
+    Assert.assertSame(factory.getConnectionManager(state), manager);
+    Assert.assertSame(new PooledConnectionClientFactory().getConnectionManager(state), manager);
+    Assert.assertEquals(manager.getMaxTotal(), 30);
+    Assert.assertEquals(manager.getDefaultMaxPerRoute(), 5);
+
+    HttpClient client = factory.getHttpClient(state);
+    Assert.assertTrue(client instanceof CloseableHttpClient);
+    ((CloseableHttpClient) client).close();
+    Assert.assertEquals(manager.getTotalStats().getMax(), 30);
+    Assert.assertNotNull(factory.getHttpClient(state));
+
+    state.setProp("ms.http.conn.per.route.max", 10);
+    Assert.assertNotSame(factory.getConnectionManager(state), manager);
+  }
+}
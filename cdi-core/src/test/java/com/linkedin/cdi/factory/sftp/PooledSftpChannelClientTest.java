@@ -0,0 +1,156 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.sftp;
+
+import com.google.common.collect.Lists;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.configuration.State;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+
+@Test
+public class PooledSftpChannelClientTest {
+  /**
+   * A pooled client without a real session, which counts the channels opened
+   */
+  private static class TestClient extends PooledSftpChannelClient {
+    private static final byte[] CONTENT = new byte[3 * 1024 * 1024 + 100];
+    private int opened = 0;
+    private int listed = 0;
+
+    static {
+      for (int i = 0; i < CONTENT.length; i++) {
+        CONTENT[i] = (byte) (i % 251);
+      }
+    }
+
+    TestClient(State state, int maxChannels) {
+      super(state, maxChannels);
+    }
+
+    @Override
+    protected void initializeConnection(State state) {
+    }
+
+    @Override
+    public ChannelSftp getSftpChannel() throws SftpException {
+      opened++;
+      ChannelSftp channel = mock(ChannelSftp.class);
+      when(channel.isConnected()).thenReturn(true);
+      when(channel.get(anyString(), any(SftpMonitor.class))).thenReturn(new ByteArrayInputStream(new byte[]{1}));
+      when(channel.get(anyString(), isNull(SftpMonitor.class), anyLong())).thenAnswer(invocation -> {
+        int skip = ((Long) invocation.getArguments()[2]).intValue();
+        return new ByteArrayInputStream(CONTENT, skip, CONTENT.length - skip);
+      });
+      return channel;
+    }
+
+    @Override
+    public long getFileSize(String path) {
+      return CONTENT.length;
+    }
+
+    @Override
+    protected List<String> listFiles(String path) {
+      listed++;
+      return Lists.newArrayList("a.csv", "b.csv");
+    }
+  }
+
+  /**
+   * Test: borrow and release channels
+   * Expected: idle channels are reused, and no more than the maximum channels are borrowed at a time
+   */
+  @Test
+  public void testBorrowAndRelease() throws Exception {
+    State state = new State();
+    state.setProp("ms.sftp.conn.timeout.millis", 100);
+    TestClient client = new TestClient(state, 2);
+
+    ChannelSftp first = client.borrowChannel();
+    client.releaseChannel(first);
+    Assert.assertSame(client.borrowChannel(), first);
+    ChannelSftp second = client.borrowChannel();
+    Assert.assertNotSame(second, first);
+    Assert.assertEquals(client.opened, 2);
+    Assert.assertThrows(SftpException.class, client::borrowChannel);
+
+    // a disconnected channel is dropped
+    when(second.isConnected()).thenReturn(false);
+    client.releaseChannel(second);
+    client.releaseChannel(first);
+    Assert.assertSame(client.borrowChannel(), first);
+    Assert.assertEquals(client.opened, 2);
+  }
+
+  /**
+   * Test: a file stream holds its channel until it is closed
+   * Expected: the channel returns to the pool after the stream is closed
+   */
+  @Test
+  public void testFileStream() throws Exception {
+    State state = new State();
+    state.setProp("ms.sftp.conn.timeout.millis", 100);
+    TestClient client = new TestClient(state, 1);
+
+    InputStream stream = client.getFileStream("/a/b.csv");
+    Assert.assertEquals(stream.read(), 1);
+    Assert.assertThrows(RuntimeException.class, () -> client.getFileMTime("/a/b.csv"));
+    stream.close();
+    stream.close();
+    client.getFileStream("/a/c.csv").close();
+    Assert.assertEquals(client.opened, 1);
+  }
+
+  /**
+   * Test: download a file larger than the part size
+   * Expected: the parts are downloaded over multiple channels and reassembled in order
+   */
+  @Test
+  public void testRangedDownload() throws Exception {
+    State state = new State();
+    state.setProp("ms.sftp.conn.timeout.millis", 1000);
+    state.setProp("ms.source.sftp.parameters", "{\"download_part_size_mb\": 1, \"download_parallelism\": 2}");
+    TestClient client = new TestClient(state, 3);
+    try (InputStream stream = client.getFileStream("/a/b.csv")) {
+      Assert.assertEquals(IOUtils.toByteArray(stream), TestClient.CONTENT);
+    }
+    Assert.assertEquals(client.opened, 2);
+
+    state.setProp("ms.source.sftp.parameters", "{\"download_part_size_mb\": 1, \"download_parallelism\": 4}");
+    Assert.assertThrows(IllegalArgumentException.class, () -> new TestClient(state, 3));
+  }
+
+  /**
+   * Test: list the same directory repeatedly with listing cache
+   * Expected: the directory is listed once within the cache time, and each caller gets its own copy
+   */
+  @Test
+  public void testListingCache() {
+    State state = new State();
+    state.setProp("ms.source.sftp.parameters", "{\"listing_cache_seconds\": 60}");
+    TestClient client = new TestClient(state, 1);
+    List<String> files = client.ls("/a");
+    files.set(0, "/a/a.csv");
+    Assert.assertEquals(client.ls("/a"), Lists.newArrayList("a.csv", "b.csv"));
+    Assert.assertEquals(client.listed, 1);
+    client.ls("/b");
+    Assert.assertEquals(client.listed, 2);
+
+    TestClient uncached = new TestClient(new State(), 1);
+    uncached.ls("/a");
+    uncached.ls("/a");
+    Assert.assertEquals(uncached.listed, 2);
+  }
+}
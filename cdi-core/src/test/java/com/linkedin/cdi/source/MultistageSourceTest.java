@@ -187,6 +187,41 @@ public class MultistageSourceTest {
     Assert.assertEquals(1, source.getJobKeys().getOutputSchema().size());
   }
 
+  /**
+   * Test: output and target schemas from a schema URN are populated to 3 work units
+   * Expected: the schemas are saved once in the source state, not in each work unit,
+   * and work unit states read them from the job state
+   */
+  @Test
+  public void testSchemasSavedInSourceState() {
+    SourceState state = new SourceState();
+    state.setProp("ms.watermark", "[{\"name\": \"units\",\"type\": \"unit\", \"units\": \"id1,id2,id3\"}]");
+    state.setProp("extract.table.type", "SNAPSHOT_ONLY");
+    state.setProp("extract.namespace", "test");
+    state.setProp("extract.table.name", "table1");
+    JsonArray schema = gson.fromJson("[{\"columnName\":\"id\",\"dataType\":{\"type\":\"string\"}}]",
+        JsonArray.class);
+    MultistageSource<?, ?> source = new MultistageSource<Object, Object>() {
+      @Override
+      protected void initialize(State state) {
+        super.initialize(state);
+        // as if the schema was read from the schema URN
+        getJobKeys().setOutputSchema(schema);
+        getJobKeys().setTargetSchema(schema);
+      }
+    };
+    List<WorkUnit> workUnits = source.getWorkunits(state);
+    Assert.assertEquals(workUnits.size(), 3);
+    Assert.assertEquals(state.getProp(MSTAGE_OUTPUT_SCHEMA.getConfig()), schema.toString());
+    Assert.assertEquals(state.getProp(MSTAGE_TARGET_SCHEMA.getConfig()), schema.toString());
+    for (WorkUnit workUnit : workUnits) {
+      Assert.assertFalse(workUnit.contains(MSTAGE_OUTPUT_SCHEMA.getConfig()));
+      Assert.assertFalse(workUnit.contains(MSTAGE_TARGET_SCHEMA.getConfig()));
+      Assert.assertEquals(new WorkUnitState(workUnit, state).getProp(MSTAGE_OUTPUT_SCHEMA.getConfig()),
+          schema.toString());
+    }
+  }
+
   @Test
   public void testSourceParameters(){
     SourceState sourceState = mock(SourceState.class);
@@ -332,6 +367,35 @@ public class MultistageSourceTest {
     Assert.assertEquals((long) actual.get("ColumnName.Number"), 1000L);
   }
 
+  /**
+   * Test getPreviousHighWatermarks with multiple work unit states per dataset and encoded dataset URNs
+   * Expected: the highest watermark of each dataset, indexed by the decoded signature
+   */
+  @Test
+  public void testGetPreviousHighWatermarksIndex() throws Exception {
+    SourceState sourceState = Mockito.mock(SourceState.class);
+    source.sourceState = sourceState;
+
+    List<WorkUnitState> states = new ArrayList<>();
+    for (long watermark : Arrays.asList(1000L, 3000L, 2000L)) {
+      WorkUnitState workUnitState = Mockito.mock(WorkUnitState.class);
+      when(workUnitState.getActualHighWatermark(LongWatermark.class)).thenReturn(new LongWatermark(watermark));
+      states.add(workUnitState);
+    }
+    Map<String, Iterable<WorkUnitState>> previousWorkUnitStatesByDatasetUrns = new HashMap<>();
+    previousWorkUnitStatesByDatasetUrns.put("[watermark.system.1, watermark.unit.a%2Fb]", states);
+    previousWorkUnitStatesByDatasetUrns.put("[watermark.system.1, watermark.unit.c]", states.subList(0, 1));
+    previousWorkUnitStatesByDatasetUrns.put("[watermark.system.1, watermark.unit.d]", new ArrayList<>());
+    when(sourceState.getPreviousWorkUnitStatesByDatasetUrns()).thenReturn(previousWorkUnitStatesByDatasetUrns);
+
+    Method method = MultistageSource.class.getDeclaredMethod("getPreviousHighWatermarks");
+    method.setAccessible(true);
+    Map<String, Long> actual = (Map) method.invoke(source);
+    Assert.assertEquals(actual.size(), 2);
+    Assert.assertEquals((long) actual.get("[watermark.system.1, watermark.unit.a/b]"), 3000L);
+    Assert.assertEquals((long) actual.get("[watermark.system.1, watermark.unit.c]"), 1000L);
+  }
+
   /**
    * Test normal cases
    */
@@ -728,4 +792,181 @@ public class MultistageSourceTest {
     Assert.assertEquals(actualWorkUnits.get(0).getLowWatermark(), expectedWorkUnit.getLowWatermark());
     Assert.assertEquals(actualWorkUnits.get(0).getExpectedHighWatermark(), expectedWorkUnit.getExpectedHighWatermark());
   }
+
+  /**
+   * Test generateWorkUnits with enough units to be checked concurrently
+   * Expected: work units are in the order of datetime and unit partitions, a unit that
+   * doesn't need a rerun is skipped, and the number of work units is capped
+   */
+  @Test
+  public void testGenerateWorkUnitsWithManyUnits() {
+    SourceState state = new SourceState();
+    state.setProp("ms.work.unit.partition", "daily");
+    state.setProp("ms.grace.period.days", 0);
+    state.setProp("ms.abstinent.period.days", 1);
+    MultistageSource<?, ?> source = new MultistageSource<>();
+    source.setSourceState(state);
+    source.jobKeys.initialize(state);
+
+    List<String> units = new ArrayList<>();
+    for (int i = 0; i < 1500; i++) {
+      units.add("unit" + i);
+    }
+    WatermarkDefinition datetimeWatermark = new WatermarkDefinition(gson.fromJson(
+        "{\"name\": \"system\",\"type\": \"datetime\", \"range\": {\"from\": \"2021-06-17\", \"to\": \"2021-06-19\"}}",
+        JsonObject.class), false, WorkUnitPartitionTypes.DAILY);
+    WatermarkDefinition unitWatermark = new WatermarkDefinition("id", String.join(",", units));
+    List<WatermarkDefinition> definitions = ImmutableList.of(datetimeWatermark, unitWatermark);
+    long day1 = DTF_PST_TIMEZONE.parseDateTime("2021-06-17T00:00:00").getMillis();
+    long day2 = DTF_PST_TIMEZONE.parseDateTime("2021-06-18T00:00:00").getMillis();
+    String day1Unit = "[watermark.system." + day1 + ", watermark.id.{\"id\":\"unit";
+    String day2Unit = "[watermark.system." + day2 + ", watermark.id.{\"id\":\"unit";
+
+    // the first unit of the first day was extracted completely
+    Map<String, Long> previousHighWatermarks = new HashMap<>();
+    previousHighWatermarks.put(day1Unit + "0\"}]", day2);
+
+    List<WorkUnit> workUnits = source.generateWorkUnits(definitions, previousHighWatermarks);
+    Assert.assertEquals(workUnits.size(), 2999);
+    Assert.assertEquals(workUnits.get(0).getProp("dataset.urn"), day1Unit + "1\"}]");
+    Assert.assertEquals(workUnits.get(1498).getProp("dataset.urn"), day1Unit + "1499\"}]");
+    Assert.assertEquals(workUnits.get(1499).getProp("dataset.urn"), day2Unit + "0\"}]");
+    Assert.assertEquals(workUnits.get(2998).getProp("dataset.urn"), day2Unit + "1499\"}]");
+    Assert.assertEquals(workUnits.get(2998).getProp("watermark.id"), "{\"id\":\"unit1499\"}");
+    Assert.assertEquals(workUnits.get(2998).getLowWatermark(LongWatermark.class).getValue(), day2);
+
+    state.setProp("ms.work.unit.parallelism.max", 1000);
+    workUnits = source.generateWorkUnits(definitions, previousHighWatermarks);
+    Assert.assertEquals(workUnits.size(), 1000);
+    Assert.assertEquals(workUnits.get(999).getProp("dataset.urn"), day1Unit + "1000\"}]");
+  }
+
+  /**
+   * Test generateWorkUnits after work units failed with checkpoints
+   * Expected: a failed work unit gets its checkpoint when it covers the same range, and
+   * checkpoints of other ranges or succeeded work units are ignored
+   */
+  @Test
+  public void testGenerateWorkUnitsWithCheckpoints() throws Exception {
+    SourceState state = Mockito.spy(new SourceState());
+    state.setProp("ms.work.unit.partition", "daily");
+    state.setProp("ms.grace.period.days", 0);
+    state.setProp("ms.abstinent.period.days", 1);
+    MultistageSource<?, ?> source = new MultistageSource<>();
+    source.setSourceState(state);
+    source.jobKeys.initialize(state);
+
+    WatermarkDefinition datetimeWatermark = new WatermarkDefinition(gson.fromJson(
+        "{\"name\": \"system\",\"type\": \"datetime\", \"range\": {\"from\": \"2021-06-17\", \"to\": \"2021-06-19\"}}",
+        JsonObject.class), false, WorkUnitPartitionTypes.DAILY);
+    WatermarkDefinition unitWatermark = new WatermarkDefinition("id", "unit0,unit1");
+    List<WatermarkDefinition> definitions = ImmutableList.of(datetimeWatermark, unitWatermark);
+    long day1 = DTF_PST_TIMEZONE.parseDateTime("2021-06-17T00:00:00").getMillis();
+    long day2 = DTF_PST_TIMEZONE.parseDateTime("2021-06-18T00:00:00").getMillis();
+    String day1Unit = "[watermark.system." + day1 + ", watermark.id.{\"id\":\"unit";
+    String day2Unit = "[watermark.system." + day2 + ", watermark.id.{\"id\":\"unit";
+    String checkpoint = "{\"low\":" + day1 + ",\"high\":" + day2 + ",\"pages\":40,\"records\":4000,"
+        + "\"pageStart\":4000,\"pageSize\":100,\"pageNumber\":40,\"sessionKey\":\"\"}";
+
+    Map<String, Iterable<WorkUnitState>> previousWorkUnitStates = new HashMap<>();
+    previousWorkUnitStates.put(day1Unit + "0\"}]", ImmutableList.of(
+        mockWorkUnitState(WorkUnitState.WorkingState.FAILED, day1, checkpoint)));
+    previousWorkUnitStates.put(day1Unit + "1\"}]", ImmutableList.of(
+        mockWorkUnitState(WorkUnitState.WorkingState.FAILED, day1, checkpoint.replace(":" + day2, ":" + (day2 - 1)))));
+    previousWorkUnitStates.put(day2Unit + "0\"}]", ImmutableList.of(
+        mockWorkUnitState(WorkUnitState.WorkingState.COMMITTED, day2, checkpoint.replace(":" + day1, ":" + day2))));
+    doReturn(previousWorkUnitStates).when(state).getPreviousWorkUnitStatesByDatasetUrns();
+
+    Method method = MultistageSource.class.getDeclaredMethod("getPreviousHighWatermarks");
+    method.setAccessible(true);
+    List<WorkUnit> workUnits = source.generateWorkUnits(definitions, (Map) method.invoke(source));
+    Assert.assertEquals(workUnits.size(), 4);
+    Assert.assertEquals(workUnits.get(0).getProp("dataset.urn"), day1Unit + "0\"}]");
+    Assert.assertEquals(workUnits.get(0).getProp("work.unit.checkpoint"), gson.fromJson(checkpoint, JsonObject.class).toString());
+    Assert.assertFalse(workUnits.get(1).contains("work.unit.checkpoint"));
+    Assert.assertFalse(workUnits.get(2).contains("work.unit.checkpoint"));
+  }
+
+  /**
+   * Test generateWorkUnits with ms.work.unit.target.rows after the first day was split in halves
+   * by a previous execution, and the statistics split the day into different sub-ranges
+   * Expected: sub-ranges covered by the successful halves are not extracted again, even
+   * if they have new signatures, and sub-ranges not covered from their low boundaries are extracted again
+   */
+  @Test
+  public void testGenerateWorkUnitsWithResizedPartitions() throws Exception {
+    SourceState state = Mockito.spy(new SourceState());
+    state.setProp("ms.work.unit.partition", "daily");
+    state.setProp("ms.grace.period.days", 0);
+    state.setProp("ms.abstinent.period.days", 1);
+    state.setProp("ms.work.unit.target.rows", 2000);
+    MultistageSource<?, ?> source = new MultistageSource<>();
+    source.setSourceState(state);
+    source.jobKeys.initialize(state);
+
+    WatermarkDefinition datetimeWatermark = new WatermarkDefinition(gson.fromJson(
+        "{\"name\": \"system\",\"type\": \"datetime\", \"range\": {\"from\": \"2021-06-17\", \"to\": \"2021-06-19\"}}",
+        JsonObject.class), false, WorkUnitPartitionTypes.DAILY);
+    WatermarkDefinition unitWatermark = new WatermarkDefinition("id", "unit0");
+    List<WatermarkDefinition> definitions = ImmutableList.of(datetimeWatermark, unitWatermark);
+    long day1 = DTF_PST_TIMEZONE.parseDateTime("2021-06-17T00:00:00").getMillis();
+    long halfDay = 12 * 3600 * 1000L;
+    long day2 = day1 + 2 * halfDay;
+    String unit = ", watermark.id.{\"id\":\"unit0\"}]";
+
+    // both halves succeeded, and the statistics split the first day into 3 sub-ranges
+    Map<String, Iterable<WorkUnitState>> previousWorkUnitStates = new HashMap<>();
+    previousWorkUnitStates.put("[watermark.system." + day1 + unit, ImmutableList.of(
+        mockWorkUnitState(day1, day1 + halfDay, day1 + halfDay, 3000)));
+    previousWorkUnitStates.put("[watermark.system." + (day1 + halfDay) + unit, ImmutableList.of(
+        mockWorkUnitState(day1 + halfDay, day2, day2, 3000)));
+    doReturn(previousWorkUnitStates).when(state).getPreviousWorkUnitStatesByDatasetUrns();
+
+    Method method = MultistageSource.class.getDeclaredMethod("getPreviousHighWatermarks");
+    method.setAccessible(true);
+    List<WorkUnit> workUnits = source.generateWorkUnits(definitions, (Map) method.invoke(source));
+    Assert.assertEquals(workUnits.size(), 1);
+    Assert.assertEquals(workUnits.get(0).getProp("dataset.urn"), "[watermark.system." + day2 + unit);
+
+    // the first day was split into thirds, the middle third failed, and the statistics split the day
+    // in halves, the second half is extracted again because it is not covered from its low boundary
+    long third = 8 * 3600 * 1000L;
+    previousWorkUnitStates.clear();
+    previousWorkUnitStates.put("[watermark.system." + day1 + unit, ImmutableList.of(
+        mockWorkUnitState(day1, day1 + third, day1 + third, 1500)));
+    previousWorkUnitStates.put("[watermark.system." + (day1 + third) + unit, ImmutableList.of(
+        mockWorkUnitState(day1 + third, day1 + 2 * third, day1 + third, -1)));
+    previousWorkUnitStates.put("[watermark.system." + (day1 + 2 * third) + unit, ImmutableList.of(
+        mockWorkUnitState(day1 + 2 * third, day2, day2, 1500)));
+    workUnits = source.generateWorkUnits(definitions, (Map) method.invoke(source));
+    Assert.assertEquals(workUnits.size(), 2);
+    Assert.assertEquals(workUnits.get(0).getProp("dataset.urn"), "[watermark.system." + (day1 + halfDay) + unit);
+    Assert.assertEquals(workUnits.get(0).getLowWatermark(LongWatermark.class).getValue(), day1 + halfDay);
+    Assert.assertEquals(workUnits.get(0).getExpectedHighWatermark(LongWatermark.class).getValue(), day2);
+    Assert.assertEquals(workUnits.get(1).getProp("dataset.urn"), "[watermark.system." + day2 + unit);
+  }
+
+  /**
+   * Mock a previous work unit state with statistics, a failed state has no rows
+   */
+  private WorkUnitState mockWorkUnitState(long low, long high, long actualHighWatermark, long rows) {
+    WorkUnitState workUnitState = Mockito.mock(WorkUnitState.class);
+    when(workUnitState.getWorkingState()).thenReturn(rows < 0
+        ? WorkUnitState.WorkingState.FAILED : WorkUnitState.WorkingState.COMMITTED);
+    when(workUnitState.getActualHighWatermark(LongWatermark.class)).thenReturn(new LongWatermark(actualHighWatermark));
+    when(workUnitState.getWorkunit()).thenReturn(WorkUnit.create(null,
+        new WatermarkInterval(new LongWatermark(low), new LongWatermark(high))));
+    when(workUnitState.contains("work.unit.rows")).thenReturn(rows >= 0);
+    when(workUnitState.getPropAsLong(Matchers.eq("work.unit.rows"), Matchers.anyLong())).thenReturn(rows);
+    return workUnitState;
+  }
+
+  private WorkUnitState mockWorkUnitState(WorkUnitState.WorkingState workingState, long actualHighWatermark,
+      String checkpoint) {
+    WorkUnitState workUnitState = Mockito.mock(WorkUnitState.class);
+    when(workUnitState.getWorkingState()).thenReturn(workingState);
+    when(workUnitState.getActualHighWatermark(LongWatermark.class)).thenReturn(new LongWatermark(actualHighWatermark));
+    when(workUnitState.getProp("work.unit.checkpoint")).thenReturn(checkpoint);
+    return workUnitState;
+  }
 }
@@ -4,15 +4,29 @@
 
 package com.linkedin.cdi.source;
 
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import java.io.UnsupportedEncodingException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.source.workunit.WorkUnit;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import static org.mockito.Mockito.*;
+
 
 @Test
 public class S3SourceV2Test {
+  private static final Gson GSON = new Gson();
+
   /**
    * This test depends on a publicly available common crawl file. That's why it is disabled by default.
    *
@@ -36,4 +50,181 @@ public class S3SourceV2Test {
     Assert.assertEquals(source.getS3SourceV2Keys().getMaxKeys(), new Integer(1000));
     Assert.assertEquals(source.getS3SourceV2Keys().getConnectionTimeout(), new Integer(30));
   }
+
+  /**
+   * Test: work unit per object with 3 listed objects
+   * Expected: each object is extracted by a work unit, which has the object key, ETag, size,
+   * and last modified time as its activation, and a replaced object gets a new work unit signature
+   */
+  @Test
+  public void testObjectActivations() {
+    S3SourceV2 source = spy(new S3SourceV2());
+    doReturn(Lists.newArrayList(object("exports/a.csv", "e1", 1), object("exports/b.csv", "e2", 2),
+        object("exports/c.csv", "e3", 3))).when(source).listObjects(any());
+    List<WorkUnit> workUnits = source.getWorkunits(getSourceState(new JsonObject()));
+    Assert.assertEquals(workUnits.size(), 3);
+    JsonObject activation = getActivation(workUnits.get(0));
+    Assert.assertEquals(activation.get("s3.key").getAsString(), "exports/a.csv");
+    Assert.assertEquals(activation.get("s3.etag").getAsString(), "e1");
+    Assert.assertEquals(activation.get("s3.size").getAsLong(), 1);
+    Assert.assertEquals(activation.get("s3.modified").getAsLong(), 1000L);
+    String signature = workUnits.get(0).getProp("dataset.urn");
+
+    doReturn(Lists.newArrayList(object("exports/a.csv", "e4", 4))).when(source).listObjects(any());
+    workUnits = source.getWorkunits(getSourceState(new JsonObject()));
+    Assert.assertEquals(workUnits.size(), 1);
+    Assert.assertEquals(getActivation(workUnits.get(0)).get("s3.etag").getAsString(), "e4");
+    Assert.assertNotEquals(workUnits.get(0).getProp("dataset.urn"), signature);
+  }
+
+  /**
+   * Test: work unit per object with more objects than ms.work.unit.parallelism.max
+   * Expected: only the first objects are extracted by this run
+   */
+  @Test
+  public void testObjectActivationsOverParallelismMax() {
+    S3SourceV2 source = spy(new S3SourceV2());
+    doReturn(Lists.newArrayList(object("exports/a.csv", "e1", 1), object("exports/b.csv", "e2", 2),
+        object("exports/c.csv", "e3", 3))).when(source).listObjects(any());
+    SourceState state = getSourceState(new JsonObject());
+    state.setProp("ms.work.unit.parallelism.max", 2);
+    List<WorkUnit> workUnits = source.getWorkunits(state);
+    Assert.assertEquals(workUnits.size(), 2);
+    Assert.assertEquals(getActivation(workUnits.get(1)).get("s3.key").getAsString(), "exports/b.csv");
+  }
+
+  /**
+   * Test: incremental listing with more objects than ms.work.unit.parallelism.max, where the
+   * second run extracts one of the scheduled objects successfully
+   * Expected: the watermark doesn't move past the objects that were not scheduled, or not
+   * extracted successfully, and the objects extracted successfully are skipped
+   */
+  @Test
+  public void testIncrementalListingWithTruncation() {
+    S3SourceV2 source = spy(new S3SourceV2());
+    listObjects(source, Lists.newArrayList(object("exports/a.csv", "e1", 1), object("exports/b.csv", "e2", 2),
+        object("exports/c.csv", "e3", 3)));
+    JsonObject params = new JsonObject();
+    params.addProperty("incremental_listing", true);
+    SourceState state = getSourceState(params);
+    state.setProp("ms.work.unit.parallelism.max", 2);
+    List<WorkUnit> workUnits = source.getWorkunits(state);
+    Assert.assertEquals(workUnits.size(), 2);
+    Assert.assertEquals(source.getS3SourceV2Keys().getModifiedSince(), 0L);
+
+    // both scheduled objects are extracted successfully, c.csv was not scheduled
+    state = getSourceState(params, getWorkUnitStates(workUnits, WorkUnitState.WorkingState.COMMITTED,
+        WorkUnitState.WorkingState.COMMITTED));
+    state.setProp("ms.work.unit.parallelism.max", 2);
+    workUnits = source.getWorkunits(state);
+    Assert.assertEquals(source.getS3SourceV2Keys().getModifiedSince(), 2000L);
+    Assert.assertEquals(workUnits.size(), 1);
+    Assert.assertEquals(getActivation(workUnits.get(0)).get("s3.key").getAsString(), "exports/c.csv");
+
+    // a.csv is extracted successfully, and b.csv failed
+    state = getSourceState(params);
+    state.setProp("ms.work.unit.parallelism.max", 2);
+    workUnits = source.getWorkunits(state);
+    state = getSourceState(params, getWorkUnitStates(workUnits, WorkUnitState.WorkingState.COMMITTED,
+        WorkUnitState.WorkingState.FAILED));
+    state.setProp("ms.work.unit.parallelism.max", 2);
+    workUnits = source.getWorkunits(state);
+    Assert.assertEquals(source.getS3SourceV2Keys().getModifiedSince(), 1000L);
+    Assert.assertEquals(workUnits.size(), 2);
+    Assert.assertEquals(getActivation(workUnits.get(0)).get("s3.key").getAsString(), "exports/b.csv");
+    Assert.assertEquals(getActivation(workUnits.get(1)).get("s3.key").getAsString(), "exports/c.csv");
+  }
+
+  /**
+   * Test: incremental listing followed by a run that lists no new object
+   * Expected: the run without new objects carries the listing state forward, so that
+   * the next run keeps the watermark and skips the objects extracted before
+   */
+  @Test
+  public void testIncrementalListingWithEmptyRun() {
+    S3SourceV2 source = spy(new S3SourceV2());
+    listObjects(source, Lists.newArrayList(object("exports/a.csv", "e1", 1), object("exports/b.csv", "e2", 2)));
+    JsonObject params = new JsonObject();
+    params.addProperty("incremental_listing", true);
+    List<WorkUnit> workUnits = source.getWorkunits(getSourceState(params));
+    Assert.assertEquals(workUnits.size(), 2);
+
+    // only b.csv, which was extracted, is listed, the run has the default work unit only
+    listObjects(source, Lists.newArrayList(object("exports/b.csv", "e2", 2)));
+    workUnits = source.getWorkunits(getSourceState(params, getWorkUnitStates(workUnits,
+        WorkUnitState.WorkingState.COMMITTED, WorkUnitState.WorkingState.COMMITTED)));
+    Assert.assertEquals(source.getS3SourceV2Keys().getModifiedSince(), 2000L);
+    Assert.assertEquals(workUnits.size(), 1);
+    Assert.assertFalse(getActivation(workUnits.get(0)).has("s3.key"));
+
+    // the next run only has the state of the empty run
+    listObjects(source, Lists.newArrayList(object("exports/b.csv", "e2", 2), object("exports/c.csv", "e3", 3)));
+    workUnits = source.getWorkunits(getSourceState(params, getWorkUnitStates(workUnits,
+        WorkUnitState.WorkingState.COMMITTED)));
+    Assert.assertEquals(source.getS3SourceV2Keys().getModifiedSince(), 2000L);
+    Assert.assertEquals(workUnits.size(), 1);
+    Assert.assertEquals(getActivation(workUnits.get(0)).get("s3.key").getAsString(), "exports/c.csv");
+  }
+
+  /**
+   * Test: work unit per object with a prefix that has variables, and invalid download parameters
+   * Expected: IllegalArgumentException
+   */
+  @Test
+  public void testInvalidParameters() {
+    SourceState state = getSourceState(new JsonObject());
+    state.setProp("ms.source.uri", "https://bucket.s3.amazonaws.com/exports/{{date}}/");
+    Assert.assertThrows(IllegalArgumentException.class, () -> new S3SourceV2().getWorkunits(state));
+
+    for (String key : Lists.newArrayList("download_part_size_mb", "list_parallelism", "max_pending_acquires")) {
+      JsonObject params = new JsonObject();
+      params.addProperty(key, 0);
+      Assert.assertThrows(IllegalArgumentException.class,
+          () -> new S3SourceV2().initialize(getSourceState(params)));
+    }
+  }
+
+  private SourceState getSourceState(JsonObject params) {
+    SourceState state = new SourceState();
+    state.setProp("ms.source.uri", "https://bucket.s3.amazonaws.com/exports/");
+    state.setProp("extract.table.name", "exports");
+    params.addProperty("region", "us-east-1");
+    params.addProperty("work_unit_per_object", true);
+    state.setProp("ms.source.s3.parameters", params);
+    return state;
+  }
+
+  /**
+   * Let the source list the objects modified since its listing watermark
+   */
+  private void listObjects(S3SourceV2 source, List<S3Object> objects) {
+    doAnswer(invocation -> objects.stream()
+        .filter(object -> object.lastModified().toEpochMilli() >= source.getS3SourceV2Keys().getModifiedSince())
+        .collect(Collectors.toList())).when(source).listObjects(any());
+  }
+
+  private SourceState getSourceState(JsonObject params, List<WorkUnitState> previousStates) {
+    SourceState state = spy(getSourceState(params));
+    doReturn(previousStates).when(state).getPreviousWorkUnitStates();
+    return state;
+  }
+
+  private List<WorkUnitState> getWorkUnitStates(List<WorkUnit> workUnits, WorkUnitState.WorkingState... states) {
+    List<WorkUnitState> wuStates = new ArrayList<>();
+    for (int i = 0; i < workUnits.size(); i++) {
+      WorkUnitState wuState = new WorkUnitState(workUnits.get(i));
+      wuState.setWorkingState(states[i]);
+      wuStates.add(wuState);
+    }
+    return wuStates;
+  }
+
+  private S3Object object(String key, String eTag, long size) {
+    return S3Object.builder().key(key).eTag(eTag).size(size)
+        .lastModified(Instant.ofEpochSecond(size)).build();
+  }
+
+  private JsonObject getActivation(WorkUnit workUnit) {
+    return GSON.fromJson(workUnit.getProp("ms.activation.property"), JsonObject.class);
+  }
 }
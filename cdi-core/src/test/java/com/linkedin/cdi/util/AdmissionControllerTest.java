@@ -0,0 +1,69 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class AdmissionControllerTest {
+
+  /**
+   * Test: 8 work units of different lengths with a concurrency of 2
+   * Expected: no more than 2 work units run at the same time, and all work units finish
+   */
+  @Test
+  public void testMaxConcurrency() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      long length = 10L * (i % 3 + 1);
+      futures.add(executor.submit(() -> {
+        AdmissionController admission = AdmissionController.admit("testMaxConcurrency", 2, 0);
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        Thread.sleep(length);
+        running.decrementAndGet();
+        admission.release();
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    Assert.assertEquals(maxRunning.get(), 2);
+  }
+
+  /**
+   * Test: 3 work units admitted with a 100 ms interval
+   * Expected: the work units start at least 100 ms apart
+   */
+  @Test
+  public void testPacing() throws Exception {
+    long start = System.currentTimeMillis();
+    List<AdmissionController> admissions = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      admissions.add(AdmissionController.admit("testPacing", 0, 100));
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start >= 200);
+    for (AdmissionController admission : admissions) {
+      admission.release();
+    }
+
+    // the controller is discarded after all work units finish, and a new one starts immediately
+    start = System.currentTimeMillis();
+    AdmissionController.admit("testPacing", 0, 100).release();
+    Assert.assertTrue(System.currentTimeMillis() - start < 100);
+  }
+}
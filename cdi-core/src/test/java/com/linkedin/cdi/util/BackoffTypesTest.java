@@ -0,0 +1,37 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class BackoffTypesTest {
+
+  @Test
+  public void testFromString() {
+    Assert.assertEquals(BackoffTypes.fromString("exponential"), BackoffTypes.EXPONENTIAL);
+    Assert.assertEquals(BackoffTypes.fromString("Fibonacci"), BackoffTypes.FIBONACCI);
+    Assert.assertEquals(BackoffTypes.fromString("none"), BackoffTypes.NONE);
+    Assert.assertEquals(BackoffTypes.fromString("linear"), BackoffTypes.NONE);
+    Assert.assertEquals(BackoffTypes.fromString(null), BackoffTypes.NONE);
+  }
+
+  @Test
+  public void testGetInterval() {
+    long[] exponential = {1000, 2000, 4000, 8000, 16000};
+    long[] fibonacci = {1000, 1000, 2000, 3000, 5000};
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(BackoffTypes.NONE.getInterval(1000, i), 1000);
+      Assert.assertEquals(BackoffTypes.EXPONENTIAL.getInterval(1000, i), exponential[i]);
+      Assert.assertEquals(BackoffTypes.FIBONACCI.getInterval(1000, i), fibonacci[i]);
+    }
+
+    // growth stops at some point to avoid overflow
+    Assert.assertEquals(BackoffTypes.EXPONENTIAL.getInterval(1000, 1000), BackoffTypes.EXPONENTIAL.getInterval(1000, 30));
+    Assert.assertTrue(BackoffTypes.FIBONACCI.getInterval(1000, Integer.MAX_VALUE) > 0);
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.gobblin.configuration.State;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class HdfsReaderTest {
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"test\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},"
+      + "{\"name\":\"name\",\"type\":[\"null\",\"string\"]},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"owner\",\"type\":{\"type\":\"record\",\"name\":\"owner\",\"fields\":["
+      + "{\"name\":\"email\",\"type\":\"string\"},{\"name\":\"age\",\"type\":\"int\"}]}},"
+      + "{\"name\":\"payload\",\"type\":\"string\"}]}");
+
+  /**
+   * Test: read 2 avro files with a filter on a field that is not selected
+   * Expected: records are read across files, filtered, and only the selected fields are output
+   */
+  @Test
+  public void testReadRecordsFromFiles() throws Exception {
+    List<String> files = Lists.newArrayList(writeFile(0, 5), writeFile(5, 10));
+    HdfsReader reader = new HdfsReader(new State());
+    Iterator<JsonObject> records = reader.readRecordsFromFiles(files, Arrays.asList("id", "tags", "owner"),
+        ImmutableMap.of("name", "name[13579]", "missing", ".*"));
+
+    for (long id = 1; id < 10; id += 2) {
+      Assert.assertTrue(records.hasNext());
+      Assert.assertEquals(records.next().toString(), String.format(
+          "{\"id\":%d,\"tags\":[\"a%d\",\"b%d\"],\"owner\":{\"email\":\"user%d@test.com\",\"age\":%d}}",
+          id, id, id, id, id + 20));
+    }
+    Assert.assertFalse(records.hasNext());
+  }
+
+  /**
+   * Test: read 5 avro files with 3 files read concurrently
+   * Expected: records are returned in the order of the files
+   */
+  @Test
+  public void testParallelRead() throws Exception {
+    List<String> files = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      files.add(writeFile(i * 100, (i + 1) * 100));
+    }
+    State state = new State();
+    state.setProp("ms.secondary.input.parallelism", 3);
+    Iterator<JsonObject> records = new HdfsReader(state).readRecordsFromFiles(files, Arrays.asList("id"),
+        new HashMap<>());
+    for (long id = 0; id < 500; id++) {
+      Assert.assertEquals(records.next().get("id").getAsLong(), id);
+    }
+    Assert.assertFalse(records.hasNext());
+  }
+
+  private String writeFile(int from, int to) throws Exception {
+    File file = File.createTempFile("secondary", ".avro");
+    file.deleteOnExit();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(SCHEMA))) {
+      writer.create(SCHEMA, file);
+      for (int i = from; i < to; i++) {
+        GenericRecord owner = new GenericData.Record(SCHEMA.getField("owner").schema());
+        owner.put("email", "user" + i + "@test.com");
+        owner.put("age", i + 20);
+        GenericRecord record = new GenericData.Record(SCHEMA);
+        record.put("id", (long) i);
+        record.put("name", "name" + i);
+        record.put("tags", Arrays.asList("a" + i, "b" + i));
+        record.put("owner", owner);
+        record.put("payload", "payload" + i);
+        writer.append(record);
+      }
+    }
+    return file.getAbsolutePath();
+  }
+}
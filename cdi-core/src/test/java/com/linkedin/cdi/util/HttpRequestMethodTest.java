@@ -9,6 +9,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.linkedin.cdi.factory.http.HttpRequestMethod;
+import com.linkedin.cdi.factory.http.HttpRequestTemplate;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -16,20 +17,14 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.testng.PowerMockTestCase;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import static org.powermock.api.mockito.PowerMockito.*;
-
 
 /**
  * Unit test for {@link HttpRequestMethod}
@@ -38,8 +33,7 @@ import static org.powermock.api.mockito.PowerMockito.*;
  */
 
 @Test
-@PrepareForTest({VariableUtils.class})
-public class HttpRequestMethodTest extends PowerMockTestCase {
+public class HttpRequestMethodTest {
 
   final static String FROM_DATETIME = "2017-01-02T00:00:00-0800";
   final static String TO_DATETIME = "2019-10-25T15:00:00-0700";
@@ -142,18 +136,32 @@ public class HttpRequestMethodTest extends PowerMockTestCase {
   }
 
   /**
-   * Test getHttpRequest
+   * Test getHttpRequest with compiled URI and header templates
+   * Expected: variables are rendered into the URI and headers, and only the
+   * unused parameters are sent in the URL encoded entity
    */
   @Test
   public void testGetHttpRequest() throws IOException {
-    PowerMockito.mockStatic(VariableUtils.class);
-    String uri = String.format(BASE_URI, VERSION_2);
-    Map<String, String> headers = ImmutableMap.of(CONTENT_TYPE, CONTENT_TYPE_VALUE);
-    String expected = String.format("%s %s %s", "POST", uri, HTTP_POST_FIX);
-    JsonObject parameters = HttpRequestMethodTest.generateParameterString(FROM_DATETIME, TO_DATETIME, "");
-    when(VariableUtils.replaceWithTracking(uri, parameters, true)).thenReturn(new ImmutablePair<>(uri, parameters));
-    when(VariableUtils.replaceWithTracking(headers.get(CONTENT_TYPE), parameters)).thenReturn(new ImmutablePair<>(CONTENT_TYPE, parameters));
-    Assert.assertEquals(HttpRequestMethod.POST.getHttpRequest(String.format(BASE_URI, VERSION_2), parameters, headers).toString(), expected);
+    Map<String, String> headers = ImmutableMap.of(CONTENT_TYPE, CONTENT_TYPE_VALUE,
+        "Authorization", "Bearer {{token}}");
+    HttpRequestTemplate template = new HttpRequestTemplate(String.format(BASE_URI, "{{version}}"), headers);
+    JsonObject parameters = HttpRequestMethodTest.generateParameterString(FROM_DATETIME, TO_DATETIME, VERSION_2);
+    parameters.addProperty("token", "xyz");
+
+    HttpPost postRequest = (HttpPost) HttpRequestMethod.POST.getHttpRequest(template, parameters, new JsonObject());
+    Assert.assertEquals(postRequest.getURI().toString(), String.format(BASE_URI, VERSION_2));
+    Assert.assertEquals(postRequest.getFirstHeader("Authorization").getValue(), "Bearer xyz");
+    Assert.assertEquals(postRequest.getFirstHeader(CONTENT_TYPE).getValue(), CONTENT_TYPE_VALUE);
+    Assert.assertEquals(IOUtils.toString(postRequest.getEntity().getContent(), StandardCharsets.UTF_8),
+        String.format("fromDateTime=%s&toDateTime=%s",
+            URLEncoder.encode(FROM_DATETIME, StandardCharsets.UTF_8.toString()),
+            URLEncoder.encode(TO_DATETIME, StandardCharsets.UTF_8.toString())));
+
+    // the template is reusable, and a missing variable leaves the placeholder as is
+    parameters = HttpRequestMethodTest.generateParameterString(FROM_DATETIME, TO_DATETIME, VERSION_2);
+    postRequest = (HttpPost) HttpRequestMethod.POST.getHttpRequest(template, parameters, new JsonObject());
+    Assert.assertEquals(postRequest.getURI().toString(), String.format(BASE_URI, VERSION_2));
+    Assert.assertEquals(postRequest.getFirstHeader("Authorization").getValue(), "Bearer {{token}}");
   }
 
   private void addContentType() {
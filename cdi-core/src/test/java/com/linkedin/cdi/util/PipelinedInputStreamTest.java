@@ -0,0 +1,92 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class PipelinedInputStreamTest {
+
+  /**
+   * Test: a 2-stage pipeline, reading compressed bytes, and decompressing them
+   * Expected: the bytes are the same as the original bytes
+   */
+  @Test
+  public void testStages() throws Exception {
+    byte[] original = new byte[1000 * 1000];
+    new Random(1).nextBytes(original);
+    for (int i = 0; i < original.length; i += 2) {
+      original[i] = 'a';
+    }
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(original);
+    }
+
+    try (InputStream input = new PipelinedInputStream(new GZIPInputStream(
+        new PipelinedInputStream(new ByteArrayInputStream(compressed.toByteArray()), 2, 1024)), 4, 4096)) {
+      Assert.assertEquals(IOUtils.toByteArray(input), original);
+    }
+  }
+
+  /**
+   * Test: the upstream fails after some bytes
+   * Expected: the bytes before the failure are read, and then the failure is thrown to the reader
+   */
+  @Test
+  public void testUpstreamFailure() throws Exception {
+    InputStream failing = new InputStream() {
+      private int count = 0;
+
+      @Override
+      public int read() throws IOException {
+        if (count++ == 100) {
+          throw new IOException("connection reset");
+        }
+        return 'x';
+      }
+    };
+    try (InputStream input = new PipelinedInputStream(failing, 2, 10)) {
+      byte[] bytes = new byte[100];
+      IOUtils.readFully(input, bytes);
+      input.read();
+      Assert.fail("the upstream failure should be thrown");
+    } catch (IOException e) {
+      Assert.assertEquals(e.getMessage(), "connection reset");
+    }
+  }
+
+  /**
+   * Test: an endless upstream that is not consumed
+   * Expected: the upstream is read no further than the buffers, and closing stops the stage
+   */
+  @Test
+  public void testBackPressure() throws Exception {
+    AtomicLong upstreamBytes = new AtomicLong();
+    InputStream endless = new InputStream() {
+      @Override
+      public int read() {
+        upstreamBytes.incrementAndGet();
+        return 'x';
+      }
+    };
+    InputStream input = new PipelinedInputStream(endless, 2, 16);
+    Thread.sleep(200);
+    Assert.assertEquals(upstreamBytes.get(), 32);
+    Assert.assertEquals(input.read(), 'x');
+    input.close();
+  }
+}
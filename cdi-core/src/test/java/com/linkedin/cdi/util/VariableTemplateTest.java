@@ -0,0 +1,74 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonObject;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class VariableTemplateTest {
+
+  /**
+   * Test: render a template with multiple variables, including a missing one and a repeated one
+   * Expected: variables with values are replaced, missing variables are kept as is
+   */
+  @Test
+  public void testRender() throws UnsupportedEncodingException {
+    VariableTemplate template = VariableTemplate.compile("https://domain/api/{{id}}/items/{{id}}?since={{since}}&q={{missing}}");
+    Assert.assertEquals(template.getVariables(), ImmutableSet.of("id", "since", "missing"));
+    Assert.assertTrue(template.hasVariable());
+
+    JsonObject parameters = new JsonObject();
+    parameters.addProperty("id", 123);
+    parameters.addProperty("since", "2019-11-01 12:00:00");
+    Assert.assertEquals(template.render(parameters, false),
+        "https://domain/api/123/items/123?since=2019-11-01 12:00:00&q={{missing}}");
+    Assert.assertEquals(template.render(parameters, true),
+        "https://domain/api/123/items/123?since=2019-11-01+12%3A00%3A00&q={{missing}}");
+  }
+
+  /**
+   * Test: render with tracking
+   * Expected: parameters used by the template are not in the remaining parameters
+   */
+  @Test
+  public void testRenderWithTracking() throws UnsupportedEncodingException {
+    JsonObject parameters = new JsonObject();
+    parameters.addProperty("id", "abc");
+    parameters.addProperty("format", "avro");
+    Pair<String, JsonObject> replaced = VariableTemplate.compile("/surveys/{{id}}").renderWithTracking(parameters, true);
+    Assert.assertEquals(replaced.getKey(), "/surveys/abc");
+    Assert.assertEquals(replaced.getValue().toString(), "{\"format\":\"avro\"}");
+
+    // the rendering is the same as VariableUtils
+    String template = "{{format}} - {{id}} - {{id}}";
+    Assert.assertEquals(VariableTemplate.compile(template).renderWithTracking(parameters, false).getKey(),
+        "avro - abc - abc");
+  }
+
+  /**
+   * Test: a template without variables
+   * Expected: the template itself is returned, and it is not cached
+   */
+  @Test
+  public void testCompileWithCache() throws UnsupportedEncodingException {
+    Map<String, VariableTemplate> compiled = new HashMap<>();
+    VariableTemplate plain = VariableTemplate.compile("plain value", compiled);
+    Assert.assertFalse(plain.hasVariable());
+    Assert.assertEquals(plain.render(new JsonObject(), true), "plain value");
+    Assert.assertTrue(compiled.isEmpty());
+
+    VariableTemplate first = VariableTemplate.compile("{{a}}-{{b}}", compiled);
+    Assert.assertSame(VariableTemplate.compile("{{a}}-{{b}}", compiled), first);
+    Assert.assertEquals(compiled.size(), 1);
+  }
+}
@@ -0,0 +1,77 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WorkUnitSizerTest {
+  private static final long DAY = 24 * 3600 * 1000L;
+
+  /**
+   * Test: 5 daily partitions, 3 light days, 1 heavy day, and 1 day without statistics
+   * Expected: the light days are merged, the heavy day is split, and the last day is kept
+   */
+  @Test
+  public void testResize() {
+    WorkUnitSizer sizer = new WorkUnitSizer(100, 0);
+    sizer.addStatistics(0, DAY, 10, 1000);
+    sizer.addStatistics(DAY, 2 * DAY, 10, 1000);
+    sizer.addStatistics(2 * DAY, 3 * DAY, 10, 1000);
+    sizer.addStatistics(3 * DAY, 4 * DAY, 350, 1000);
+
+    List<ImmutablePair<Long, Long>> expected = new ArrayList<>();
+    expected.add(new ImmutablePair<>(0L, 3 * DAY));
+    for (int i = 0; i < 4; i++) {
+      expected.add(new ImmutablePair<>(3 * DAY + i * DAY / 4, 3 * DAY + (i + 1) * DAY / 4));
+    }
+    expected.add(new ImmutablePair<>(4 * DAY, 5 * DAY));
+    Assert.assertEquals(sizer.resize(getDailyPartitions(5), 1), expected);
+
+    // with 5 units, the heavy day is within the target per work unit
+    expected.subList(1, 5).clear();
+    expected.set(0, new ImmutablePair<>(0L, 4 * DAY));
+    Assert.assertEquals(sizer.resize(getDailyPartitions(5), 5), expected);
+  }
+
+  /**
+   * Test: statistics of a previously merged range and a target duration
+   * Expected: the load is estimated by the overlap, and the duration target applies
+   */
+  @Test
+  public void testResizeByDuration() {
+    WorkUnitSizer sizer = new WorkUnitSizer(0, 60 * 1000L);
+    sizer.addStatistics(0, 2 * DAY, 0, 240 * 1000L);
+    List<ImmutablePair<Long, Long>> resized = sizer.resize(getDailyPartitions(2), 1);
+    Assert.assertEquals(resized.size(), 4);
+    Assert.assertEquals(resized.get(1), new ImmutablePair<>(DAY / 2, DAY));
+    Assert.assertEquals(resized.get(3), new ImmutablePair<>(DAY + DAY / 2, 2 * DAY));
+  }
+
+  /**
+   * Test: no target is set
+   * Expected: the partitions are not changed
+   */
+  @Test
+  public void testDisabled() {
+    WorkUnitSizer sizer = new WorkUnitSizer(0, 0);
+    sizer.addStatistics(0, DAY, 10, 1000);
+    Assert.assertFalse(sizer.isEnabled());
+    Assert.assertEquals(sizer.resize(getDailyPartitions(3), 1), getDailyPartitions(3));
+  }
+
+  private List<ImmutablePair<Long, Long>> getDailyPartitions(int days) {
+    List<ImmutablePair<Long, Long>> partitions = new ArrayList<>();
+    for (int i = 0; i < days; i++) {
+      partitions.add(new ImmutablePair<>(i * DAY, (i + 1) * DAY));
+    }
+    return partitions;
+  }
+}
@@ -57,4 +57,23 @@ public class WorkUnitStatusTest {
     // source schema is null
     Assert.assertEquals(WorkUnitStatus.builder().messages(null).build().getSchema(), new JsonArray());
   }
+
+  /**
+   * test response headers
+   * scenario 1: default value
+   * scenario 2: header names are case-insensitive
+   * scenario 3: headers are kept by toBuilder()
+   */
+  @Test
+  public void testHeaders() {
+    Assert.assertTrue(WorkUnitStatus.builder().build().getHeaders().isEmpty());
+
+    Map<String, String> headers = WorkUnitStatus.newHeaderMap();
+    headers.put("X-Session-Id", "abc");
+    WorkUnitStatus status = WorkUnitStatus.builder().build().setHeaders(headers);
+    Assert.assertEquals(status.getHeaders().get("x-session-id"), "abc");
+    Assert.assertEquals(status.toBuilder().build().getHeaders().get("X-SESSION-ID"), "abc");
+
+    Assert.assertTrue(status.setHeaders(null).getHeaders().isEmpty());
+  }
 }